@@ -0,0 +1,5 @@
+package ch.uzh.ifi.seal.soprafs20.constant;
+
+public enum GameCommand {
+    JOIN, LEAVE, START, DRAW_CARD, CHOOSE_WORD, VOTE_WORD, ADD_CLUE, CHECK_CLUES, GUESS, SKIP, RESET, FINISH
+}
@@ -0,0 +1,6 @@
+package ch.uzh.ifi.seal.soprafs20.constant;
+
+public enum GameEventType {
+    CREATED, USER_JOINED, USER_LEFT, STARTED, FINISHED, TURN_RESET, CARD_DRAWN, WORD_CHOSEN, WORD_VOTED,
+    CLUE_ADDED, CLUES_CHECKED, GUESS_SKIPPED, GUESS_MADE, SETTLED
+}
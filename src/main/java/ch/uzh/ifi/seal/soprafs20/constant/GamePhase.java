@@ -0,0 +1,67 @@
+package ch.uzh.ifi.seal.soprafs20.constant;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * GamePhase
+ * The phases of a game, the transition table defines which commands are allowed in which phase
+ * and which phase usually follows.
+ */
+public enum GamePhase {
+    LOBBY, DRAW_CARD, CHOOSE_WORD, VOTE_WORD, GIVE_CLUES, CHECK_CLUES, GUESS, TURN_END, FINISHED;
+
+    //returns true if the command may be executed in this phase
+    public boolean allows(GameCommand command) {
+        return Transitions.ALLOWED_COMMANDS.get(this).contains(command);
+    }
+
+    //returns the phase that usually follows this phase
+    public GamePhase next() {
+        return Transitions.NEXT_PHASE.get(this);
+    }
+
+    //returns true if a turn is running and it already got to the given phase
+    public boolean reached(GamePhase phase) {
+        return compareTo(phase) >= 0 && compareTo(TURN_END) <= 0;
+    }
+
+    //the tables can only be filled after all constants of the enum exist
+    private static final class Transitions {
+
+        private static final Map<GamePhase, EnumSet<GameCommand>> ALLOWED_COMMANDS = new EnumMap<>(GamePhase.class);
+        private static final Map<GamePhase, GamePhase> NEXT_PHASE = new EnumMap<>(GamePhase.class);
+
+        static {
+            //users can join and leave a running game in every phase of a turn
+            EnumSet<GameCommand> always = EnumSet.of(GameCommand.JOIN, GameCommand.LEAVE, GameCommand.RESET, GameCommand.FINISH);
+
+            add(LOBBY, DRAW_CARD, EnumSet.of(GameCommand.JOIN, GameCommand.LEAVE, GameCommand.START));
+            add(DRAW_CARD, CHOOSE_WORD, union(always, GameCommand.DRAW_CARD));
+            add(CHOOSE_WORD, VOTE_WORD, union(always, GameCommand.CHOOSE_WORD));
+            add(VOTE_WORD, GIVE_CLUES, union(always, GameCommand.VOTE_WORD));
+            add(GIVE_CLUES, CHECK_CLUES, union(always, GameCommand.ADD_CLUE, GameCommand.SKIP));
+            add(CHECK_CLUES, GUESS, union(always, GameCommand.CHECK_CLUES, GameCommand.SKIP));
+            add(GUESS, TURN_END, union(always, GameCommand.GUESS, GameCommand.SKIP));
+            add(TURN_END, DRAW_CARD, EnumSet.copyOf(always));
+            add(FINISHED, FINISHED, EnumSet.of(GameCommand.LEAVE));
+        }
+
+        private Transitions() {
+        }
+
+        private static void add(GamePhase phase, GamePhase nextPhase, EnumSet<GameCommand> allowedCommands) {
+            ALLOWED_COMMANDS.put(phase, allowedCommands);
+            NEXT_PHASE.put(phase, nextPhase);
+        }
+
+        private static EnumSet<GameCommand> union(EnumSet<GameCommand> commands, GameCommand... additionalCommands) {
+            EnumSet<GameCommand> union = EnumSet.copyOf(commands);
+            for (GameCommand command : additionalCommands){
+                union.add(command);
+            }
+            return union;
+        }
+    }
+}
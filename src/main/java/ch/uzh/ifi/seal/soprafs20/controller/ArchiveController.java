@@ -0,0 +1,45 @@
+package ch.uzh.ifi.seal.soprafs20.controller;
+
+import ch.uzh.ifi.seal.soprafs20.history.ArchivedGame;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.GameArchiveGetDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.mapper.DTOMapper;
+import ch.uzh.ifi.seal.soprafs20.service.GameArchiveService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Archive Controller
+ * This class serves the finished games once they are archived: the final state of a game and the result of every
+ * round. Archived games never change, there is nothing to write here.
+ */
+@RestController
+public class ArchiveController {
+
+    private final GameArchiveService gameArchiveService;
+
+    ArchiveController(GameArchiveService gameArchiveService) {
+        this.gameArchiveService = gameArchiveService;
+    }
+
+    @GetMapping("/archive/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public GameArchiveGetDTO getArchivedGame(@PathVariable("id") long id) {
+        ArchivedGame archivedGame = gameArchiveService.getArchivedGame(id);
+        return DTOMapper.INSTANCE.convertArchivedGameToGameArchiveGetDTO(archivedGame);
+    }
+
+    @GetMapping("/users/{id}/archive")
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public List<GameArchiveGetDTO> getArchivedGamesOfUser(@PathVariable("id") long id) {
+        List<GameArchiveGetDTO> gameArchiveGetDTOs = new ArrayList<>();
+        for (ArchivedGame archivedGame : gameArchiveService.getArchivedGamesOfUser(id)){
+            gameArchiveGetDTOs.add(DTOMapper.INSTANCE.convertArchivedGameToGameArchiveGetDTO(archivedGame));
+        }
+        return gameArchiveGetDTOs;
+    }
+}
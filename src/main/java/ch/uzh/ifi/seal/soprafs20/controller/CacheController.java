@@ -0,0 +1,29 @@
+package ch.uzh.ifi.seal.soprafs20.controller;
+
+import ch.uzh.ifi.seal.soprafs20.rest.dto.CacheMetricsGetDTO;
+import ch.uzh.ifi.seal.soprafs20.service.CacheMetricsService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Cache Controller
+ * This class reports how often the users are found in the second-level cache instead of the database.
+ */
+@RestController
+public class CacheController {
+
+    private final CacheMetricsService cacheMetricsService;
+
+    CacheController(CacheMetricsService cacheMetricsService) {
+        this.cacheMetricsService = cacheMetricsService;
+    }
+
+    @GetMapping("/caches/metrics")
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public List<CacheMetricsGetDTO> getCacheMetrics() {
+        return cacheMetricsService.getMetrics();
+    }
+}
@@ -0,0 +1,17 @@
+package ch.uzh.ifi.seal.soprafs20.controller;
+
+/**
+ * ETags
+ * Strong entity tags of the game and user reads. The tag is the version of the entity, which changes with every change
+ * of the entity, so a conditional request can be answered with 304 Not Modified from the version alone.
+ * Handlers that answer conditional requests must not declare a @ResponseStatus, it would overwrite the 304.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+}
@@ -1,15 +1,32 @@
 package ch.uzh.ifi.seal.soprafs20.controller;
 
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.entity.User;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Card;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Clue;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.entity.game.GameSummary;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Guess;
-import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException404;
+import ch.uzh.ifi.seal.soprafs20.repository.GameSummaryView;
 import ch.uzh.ifi.seal.soprafs20.rest.dto.*;
 import ch.uzh.ifi.seal.soprafs20.rest.mapper.DTOMapper;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.service.GameHistoryService;
+import ch.uzh.ifi.seal.soprafs20.service.GameLongPollService;
 import ch.uzh.ifi.seal.soprafs20.service.GameService;
+import ch.uzh.ifi.seal.soprafs20.service.GameStreamService;
+import ch.uzh.ifi.seal.soprafs20.service.GameSummaryService;
+import ch.uzh.ifi.seal.soprafs20.service.GameViewCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
@@ -19,9 +36,23 @@ import java.util.List;
 public class GameController {
 
     private final GameService gameService;
-
-    GameController(GameService gameService) {
+    private final GameHistoryService gameHistoryService;
+    private final GameStreamService gameStreamService;
+    private final GameLongPollService gameLongPollService;
+    private final GameViewCache gameViewCache;
+    private final GameSummaryService gameSummaryService;
+    private final ObjectMapper objectMapper;
+
+    GameController(GameService gameService, GameHistoryService gameHistoryService, GameStreamService gameStreamService,
+                   GameLongPollService gameLongPollService, GameViewCache gameViewCache, GameSummaryService gameSummaryService,
+                   ObjectMapper objectMapper) {
         this.gameService = gameService;
+        this.gameHistoryService = gameHistoryService;
+        this.gameStreamService = gameStreamService;
+        this.gameLongPollService = gameLongPollService;
+        this.gameViewCache = gameViewCache;
+        this.gameSummaryService = gameSummaryService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/games")
@@ -86,34 +117,110 @@ public class GameController {
         return DTOMapper.INSTANCE.convertEntityToGameGetDTO(updatedGame);
     }
 
+    @PutMapping("/games/settle/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public List<UserGetDTO> settleGame(@PathVariable("id") long id) {
+        List<UserGetDTO> userGetDTOs = new ArrayList<>();
+        for (User user : gameService.settleGame(id)){
+            userGetDTOs.add(DTOMapper.INSTANCE.convertEntityToUserGetDTO(user));
+        }
+        return userGetDTOs;
+    }
+
     @GetMapping("/games")
+    @ResponseBody
+    public ResponseEntity<List<GameGetDTO>> getAllGames(@RequestParam(required = false) Long after,
+                                                        @RequestParam(required = false) GameStatus status,
+                                                        @RequestParam(required = false) Integer size) {
+        //the games are read from their summaries, not from the tables the commands write
+        if (after == null && size == null){
+            return Keysets.all((afterId, pageSize) -> gameSummaryService.getSummaryPage(afterId, status, pageSize),
+                    DTOMapper.INSTANCE::convertGameSummaryViewToGameGetDTO, GameSummaryView::getId);
+        }
+        long afterId = after == null ? 0 : after;
+        int pageSize = size == null ? Keysets.MAX_PAGE_SIZE : size;
+        Keysets.checkPage(afterId, pageSize);
+        Slice<GameSummaryView> summaries = gameSummaryService.getSummaryPage(afterId, status, pageSize);
+
+        return Keysets.page(summaries, DTOMapper.INSTANCE::convertGameSummaryViewToGameGetDTO, GameSummaryView::getId);
+    }
+
+    @GetMapping(value = "/games/export", produces = Keysets.NDJSON)
+    @ResponseBody
+    public ResponseEntity<StreamingResponseBody> exportGames(@RequestParam(required = false) GameStatus status) {
+        return Keysets.export((after, size) -> gameSummaryService.getSummaryPage(after, status, size),
+                DTOMapper.INSTANCE::convertGameSummaryViewToGameGetDTO, GameSummaryView::getId, objectMapper);
+    }
+
+    @GetMapping("/users/{id}/games")
     @ResponseStatus(HttpStatus.OK)
     @ResponseBody
-    public List<GameGetDTO> getAllGames() {
+    public List<GameGetDTO> getGamesOfUser(@PathVariable("id") long id) {
         List<GameGetDTO> gameGetDTOs = new ArrayList<>();
-        List<Game> games = gameService.getGames();
-
-        for (Game game : games) {
-            gameGetDTOs.add(DTOMapper.INSTANCE.convertEntityToGameGetDTO(game));
+        for (GameSummaryView summary : gameSummaryService.getSummariesOfUser(id)){
+            gameGetDTOs.add(DTOMapper.INSTANCE.convertGameSummaryViewToGameGetDTO(summary));
         }
         return gameGetDTOs;
     }
 
     @GetMapping("/games/{id}")
-    @ResponseStatus(HttpStatus.OK)
     @ResponseBody
-    public GameGetDTO getGameById(@PathVariable("id") long id) {
+    public ResponseEntity<?> getGameById(@PathVariable("id") long id, WebRequest webRequest) {
+        long version = gameSummaryService.getVersion(id);
+        //a client that already has this version gets 304 without loading the game
+        if (webRequest.checkNotModified(ETags.of(version))){
+            return null;
+        }
+        //every reader of this version gets the same already encoded game
+        byte[] cachedView = gameViewCache.getView(id, version, GameViewCache.GAME_VIEW);
+        if (cachedView != null){
+            return cached(cachedView);
+        }
 
-        //look for game in database
-        Game gameById = gameService.getGameById(id);
+        //look for the summary of the game, it holds everything the game view shows
+        GameSummary summary = gameSummaryService.getSummary(id);
 
-        //check if a game was found
-        if (gameById == null){
-            throw new GetRequestException404("No game was found!");
+        // convert internal representation of game to API
+        return ResponseEntity.ok(DTOMapper.INSTANCE.convertGameSummaryToGameGetDTO(summary));
+    }
+
+    @GetMapping("/games/{id}/round")
+    @ResponseBody
+    public RoundGetDTO getRound(@PathVariable("id") long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(ETags.of(gameService.getGameVersion(id)))){
+            return null;
         }
 
-        // convert internal representation of game to API
-        return DTOMapper.INSTANCE.convertEntityToGameGetDTO(gameById);
+        //one load of the game for everything the current turn shows
+        Game gameById = gameService.getRound(id);
+
+        return DTOMapper.INSTANCE.convertEntityToRoundGetDTO(gameById);
+    }
+
+    @GetMapping(value = "/games/{id}", params = "sinceVersion")
+    public DeferredResult<ResponseEntity<byte[]>> awaitGame(@PathVariable("id") long id, @RequestParam("sinceVersion") long sinceVersion,
+                                                            @RequestParam(value = "delta", defaultValue = "false") boolean delta) {
+        //parks the request until the game moved past sinceVersion, with delta the answer can be a patch from sinceVersion
+        return gameLongPollService.await(id, sinceVersion, GameViewCache.GAME_VIEW, delta);
+    }
+
+    @GetMapping("/games/{id}/replay")
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public GameStateGetDTO replayGame(@PathVariable("id") long id, @RequestParam(value = "version", required = false) Long version) {
+        //rebuild the game at the requested version from the game history
+        GameState gameState = gameHistoryService.replay(id, version);
+
+        return DTOMapper.INSTANCE.convertGameStateToGameStateGetDTO(gameState);
+    }
+
+    @GetMapping(value = "/games/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public SseEmitter streamGame(@PathVariable("id") long id, @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                 @RequestParam(value = "delta", defaultValue = "false") boolean delta) {
+        //the stream stays open and gets every change of the game, a reconnect resumes after the last received version
+        return gameStreamService.subscribe(id, lastEventId, delta);
     }
 
     @PutMapping("/games/reset/{id}")
@@ -126,12 +233,13 @@ public class GameController {
     }
 
     @GetMapping("/cards/{id}")
-    @ResponseStatus(HttpStatus.OK)
     @ResponseBody
-    public CardGetDTO getActiveCard(@PathVariable("id") long id) {
-        Game gameById = gameService.getGameById(id);
+    public CardGetDTO getActiveCard(@PathVariable("id") long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(ETags.of(gameService.getGameVersion(id)))){
+            return null;
+        }
 
-        Card activeCard = gameById.getActiveCard();
+        Card activeCard = gameService.getCurrentCard(id);
 
         //convert internal representation of card to API
         return DTOMapper.INSTANCE.convertEntityToCardGetDTO(activeCard);
@@ -149,14 +257,28 @@ public class GameController {
     }
 
     @GetMapping("/chosenword/{id}")
-    @ResponseStatus(HttpStatus.OK)
     @ResponseBody
-    public ChosenWordGetDTO getChosenWord(@PathVariable("id") long id) {
+    public ResponseEntity<?> getChosenWord(@PathVariable("id") long id, WebRequest webRequest) {
+        long version = gameService.getGameVersion(id);
+        if (webRequest.checkNotModified(ETags.of(version))){
+            return null;
+        }
+        byte[] cachedView = gameViewCache.getView(id, version, GameViewCache.CHOSEN_WORD_VIEW);
+        if (cachedView != null){
+            return cached(cachedView);
+        }
+
         //set the chosen word for the specified game
         Game updatedGame = gameService.getGameById(id);
 
         //convert internal representation of game to API
-        return DTOMapper.INSTANCE.convertEntityToChosenWordGetDTO(updatedGame);
+        return ResponseEntity.ok(DTOMapper.INSTANCE.convertEntityToChosenWordGetDTO(updatedGame));
+    }
+
+    @GetMapping(value = "/chosenword/{id}", params = "sinceVersion")
+    public DeferredResult<ResponseEntity<byte[]>> awaitChosenWord(@PathVariable("id") long id, @RequestParam("sinceVersion") long sinceVersion,
+                                                                  @RequestParam(value = "delta", defaultValue = "false") boolean delta) {
+        return gameLongPollService.await(id, sinceVersion, GameViewCache.CHOSEN_WORD_VIEW, delta);
     }
 
     @PutMapping("/chosenword/{id}")
@@ -178,10 +300,10 @@ public class GameController {
     @ResponseBody
     public ChosenWordGetDTO updateChosenWord(@PathVariable("id") long id, @RequestBody ChosenWordPutDTO chosenWordPutDTO) {
         //set the chosen word for the specified game
-        Game updatedGame = gameService.updateChosenWord(id, chosenWordPutDTO);
+        GameState updatedGame = gameService.updateChosenWord(id, chosenWordPutDTO);
 
         // convert internal representation of game to API
-        return DTOMapper.INSTANCE.convertEntityToChosenWordGetDTO(updatedGame);
+        return DTOMapper.INSTANCE.convertGameStateToChosenWordGetDTO(updatedGame);
     }
 
     @PostMapping("/clues/{id}")
@@ -220,13 +342,27 @@ public class GameController {
     }
 
     @GetMapping("/clues/{id}")
-    @ResponseStatus(HttpStatus.OK)
     @ResponseBody
-    public CluesGetDTO getAllClues(@PathVariable("id") long id) {
-        Game gameById = gameService.getGameById(id);
+    public ResponseEntity<?> getAllClues(@PathVariable("id") long id, WebRequest webRequest) {
+        long version = gameService.getGameVersion(id);
+        if (webRequest.checkNotModified(ETags.of(version))){
+            return null;
+        }
+        byte[] cachedView = gameViewCache.getView(id, version, GameViewCache.CLUES_VIEW);
+        if (cachedView != null){
+            return cached(cachedView);
+        }
+
+        Game gameById = gameService.getGameWithClues(id);
 
         // convert internal representation of clue back to API
-        return DTOMapper.INSTANCE.convertEntityToCluesGetDTO(gameById);
+        return ResponseEntity.ok(DTOMapper.INSTANCE.convertEntityToCluesGetDTO(gameById));
+    }
+
+    @GetMapping(value = "/clues/{id}", params = "sinceVersion")
+    public DeferredResult<ResponseEntity<byte[]>> awaitClues(@PathVariable("id") long id, @RequestParam("sinceVersion") long sinceVersion,
+                                                             @RequestParam(value = "delta", defaultValue = "false") boolean delta) {
+        return gameLongPollService.await(id, sinceVersion, GameViewCache.CLUES_VIEW, delta);
     }
 
     @PutMapping("/clues/{id}")
@@ -237,10 +373,10 @@ public class GameController {
         List<String> cluesToChange = DTOMapper.INSTANCE.convertCluePutDTOtoList(cluePutDTO);
 
         // create clue
-        Game updatedGame = gameService.setCluesToInvalid(id, cluesToChange);
+        GameState updatedGame = gameService.setCluesToInvalid(id, cluesToChange);
 
         // convert internal representation of clue back to API
-        return DTOMapper.INSTANCE.convertEntityToCluesGetDTO(updatedGame);
+        return DTOMapper.INSTANCE.convertGameStateToCluesGetDTO(updatedGame);
     }
 
     @PutMapping("/skip/{id}")
@@ -254,12 +390,26 @@ public class GameController {
    }
 
    @GetMapping("/guess/{id}")
-   @ResponseStatus(HttpStatus.OK)
    @ResponseBody
-   public GuessGetDTO getGuess(@PathVariable("id") long id) {
+   public ResponseEntity<?> getGuess(@PathVariable("id") long id, WebRequest webRequest) {
+        long version = gameService.getGameVersion(id);
+        if (webRequest.checkNotModified(ETags.of(version))){
+            return null;
+        }
+        byte[] cachedView = gameViewCache.getView(id, version, GameViewCache.GUESS_VIEW);
+        if (cachedView != null){
+            return cached(cachedView);
+        }
+
         Guess guess = gameService.getGuess(id);
 
-        return DTOMapper.INSTANCE.convertEntityToGuessGetDTO(guess);
+        return ResponseEntity.ok(DTOMapper.INSTANCE.convertEntityToGuessGetDTO(guess));
+    }
+
+    @GetMapping(value = "/guess/{id}", params = "sinceVersion")
+    public DeferredResult<ResponseEntity<byte[]>> awaitGuess(@PathVariable("id") long id, @RequestParam("sinceVersion") long sinceVersion,
+                                                             @RequestParam(value = "delta", defaultValue = "false") boolean delta) {
+        return gameLongPollService.await(id, sinceVersion, GameViewCache.GUESS_VIEW, delta);
     }
 
     @PostMapping("/guess/{id}")
@@ -272,4 +422,9 @@ public class GameController {
 
         return DTOMapper.INSTANCE.convertEntityToGuessGetDTO(guess);
     }
-}
\ No newline at end of file
+
+    //the body is JSON that was encoded once for every reader of this version
+    private static ResponseEntity<byte[]> cached(byte[] cachedView) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(cachedView);
+    }
+}
@@ -0,0 +1,37 @@
+package ch.uzh.ifi.seal.soprafs20.controller;
+
+import ch.uzh.ifi.seal.soprafs20.history.GameChangedEvent;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.GameUpdateGetDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.mapper.DTOMapper;
+import ch.uzh.ifi.seal.soprafs20.service.GameService;
+import ch.uzh.ifi.seal.soprafs20.service.GameViewCache;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+/**
+ * Game Socket Controller
+ * This class answers the STOMP subscriptions of the clients. The changes of a game itself are pushed
+ * on /topic/games/{id} by the GameUpdateBroadcaster.
+ */
+@Controller
+public class GameSocketController {
+
+    private final GameService gameService;
+    private final GameViewCache gameViewCache;
+
+    GameSocketController(GameService gameService, GameViewCache gameViewCache) {
+        this.gameService = gameService;
+        this.gameViewCache = gameViewCache;
+    }
+
+    //a client that (re)connects gets the current version with its views, a game that is not cached is read from the database
+    @SubscribeMapping("/games/{id}")
+    public GameUpdateGetDTO subscribeGame(@DestinationVariable("id") long id) {
+        GameViewCache.EncodedGame latestGame = gameViewCache.getLatest(id);
+        GameState state = latestGame != null ? latestGame.getState() : gameViewCache.publish(gameService.getGameState(id)).getState();
+        GameChangedEvent currentGame = new GameChangedEvent(id, state.getVersion(), null, state);
+        return DTOMapper.INSTANCE.convertGameChangedEventToGameUpdateGetDTO(currentGame);
+    }
+}
@@ -0,0 +1,94 @@
+package ch.uzh.ifi.seal.soprafs20.controller;
+
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException400;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keysets
+ * Keyset pagination of the lists of games and users. A page holds the rows with an id after the last id of the
+ * previous page, so every page is one index range read however far the client has paged, and rows that are added
+ * or removed in between do not shift the following pages. The body is the list of the page, the next page is linked
+ * in the Link header and there is no link on the last page. Paging is opt-in: a request without an id to read after
+ * and without a size gets the whole list like before the lists were paged, read page by page.
+ * An export writes all pages as newline delimited JSON while it reads them, one read-only transaction per page.
+ */
+final class Keysets {
+
+    static final int MAX_PAGE_SIZE = 100;
+    static final int EXPORT_PAGE_SIZE = 500;
+    static final String NDJSON = "application/x-ndjson";
+
+    private Keysets() {
+    }
+
+    /**
+     * Reads the page of the rows with an id after the given id.
+     */
+    @FunctionalInterface
+    interface PageReader<T> {
+        Slice<T> read(long after, int size);
+    }
+
+    static void checkPage(long after, int size) {
+        if (after < 0 || size < 1 || size > MAX_PAGE_SIZE){
+            throw new GetRequestException400(String.format("The id to read after must not be negative and the size must be between 1 and %d!", MAX_PAGE_SIZE));
+        }
+    }
+
+    static <T, D> ResponseEntity<List<D>> page(Slice<T> slice, Function<T, D> toDTO, ToLongFunction<T> id) {
+        List<D> dtos = new ArrayList<>();
+        for (T row : slice){
+            dtos.add(toDTO.apply(row));
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (slice.hasNext()){
+            long lastId = id.applyAsLong(slice.getContent().get(slice.getNumberOfElements() - 1));
+            String next = ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("after", lastId).toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(dtos);
+    }
+
+    static <T, D> ResponseEntity<List<D>> all(PageReader<T> pages, Function<T, D> toDTO, ToLongFunction<T> id) {
+        List<D> dtos = new ArrayList<>();
+        long after = 0;
+        Slice<T> slice;
+        do {
+            slice = pages.read(after, EXPORT_PAGE_SIZE);
+            for (T row : slice){
+                dtos.add(toDTO.apply(row));
+                after = id.applyAsLong(row);
+            }
+        } while (slice.hasNext());
+        return ResponseEntity.ok(dtos);
+    }
+
+    static <T, D> ResponseEntity<StreamingResponseBody> export(PageReader<T> pages, Function<T, D> toDTO,
+                                                                ToLongFunction<T> id, ObjectMapper objectMapper) {
+        StreamingResponseBody body = outputStream -> {
+            long after = 0;
+            Slice<T> slice;
+            do {
+                slice = pages.read(after, EXPORT_PAGE_SIZE);
+                for (T row : slice){
+                    outputStream.write(objectMapper.writeValueAsBytes(toDTO.apply(row)));
+                    outputStream.write('\n');
+                    after = id.applyAsLong(row);
+                }
+                outputStream.flush();
+            } while (slice.hasNext());
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+}
@@ -0,0 +1,33 @@
+package ch.uzh.ifi.seal.soprafs20.controller;
+
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException400;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.LobbyPageGetDTO;
+import ch.uzh.ifi.seal.soprafs20.service.LobbyService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Lobby Controller
+ * This class is responsible for handling the REST requests for the list of joinable games.
+ * The changes of the lobby after a page was read are pushed to /topic/lobby.
+ */
+@RestController
+public class LobbyController {
+
+    private final LobbyService lobbyService;
+
+    LobbyController(LobbyService lobbyService) {
+        this.lobbyService = lobbyService;
+    }
+
+    @GetMapping("/lobby")
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public LobbyPageGetDTO getLobby(@RequestParam(defaultValue = "0") int page,
+                                    @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > LobbyService.MAX_PAGE_SIZE){
+            throw new GetRequestException400(String.format("The page must not be negative and the size must be between 1 and %d!", LobbyService.MAX_PAGE_SIZE));
+        }
+        return lobbyService.getLobbyPage(page, size);
+    }
+}
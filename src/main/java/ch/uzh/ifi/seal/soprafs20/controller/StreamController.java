@@ -0,0 +1,34 @@
+package ch.uzh.ifi.seal.soprafs20.controller;
+
+import ch.uzh.ifi.seal.soprafs20.rest.dto.StreamMetricsGetDTO;
+import ch.uzh.ifi.seal.soprafs20.service.GameStreamService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+
+/**
+ * Stream Controller
+ * This class reports how the pushed game updates keep up with the clients: the queues and drops of the
+ * Server-Sent Event streams and the session counters of the STOMP broker.
+ */
+@RestController
+public class StreamController {
+
+    private final GameStreamService gameStreamService;
+    private final WebSocketMessageBrokerStats webSocketMessageBrokerStats;
+
+    StreamController(GameStreamService gameStreamService, WebSocketMessageBrokerStats webSocketMessageBrokerStats) {
+        this.gameStreamService = gameStreamService;
+        this.webSocketMessageBrokerStats = webSocketMessageBrokerStats;
+    }
+
+    @GetMapping("/streams/metrics")
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public StreamMetricsGetDTO getStreamMetrics() {
+        StreamMetricsGetDTO streamMetricsGetDTO = gameStreamService.getMetrics();
+        //the broker counts the sessions it closed because they exceeded the send limits
+        streamMetricsGetDTO.setWebSocketSessions(webSocketMessageBrokerStats.getWebSocketSessionStatsInfo());
+        return streamMetricsGetDTO;
+    }
+}
@@ -1,16 +1,23 @@
 package ch.uzh.ifi.seal.soprafs20.controller;
 
+import ch.uzh.ifi.seal.soprafs20.constant.UserStatus;
 import ch.uzh.ifi.seal.soprafs20.entity.User;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException404;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.put.PutRequestException410;
+import ch.uzh.ifi.seal.soprafs20.repository.UserView;
 import ch.uzh.ifi.seal.soprafs20.rest.dto.UserGetDTO;
 import ch.uzh.ifi.seal.soprafs20.rest.dto.UserPostDTO;
 import ch.uzh.ifi.seal.soprafs20.rest.dto.UserPutDTO;
 import ch.uzh.ifi.seal.soprafs20.rest.mapper.DTOMapper;
 import ch.uzh.ifi.seal.soprafs20.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -22,24 +29,38 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
-    UserController(UserService userService) {
+    UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/users")
-    @ResponseStatus(HttpStatus.OK)
     @ResponseBody
-    public List<UserGetDTO> getAllUsers() {
-        // fetch all users in the internal representation
-        List<User> users = userService.getUsers();
-        List<UserGetDTO> userGetDTOs = new ArrayList<>();
+    public ResponseEntity<List<UserGetDTO>> getAllUsers(@RequestParam(required = false) Long after,
+                                                        @RequestParam(required = false) UserStatus status,
+                                                        @RequestParam(required = false) Integer size) {
+        // without paging parameters all users are returned, read page by page
+        if (after == null && size == null){
+            return Keysets.all((afterId, pageSize) -> userService.getUserPage(afterId, status, pageSize),
+                    DTOMapper.INSTANCE::convertUserViewToUserGetDTO, UserView::getId);
+        }
+        long afterId = after == null ? 0 : after;
+        int pageSize = size == null ? Keysets.MAX_PAGE_SIZE : size;
+        Keysets.checkPage(afterId, pageSize);
+        // fetch one page of users, only the columns of the API representation are selected
+        Slice<UserView> users = userService.getUserPage(afterId, status, pageSize);
 
         // convert each user to the API representation
-        for (User user : users) {
-            userGetDTOs.add(DTOMapper.INSTANCE.convertEntityToUserGetDTO(user));
-        }
-        return userGetDTOs;
+        return Keysets.page(users, DTOMapper.INSTANCE::convertUserViewToUserGetDTO, UserView::getId);
+    }
+
+    @GetMapping(value = "/users/export", produces = Keysets.NDJSON)
+    @ResponseBody
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(required = false) UserStatus status) {
+        return Keysets.export((after, size) -> userService.getUserPage(after, status, size),
+                DTOMapper.INSTANCE::convertUserViewToUserGetDTO, UserView::getId, objectMapper);
     }
 
     @PostMapping("/users")
@@ -57,9 +78,13 @@ public class UserController {
     }
 
     @GetMapping("/users/{id}")
-    @ResponseStatus(HttpStatus.OK)
     @ResponseBody
-    public UserGetDTO getUserById(@PathVariable("id") Long id) {
+    public UserGetDTO getUserById(@PathVariable("id") Long id, WebRequest webRequest) {
+        //a client that already has this version gets 304 without loading the user
+        if (webRequest.checkNotModified(ETags.of(userService.getUserVersion(id)))){
+            return null;
+        }
+
         // get user
         User userById = userService.getUserById(id);
 
@@ -119,21 +144,15 @@ public class UserController {
         return DTOMapper.INSTANCE.convertEntityToUserGetDTO(userOutput);
     }
 
+    // the stats and the score of a user are no longer reported by its client, PUT /games/settle/{id} settles all users of a
+    // finished game from its history. Both endpoints answer 410, so an older client notices that its numbers are not counted
     @PutMapping("/users/gamestats/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    @ResponseBody
-    public UserGetDTO updateUserGameStats(@PathVariable("id") Long id, @RequestBody UserPutDTO userPutDTO) {
-        User userInput = DTOMapper.INSTANCE.convertUserPutDTOtoEntity(userPutDTO);
-        User userOutput = userService.updateUserGameStats(id, userInput);
-        return DTOMapper.INSTANCE.convertEntityToUserGetDTO(userOutput);
+    public void updateUserGameStats(@PathVariable("id") Long id) {
+        throw new PutRequestException410("The stats of a game are settled with PUT /games/settle/{id}!");
     }
 
     @PutMapping("/users/score/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    @ResponseBody
-    public UserGetDTO updateUserScore(@PathVariable("id") Long id, @RequestBody UserPutDTO userPutDTO) {
-        User userInput = DTOMapper.INSTANCE.convertUserPutDTOtoEntity(userPutDTO);
-        User userOutput = userService.updateUserScore(id, userInput);
-        return DTOMapper.INSTANCE.convertEntityToUserGetDTO(userOutput);
+    public void updateUserScore(@PathVariable("id") Long id) {
+        throw new PutRequestException410("The scores of a game are settled with PUT /games/settle/{id}!");
     }
 }
@@ -1,6 +1,10 @@
 package ch.uzh.ifi.seal.soprafs20.entity;
 
 import ch.uzh.ifi.seal.soprafs20.constant.UserStatus;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -11,13 +15,23 @@ import java.io.Serializable;
  * Every variable will be mapped into a database field with the @Column annotation
  * - nullable = false -> this cannot be left empty
  * - unique = true -> this value must be unique across the database -> composes the primary key
+ * The token and the username are looked up through the indexes of their unique constraints, the users of a status
+ * through the status index, which also orders them by id for the pages of GET /users.
+ * The users are kept in the second-level cache, by id and by username. Every change goes through the session,
+ * which updates the cached user when the transaction commits.
  */
 @Entity
-@Table(name = "USER")
+@Table(name = "USER", indexes = @Index(name = "user_status_index", columnList = "status, id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.USERNAME_CACHE_REGION)
 public class User implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    public static final String CACHE_REGION = "user";
+    public static final String USERNAME_CACHE_REGION = "userByUsername";
+
     @Id
     @GeneratedValue
     private Long id;
@@ -25,6 +39,7 @@ public class User implements Serializable {
     @Column(nullable = false)
     private String name;
 
+    @NaturalId(mutable = true)
     @Column(nullable = false, unique = true)
     private String username;
 
@@ -49,6 +64,9 @@ public class User implements Serializable {
     @Column(nullable = false)
     private int gamesPlayed;
 
+    @Column(nullable = false)
+    private long version;
+
     public Long getId() {
         return id;
     }
@@ -144,4 +162,18 @@ public class User implements Serializable {
     public void addGames(){
         this.gamesPlayed += 1;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    //increases the version by one, every change of the user gets its own version
+    public long nextVersion() {
+        version += 1;
+        return version;
+    }
 }
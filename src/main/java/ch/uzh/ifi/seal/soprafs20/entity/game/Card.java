@@ -12,25 +12,25 @@ public class Card implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "card_sequence")
+    @SequenceGenerator(name = "card_sequence", sequenceName = "card_sequence", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
     @Column(nullable = false)
     private int score;
 
+    //the words keep their position on the card, the users choose a word by its number
     @Column(nullable = false)
     @ElementCollection
+    @OrderColumn
     private List<String> mysteryWords = new ArrayList<>();
 
-    @OneToOne(mappedBy = "activeCard")
-    private Game game;
-
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name="gameBox_id", insertable = false, updatable = false)
     private GameBox gameBox;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name="deck_id", insertable = false, updatable = false)
     private Deck deck;
 
@@ -62,14 +62,6 @@ public class Card implements Serializable {
         this.mysteryWords = mysteryWords;
     }
 
-    public Game getGame() {
-        return game;
-    }
-
-    public void setGame(Game game){
-        this.game = game;
-    }
-
     public GameBox getGameBox() {
         return gameBox;
     }
@@ -25,6 +25,10 @@ public class Clue implements Serializable {
     @Column(nullable = false)
     private int time;
 
+    //the user that gave the clue, clues stored by an older version have none
+    @Column
+    private Long userId;
+
     @ManyToOne
     @JoinColumn(name="game_id", insertable = false, updatable = false)
     private Game game;
@@ -68,4 +72,12 @@ public class Clue implements Serializable {
     public void setTime(int time){
         this.time = time;
     }
+
+    public Long getUserId(){
+        return userId;
+    }
+
+    public void setUserId(Long userId){
+        this.userId = userId;
+    }
 }
@@ -13,7 +13,8 @@ public class Deck implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "deck_sequence")
+    @SequenceGenerator(name = "deck_sequence", sequenceName = "deck_sequence", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -25,9 +26,6 @@ public class Deck implements Serializable {
     @JoinColumn(name = "deck_id")
     private List<Card> cardList = new ArrayList<>();
 
-    @OneToOne(mappedBy = "deck")
-    private Game game;
-
 
     public Long getId() {
         return id;
@@ -78,12 +76,4 @@ public class Deck implements Serializable {
     public int deckSize(){
         return cardList.size();
     }
-
-    public Game getGame() {
-        return game;
-    }
-
-    public void setGame(Game game){
-        this.game = game;
-    }
 }
@@ -1,23 +1,46 @@
 package ch.uzh.ifi.seal.soprafs20.entity.game;
 
 import ch.uzh.ifi.seal.soprafs20.constant.ChosenWordStatus;
-import ch.uzh.ifi.seal.soprafs20.constant.ClueStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
 import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException404;
 
+import org.hibernate.annotations.SortNatural;
+
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The associations of a game are loaded lazily, every use case loads what it needs with one of the entity graphs:
+ * LOBBY_VIEW for the game itself, ROUND_VIEW for everything a client sees of the current turn and GUESS_VIEW for the guess.
+ * The deck, the game box and the correctly guessed pile are only loaded by the commands that move cards.
+ */
 @Entity
-@Table(name = "game")
+@Table(name = "game", indexes = @Index(name = "game_status_index", columnList = "status, id"))
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = Game.LOBBY_VIEW, attributeNodes = @NamedAttributeNode("seats")),
+        @NamedEntityGraph(name = Game.ROUND_VIEW,
+                attributeNodes = {@NamedAttributeNode("seats"), @NamedAttributeNode("guess"),
+                        @NamedAttributeNode(value = "activeCard", subgraph = "card")},
+                subgraphs = @NamedSubgraph(name = "card", attributeNodes = @NamedAttributeNode("mysteryWords"))),
+        @NamedEntityGraph(name = Game.GUESS_VIEW, attributeNodes = @NamedAttributeNode("guess"))
+})
 public class Game implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    public static final String LOBBY_VIEW = "Game.lobby";
+    public static final String ROUND_VIEW = "Game.round";
+    public static final String GUESS_VIEW = "Game.guess";
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "game_sequence")
+    @SequenceGenerator(name = "game_sequence", sequenceName = "game_sequence", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -27,13 +50,17 @@ public class Game implements Serializable {
     @Column(nullable = false)
     private GameStatus status;
 
+    //the default fills the column of games stored by an older version, they start in the lobby phase
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private GamePhase phase = GamePhase.LOBBY;
+
     @Column(nullable = false)
     private boolean normalMode;
 
     @Column(nullable = false)
     private boolean changeWord;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JoinColumn(name = "guess_id", referencedColumnName = "id")
     private Guess guess;
 
@@ -49,23 +76,23 @@ public class Game implements Serializable {
     @Column(nullable = false)
     private Long currentUserId;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "gameBox_id", referencedColumnName = "id")
     private GameBox gameBox;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "deck_id", referencedColumnName = "id")
     private Deck deck;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "correctlyGuessed_id", referencedColumnName = "id")
     private Deck correctlyGuessed;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "card_id", referencedColumnName = "id")
     private Card activeCard;
 
-    @OneToMany(cascade = CascadeType.ALL)
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "game_id")
     private List<Clue> clues = new ArrayList<>();
 
@@ -81,9 +108,25 @@ public class Game implements Serializable {
     @Column
     private int manualClueCounter;
 
-    @Column(nullable = false)
+    //the users by their seat, stored in the columns of the former ordered list and also indexed by user
+    @Column(name = "userIds", nullable = false)
+    @MapKeyColumn(name = "userIds_ORDER")
     @ElementCollection
-    private List<Long> userIds = new ArrayList<>();
+    @CollectionTable(name = "game_user_ids", joinColumns = @JoinColumn(name = "game_id"),
+            indexes = @Index(name = "game_user_ids_user_index", columnList = "userIds, game_id"))
+    @SortNatural
+    private SortedMap<Integer, Long> seats = new TreeMap<>();
+
+    //the seat of the current user, games stored before the column existed have seat 0 until the turn is passed
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private int currentSeat;
+
+    @Column(nullable = false)
+    private long version;
+
+    //set once the scores of the users are settled, the default fills the column of games stored by an older version
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean settled;
 
     public Long getId() {
         return id;
@@ -109,6 +152,14 @@ public class Game implements Serializable {
         this.status = status;
     }
 
+    public GamePhase getPhase() {
+        return phase;
+    }
+
+    public void setPhase(GamePhase phase) {
+        this.phase = phase;
+    }
+
     public boolean getNormalMode() {
         return normalMode;
     }
@@ -187,7 +238,6 @@ public class Game implements Serializable {
 
     public void setGameBox(GameBox gameBox) {
         this.gameBox = gameBox;
-        gameBox.setGame(this);
     }
 
     public void addCardToGameBox(Card card){
@@ -200,7 +250,6 @@ public class Game implements Serializable {
 
     public void setDeck(Deck deck) {
         this.deck = deck;
-        deck.setGame(this);
         updateDeckSizeFromDeck();
     }
 
@@ -216,7 +265,6 @@ public class Game implements Serializable {
 
     public void setCorrectlyGuessed(Deck correctlyGuessed) {
         this.correctlyGuessed = correctlyGuessed;
-        correctlyGuessed.setGame(this);
     }
 
     //add one card at the top off the correctly guessed pile
@@ -228,33 +276,62 @@ public class Game implements Serializable {
         return this.correctlyGuessed.getTopCard();
     }
 
+    //the users in the order of their seats
     public List<Long> getUserIds() {
-        return userIds;
+        return new ArrayList<>(seats.values());
     }
 
-    public void setUserIds(List<Long> userIds) {
-        this.userIds = userIds;
+    public SortedMap<Integer, Long> getSeats() {
+        return seats;
     }
 
-    //add one user to the user list
+    public int getUserCount() {
+        return seats.size();
+    }
+
+    //seat one user after the last taken seat
     public void addUserId(Long id){
-        this.userIds.add(id);
+        this.seats.put(seats.isEmpty() ? 0 : seats.lastKey() + 1, id);
     }
 
     public void removeUserId(Long id) {
-        this.userIds.remove(id);
+        this.seats.values().remove(id);
     }
 
-    public List<Clue> getClues() {
-        return clues;
+    public int getCurrentSeat() {
+        return currentSeat;
+    }
+
+    public void setCurrentSeat(int currentSeat) {
+        this.currentSeat = currentSeat;
+    }
+
+    //the next taken seat after the current one, the first seat follows the last one
+    public int getNextSeat() {
+        SortedMap<Integer, Long> following = seats.tailMap(getSeatOfCurrentUser() + 1);
+        return following.isEmpty() ? seats.firstKey() : following.firstKey();
     }
 
-    public void setClueToInvalid(String name) {
-        for(Clue clue : clues){
-            if (name.equals(clue.getClueWord())){
-                clue.setValid(ClueStatus.INVALID);
+    //the stored seat, or the seat of the current user if a game stored before the column existed has another user there
+    private int getSeatOfCurrentUser() {
+        if (currentUserId != null && !currentUserId.equals(seats.get(currentSeat))){
+            for (Map.Entry<Integer, Long> seat : seats.entrySet()){
+                if (currentUserId.equals(seat.getValue())){
+                    return seat.getKey();
+                }
             }
         }
+        return currentSeat;
+    }
+
+    //passes the turn to the user on the next taken seat
+    public void passTurn() {
+        this.currentSeat = getNextSeat();
+        this.currentUserId = seats.get(currentSeat);
+    }
+
+    public List<Clue> getClues() {
+        return clues;
     }
 
     public void setClues(List<Clue> clues) {
@@ -267,6 +344,11 @@ public class Game implements Serializable {
 
     }
 
+    //removes all clues of this game, orphan removal deletes only the rows of this game
+    public void clearClues(){
+        this.clues.clear();
+    }
+
     //add one clue to the clue list
     public void addClue(Clue clue){
         this.clues.add(clue);
@@ -280,17 +362,17 @@ public class Game implements Serializable {
         return activeCard;
     }
 
+    public boolean hasActiveCard() {
+        return activeCard != null;
+    }
+
     public void setActiveCard(Card activeCard) {
         this.activeCard = activeCard;
-        if (activeCard != null){
-            activeCard.setGame(this);
-        }
     }
 
     //get's the top card from the deck and sets it as the active card
     public void setActiveCardFromDeck(){
         this.setActiveCard(this.deck.getTopCard());
-        activeCard.setGame(this);
         updateDeckSizeFromDeck();
     }
 
@@ -322,10 +404,6 @@ public class Game implements Serializable {
         this.chosenWordCounter = wordCounter;
     }
 
-    public void addWordCounter(){
-        chosenWordCounter += 1;
-    }
-
     public int getClueCounter(){
         return manualClueCounter;
     }
@@ -334,7 +412,25 @@ public class Game implements Serializable {
         this.manualClueCounter = manualClueCounter;
     }
 
-    public void addManualClueCounter(){
-        manualClueCounter += 1;
+    public boolean getSettled() {
+        return settled;
+    }
+
+    public void setSettled(boolean settled) {
+        this.settled = settled;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    //increases the version by one, every change of the game gets its own version
+    public long nextVersion() {
+        version += 1;
+        return version;
     }
 }
@@ -0,0 +1,134 @@
+package ch.uzh.ifi.seal.soprafs20.entity.game;
+
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Internal GameArchive Representation
+ * What is kept of a finished game once its live rows are deleted: the final state of the game and the result of
+ * every round, both as JSON, and the users of the game, indexed so the archived games of a user can be found.
+ * An archive is written once and never changed.
+ */
+@Entity
+@Table(name = "gameArchive")
+public class GameArchive implements Persistable<Long>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //the id of the game
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(nullable = false)
+    private String token;
+
+    @Column(nullable = false)
+    private int score;
+
+    @Column(nullable = false)
+    private int round;
+
+    @ElementCollection
+    @CollectionTable(name = "game_archive_user_ids", joinColumns = @JoinColumn(name = "game_archive_id"),
+            indexes = @Index(name = "game_archive_user_ids_user_index", columnList = "userIds, game_archive_id"))
+    @OrderColumn
+    private List<Long> userIds = new ArrayList<>();
+
+    //the GameState of the game when it was finished
+    @Lob
+    @Column(nullable = false)
+    private String state;
+
+    //the RoundResults of the game in the order they were played
+    @Lob
+    @Column(nullable = false)
+    private String rounds;
+
+    //the id is the one of the game, the archive is inserted without looking for it first
+    @Transient
+    private boolean isNew = true;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    public void setRound(int round) {
+        this.round = round;
+    }
+
+    public List<Long> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(List<Long> userIds) {
+        this.userIds = userIds;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getRounds() {
+        return rounds;
+    }
+
+    public void setRounds(String rounds) {
+        this.rounds = rounds;
+    }
+}
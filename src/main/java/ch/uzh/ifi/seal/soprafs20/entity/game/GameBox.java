@@ -12,13 +12,11 @@ public class GameBox implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "gameBox_sequence")
+    @SequenceGenerator(name = "gameBox_sequence", sequenceName = "gameBox_sequence", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
-    @OneToOne(mappedBy = "gameBox")
-    private Game game;
-
     @OneToMany(cascade = CascadeType.ALL)
     @JoinColumn(name = "gameBox_id")
     private List<Card> cardList = new ArrayList<>();
@@ -31,14 +29,6 @@ public class GameBox implements Serializable {
         this.id = id;
     }
 
-    public Game getGame() {
-        return game;
-    }
-
-    public void setGame(Game game){
-        this.game = game;
-    }
-
     public void addCard(Card card){
         cardList.add(card);
         card.setGameBox(this);
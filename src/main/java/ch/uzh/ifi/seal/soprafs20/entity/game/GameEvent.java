@@ -0,0 +1,78 @@
+package ch.uzh.ifi.seal.soprafs20.entity.game;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GameEventType;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Internal GameEvent Representation
+ * Every change of a game is appended as one event to this table and never updated afterwards.
+ * The payload contains the changed values as JSON, the version is the version of the game after the change.
+ */
+@Entity
+@Table(name = "gameEvent", uniqueConstraints = @UniqueConstraint(columnNames = {"gameId", "version"}))
+public class GameEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "gameEvent_sequence")
+    @SequenceGenerator(name = "gameEvent_sequence", sequenceName = "gameEvent_sequence", allocationSize = 50)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(nullable = false, updatable = false)
+    private Long gameId;
+
+    @Column(nullable = false, updatable = false)
+    private long version;
+
+    @Column(nullable = false, updatable = false)
+    private GameEventType type;
+
+    //a clue check can list any number of clues, so the payload has no length limit
+    @Lob
+    @Column(nullable = false, updatable = false)
+    private String payload;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public GameEventType getType() {
+        return type;
+    }
+
+    public void setType(GameEventType type) {
+        this.type = type;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+}
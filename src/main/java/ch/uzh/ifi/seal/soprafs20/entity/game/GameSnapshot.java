@@ -0,0 +1,64 @@
+package ch.uzh.ifi.seal.soprafs20.entity.game;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Internal GameSnapshot Representation
+ * Contains the complete state of a game at a given version as JSON, so a replay only has to apply
+ * the events after the latest snapshot.
+ */
+@Entity
+@Table(name = "gameSnapshot", uniqueConstraints = @UniqueConstraint(columnNames = {"gameId", "version"}))
+public class GameSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "gameSnapshot_sequence")
+    @SequenceGenerator(name = "gameSnapshot_sequence", sequenceName = "gameSnapshot_sequence", allocationSize = 50)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(nullable = false, updatable = false)
+    private Long gameId;
+
+    @Column(nullable = false, updatable = false)
+    private long version;
+
+    @Lob
+    @Column(nullable = false, updatable = false)
+    private String state;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,238 @@
+package ch.uzh.ifi.seal.soprafs20.entity.game;
+
+import ch.uzh.ifi.seal.soprafs20.constant.ChosenWordStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Internal GameSummary Representation
+ * One row per game with exactly the values GET /games and GET /games/{id} return, the user ids included.
+ * It is written from the changes of the game and never read by the commands, so reading a summary
+ * does not touch the tables of the game.
+ */
+@Entity
+@Table(name = "gameSummary", indexes = @Index(name = "game_summary_status_index", columnList = "status, id"))
+public class GameSummary implements Persistable<Long>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //the id of the game
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(nullable = false)
+    private String token;
+
+    @Column(nullable = false)
+    private GameStatus status;
+
+    @Column(nullable = false)
+    private GamePhase phase;
+
+    @Column(nullable = false)
+    private boolean normalMode;
+
+    @Column(nullable = false)
+    private boolean changeWord;
+
+    @Column(nullable = false)
+    private int score;
+
+    @Column(nullable = false)
+    private int round;
+
+    @Column(nullable = false)
+    private int deckSize;
+
+    @Column
+    private String chosenWord;
+
+    @Column
+    private ChosenWordStatus wordStatus;
+
+    @Column(nullable = false)
+    private Long currentUserId;
+
+    //kept in the row of the game, a summary is read without a second table, a game has no limit of users
+    @Lob
+    @Column(nullable = false)
+    @Convert(converter = UserIdsConverter.class)
+    private List<Long> userIds = new ArrayList<>();
+
+    //the id is the one of the game, a new summary is inserted without looking for it first
+    @Transient
+    private boolean isNew = true;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    //copies the values of the given state of the game
+    public void update(GameState state) {
+        id = state.getId();
+        version = state.getVersion();
+        token = state.getToken();
+        status = state.getStatus();
+        phase = state.getPhase();
+        normalMode = state.getNormalMode();
+        changeWord = state.getChangeWord();
+        score = state.getScore();
+        round = state.getRound();
+        deckSize = state.getDeckSize();
+        chosenWord = state.getChosenWord();
+        wordStatus = state.getWordStatus();
+        currentUserId = state.getCurrentUserId();
+        userIds = new ArrayList<>(state.getUserIds());
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(GameStatus status) {
+        this.status = status;
+    }
+
+    public GamePhase getPhase() {
+        return phase;
+    }
+
+    public void setPhase(GamePhase phase) {
+        this.phase = phase;
+    }
+
+    public boolean getNormalMode() {
+        return normalMode;
+    }
+
+    public void setNormalMode(boolean normalMode) {
+        this.normalMode = normalMode;
+    }
+
+    public boolean getChangeWord() {
+        return changeWord;
+    }
+
+    public void setChangeWord(boolean changeWord) {
+        this.changeWord = changeWord;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    public void setRound(int round) {
+        this.round = round;
+    }
+
+    public int getDeckSize() {
+        return deckSize;
+    }
+
+    public void setDeckSize(int deckSize) {
+        this.deckSize = deckSize;
+    }
+
+    public String getChosenWord() {
+        return chosenWord;
+    }
+
+    public void setChosenWord(String chosenWord) {
+        this.chosenWord = chosenWord;
+    }
+
+    public ChosenWordStatus getWordStatus() {
+        return wordStatus;
+    }
+
+    public void setWordStatus(ChosenWordStatus wordStatus) {
+        this.wordStatus = wordStatus;
+    }
+
+    public Long getCurrentUserId() {
+        return currentUserId;
+    }
+
+    public void setCurrentUserId(Long currentUserId) {
+        this.currentUserId = currentUserId;
+    }
+
+    public List<Long> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(List<Long> userIds) {
+        this.userIds = userIds;
+    }
+
+    //stores the user ids in their order as one comma separated column
+    @Converter
+    public static class UserIdsConverter implements AttributeConverter<List<Long>, String> {
+
+        @Override
+        public String convertToDatabaseColumn(List<Long> userIds) {
+            return userIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        }
+
+        @Override
+        public List<Long> convertToEntityAttribute(String column) {
+            if (column == null || column.isEmpty()){
+                return new ArrayList<>();
+            }
+            return Arrays.stream(column.split(",")).map(Long::valueOf).collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+}
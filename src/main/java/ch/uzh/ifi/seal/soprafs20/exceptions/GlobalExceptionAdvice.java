@@ -2,6 +2,7 @@ package ch.uzh.ifi.seal.soprafs20.exceptions;
 
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.*;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.post.PostException;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.post.PostRequestException400;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.post.PostRequestException403;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.post.PostRequestException409;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.put.*;
@@ -54,6 +55,13 @@ public class GlobalExceptionAdvice extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    @ExceptionHandler(value = PostRequestException400.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<Object> handlePostException400(PostRequestException400 ex){
+        PostException postException = new PostException(ex.getMessage(), HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(postException.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(value = PostRequestException403.class)
     @ResponseStatus(HttpStatus.FORBIDDEN)
     public ResponseEntity<Object> handlePostException403(PostRequestException403 ex){
@@ -110,6 +118,13 @@ public class GlobalExceptionAdvice extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(putException.getMessage(), HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(value = PutRequestException410.class)
+    @ResponseStatus(HttpStatus.GONE)
+    public ResponseEntity<Object> handlePutException410(PutRequestException410 ex){
+        PutException putException = new PutException(ex.getMessage(), HttpStatus.GONE);
+        return new ResponseEntity<>(putException.getMessage(), HttpStatus.GONE);
+    }
+
     @ExceptionHandler(value = GetRequestException400.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<Object> handleGetException400(GetRequestException400 ex) {
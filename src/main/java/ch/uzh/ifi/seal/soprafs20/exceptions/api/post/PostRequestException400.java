@@ -0,0 +1,14 @@
+package ch.uzh.ifi.seal.soprafs20.exceptions.api.post;
+
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.ApiRequestException;
+
+public class PostRequestException400 extends ApiRequestException {
+
+    public PostRequestException400(String message){
+        super(message);
+    }
+
+    public PostRequestException400(String message, Throwable cause){
+        super(message, cause);
+    }
+}
@@ -0,0 +1,14 @@
+package ch.uzh.ifi.seal.soprafs20.exceptions.api.put;
+
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.ApiRequestException;
+
+public class PutRequestException410 extends ApiRequestException {
+
+    public PutRequestException410(String message){
+        super(message);
+    }
+
+    public PutRequestException410(String message, Throwable cause){
+        super(message, cause);
+    }
+}
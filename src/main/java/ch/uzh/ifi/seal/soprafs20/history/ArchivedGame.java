@@ -0,0 +1,27 @@
+package ch.uzh.ifi.seal.soprafs20.history;
+
+import java.util.List;
+
+/**
+ * ArchivedGame
+ * A finished game as it is read from its archive: the state of the game when it was finished and the result of
+ * every round in the order they were played.
+ */
+public class ArchivedGame {
+
+    private final GameState state;
+    private final List<RoundResult> rounds;
+
+    public ArchivedGame(GameState state, List<RoundResult> rounds) {
+        this.state = state;
+        this.rounds = rounds;
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    public List<RoundResult> getRounds() {
+        return rounds;
+    }
+}
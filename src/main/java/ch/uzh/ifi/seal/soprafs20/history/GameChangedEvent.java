@@ -0,0 +1,39 @@
+package ch.uzh.ifi.seal.soprafs20.history;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GameEventType;
+
+/**
+ * GameChangedEvent
+ * Published inside the transaction of every change of a game, it carries the state of the game after the change.
+ * Listeners that push the change to clients only receive it after the transaction committed.
+ */
+public class GameChangedEvent {
+
+    private final Long gameId;
+    private final long version;
+    private final GameEventType type;
+    private final GameState state;
+
+    public GameChangedEvent(Long gameId, long version, GameEventType type, GameState state) {
+        this.gameId = gameId;
+        this.version = version;
+        this.type = type;
+        this.state = state;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public GameEventType getType() {
+        return type;
+    }
+
+    public GameState getState() {
+        return state;
+    }
+}
@@ -0,0 +1,27 @@
+package ch.uzh.ifi.seal.soprafs20.history;
+
+import java.util.List;
+
+/**
+ * GameResult
+ * The outcome of a finished game as it is replayed from its history: the users that were in the game when it was
+ * finished and the result of every round in the order they were played.
+ */
+public class GameResult {
+
+    private final List<Long> userIds;
+    private final List<RoundResult> rounds;
+
+    public GameResult(List<Long> userIds, List<RoundResult> rounds) {
+        this.userIds = userIds;
+        this.rounds = rounds;
+    }
+
+    public List<Long> getUserIds() {
+        return userIds;
+    }
+
+    public List<RoundResult> getRounds() {
+        return rounds;
+    }
+}
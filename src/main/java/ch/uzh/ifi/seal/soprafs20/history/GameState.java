@@ -0,0 +1,338 @@
+package ch.uzh.ifi.seal.soprafs20.history;
+
+import ch.uzh.ifi.seal.soprafs20.constant.ChosenWordStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.ClueStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GuessStatus;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Clue;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GameState
+ * Compact, detached copy of everything a client can see of a game at one version.
+ * It is stored as JSON in the snapshots and rebuilt from the events when a game is replayed.
+ */
+public class GameState {
+
+    private Long id;
+
+    private long version;
+
+    private String token;
+
+    private GameStatus status;
+
+    private GamePhase phase;
+
+    private boolean normalMode;
+
+    private boolean changeWord;
+
+    private int score;
+
+    private int round;
+
+    private int deckSize;
+
+    private Long currentUserId;
+
+    private List<Long> userIds = new ArrayList<>();
+
+    private List<String> activeCardWords;
+
+    private String chosenWord;
+
+    private ChosenWordStatus wordStatus;
+
+    private int chosenWordCounter;
+
+    private int manualClueCounter;
+
+    private List<ClueState> clues = new ArrayList<>();
+
+    private String guessWord;
+
+    private GuessStatus guessStatus;
+
+    private int guessTime;
+
+    //copies the current state of the given game
+    public static GameState of(Game game) {
+        GameState state = new GameState();
+        state.setId(game.getId());
+        state.setVersion(game.getVersion());
+        state.setToken(game.getToken());
+        state.setStatus(game.getStatus());
+        state.setPhase(game.getPhase());
+        state.setNormalMode(game.getNormalMode());
+        state.setChangeWord(game.getChangeWord());
+        state.setScore(game.getScore());
+        state.setRound(game.getRound());
+        state.setDeckSize(game.getDeckSize());
+        state.setCurrentUserId(game.getCurrentUserId());
+        state.setUserIds(new ArrayList<>(game.getUserIds()));
+        if (game.hasActiveCard()){
+            state.setActiveCardWords(new ArrayList<>(game.getActiveCard().getMysteryWords()));
+        }
+        state.setChosenWord(game.getChosenWord());
+        state.setWordStatus(game.getWordStatus());
+        state.setChosenWordCounter(game.getChosenWordCounter());
+        state.setManualClueCounter(game.getClueCounter());
+        for (Clue clue : game.getClues()){
+            state.getClues().add(new ClueState(clue.getClueWord(), clue.getValid(), clue.getTime(), clue.getUserId()));
+        }
+        if (game.getGuess() != null){
+            state.setGuessWord(game.getGuess().getGuessWord());
+            state.setGuessStatus(game.getGuess().getGuessStatus());
+            state.setGuessTime(game.getGuess().getTime());
+        }
+        return state;
+    }
+
+    //same reset as the one the game service does at the end of a turn
+    public void resetRound() {
+        activeCardWords = null;
+        chosenWord = null;
+        wordStatus = ChosenWordStatus.NOCHOSENWORD;
+        chosenWordCounter = 0;
+        manualClueCounter = 0;
+        clues = new ArrayList<>();
+        changeWord = true;
+        guessWord = null;
+        guessStatus = null;
+        guessTime = 0;
+    }
+
+    public void setClueToInvalid(String clueWord) {
+        for (ClueState clue : clues){
+            if (clueWord.equals(clue.getClueWord())){
+                clue.setValid(ClueStatus.INVALID);
+            }
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(GameStatus status) {
+        this.status = status;
+    }
+
+    public GamePhase getPhase() {
+        return phase;
+    }
+
+    public void setPhase(GamePhase phase) {
+        this.phase = phase;
+    }
+
+    public boolean getNormalMode() {
+        return normalMode;
+    }
+
+    public void setNormalMode(boolean normalMode) {
+        this.normalMode = normalMode;
+    }
+
+    public boolean getChangeWord() {
+        return changeWord;
+    }
+
+    public void setChangeWord(boolean changeWord) {
+        this.changeWord = changeWord;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    public void setRound(int round) {
+        this.round = round;
+    }
+
+    public int getDeckSize() {
+        return deckSize;
+    }
+
+    public void setDeckSize(int deckSize) {
+        this.deckSize = deckSize;
+    }
+
+    public Long getCurrentUserId() {
+        return currentUserId;
+    }
+
+    public void setCurrentUserId(Long currentUserId) {
+        this.currentUserId = currentUserId;
+    }
+
+    public List<Long> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(List<Long> userIds) {
+        this.userIds = userIds;
+    }
+
+    public List<String> getActiveCardWords() {
+        return activeCardWords;
+    }
+
+    public void setActiveCardWords(List<String> activeCardWords) {
+        this.activeCardWords = activeCardWords;
+    }
+
+    public String getChosenWord() {
+        return chosenWord;
+    }
+
+    public void setChosenWord(String chosenWord) {
+        this.chosenWord = chosenWord;
+    }
+
+    public ChosenWordStatus getWordStatus() {
+        return wordStatus;
+    }
+
+    public void setWordStatus(ChosenWordStatus wordStatus) {
+        this.wordStatus = wordStatus;
+    }
+
+    public int getChosenWordCounter() {
+        return chosenWordCounter;
+    }
+
+    public void setChosenWordCounter(int chosenWordCounter) {
+        this.chosenWordCounter = chosenWordCounter;
+    }
+
+    public int getManualClueCounter() {
+        return manualClueCounter;
+    }
+
+    public void setManualClueCounter(int manualClueCounter) {
+        this.manualClueCounter = manualClueCounter;
+    }
+
+    public List<ClueState> getClues() {
+        return clues;
+    }
+
+    public void setClues(List<ClueState> clues) {
+        this.clues = clues;
+    }
+
+    public String getGuessWord() {
+        return guessWord;
+    }
+
+    public void setGuessWord(String guessWord) {
+        this.guessWord = guessWord;
+    }
+
+    public GuessStatus getGuessStatus() {
+        return guessStatus;
+    }
+
+    public void setGuessStatus(GuessStatus guessStatus) {
+        this.guessStatus = guessStatus;
+    }
+
+    public int getGuessTime() {
+        return guessTime;
+    }
+
+    public void setGuessTime(int guessTime) {
+        this.guessTime = guessTime;
+    }
+
+    public static class ClueState {
+
+        private String clueWord;
+
+        private ClueStatus valid;
+
+        private int time;
+
+        private Long userId;
+
+        public ClueState() {
+        }
+
+        public ClueState(String clueWord, ClueStatus valid, int time, Long userId) {
+            this.clueWord = clueWord;
+            this.valid = valid;
+            this.time = time;
+            this.userId = userId;
+        }
+
+        public String getClueWord() {
+            return clueWord;
+        }
+
+        public void setClueWord(String clueWord) {
+            this.clueWord = clueWord;
+        }
+
+        public ClueStatus getValid() {
+            return valid;
+        }
+
+        public void setValid(ClueStatus valid) {
+            this.valid = valid;
+        }
+
+        public int getTime() {
+            return time;
+        }
+
+        public void setTime(int time) {
+            this.time = time;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public void setUserId(Long userId) {
+            this.userId = userId;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ch.uzh.ifi.seal.soprafs20.history;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+
+/**
+ * JsonPatch
+ * Computes the RFC 6902 patch (add, remove and replace operations) that turns one JSON document into another.
+ * Objects are compared field by field, arrays that only grew or shrank at the end are patched element by element
+ * and every other changed array is replaced as a whole, which keeps the patches of the game views small.
+ */
+public final class JsonPatch {
+
+    public static final String MEDIA_TYPE = "application/json-patch+json";
+
+    private JsonPatch() {
+    }
+
+    public static ArrayNode diff(JsonNode source, JsonNode target) {
+        ArrayNode patch = JsonNodeFactory.instance.arrayNode();
+        diff(patch, "", source, target);
+        return patch;
+    }
+
+    private static void diff(ArrayNode patch, String path, JsonNode source, JsonNode target) {
+        if (source.equals(target)){
+            return;
+        }
+        if (source.isObject() && target.isObject()){
+            diffObjects(patch, path, source, target);
+        }
+        else if (source.isArray() && target.isArray()){
+            diffArrays(patch, path, source, target);
+        }
+        else {
+            add(patch, "replace", path, target);
+        }
+    }
+
+    private static void diffObjects(ArrayNode patch, String path, JsonNode source, JsonNode target) {
+        Iterator<String> sourceFields = source.fieldNames();
+        while (sourceFields.hasNext()){
+            String field = sourceFields.next();
+            if (!target.has(field)){
+                remove(patch, path + "/" + escape(field));
+            }
+        }
+        Iterator<String> targetFields = target.fieldNames();
+        while (targetFields.hasNext()){
+            String field = targetFields.next();
+            String fieldPath = path + "/" + escape(field);
+            if (source.has(field)){
+                diff(patch, fieldPath, source.get(field), target.get(field));
+            }
+            else {
+                add(patch, "add", fieldPath, target.get(field));
+            }
+        }
+    }
+
+    private static void diffArrays(ArrayNode patch, String path, JsonNode source, JsonNode target) {
+        int common = Math.min(source.size(), target.size());
+        for (int i = 0; i < common; i++) {
+            if (!source.get(i).equals(target.get(i))){
+                add(patch, "replace", path, target);
+                return;
+            }
+        }
+        //removed from the end first, so the indexes of the remaining elements stay valid
+        for (int i = source.size() - 1; i >= common; i--) {
+            remove(patch, path + "/" + i);
+        }
+        for (int i = common; i < target.size(); i++) {
+            add(patch, "add", path + "/-", target.get(i));
+        }
+    }
+
+    private static void add(ArrayNode patch, String op, String path, JsonNode value) {
+        ObjectNode operation = patch.addObject();
+        operation.put("op", op);
+        operation.put("path", path);
+        operation.set("value", value);
+    }
+
+    private static void remove(ArrayNode patch, String path) {
+        ObjectNode operation = patch.addObject();
+        operation.put("op", "remove");
+        operation.put("path", path);
+    }
+
+    //RFC 6901 escaping of a single reference token
+    private static String escape(String field) {
+        return field.replace("~", "~0").replace("/", "~1");
+    }
+}
@@ -0,0 +1,123 @@
+package ch.uzh.ifi.seal.soprafs20.history;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GuessStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RoundResult
+ * How one round of a game ended: the words of the card, the chosen word, the clues, the guess with the user that
+ * made it and the score of the game after the round. It is taken from the replayed state when the guess of the round is made or skipped.
+ */
+public class RoundResult {
+
+    private int round;
+
+    private List<String> cardWords;
+
+    private String chosenWord;
+
+    private List<GameState.ClueState> clues = new ArrayList<>();
+
+    private Long guesserId;
+
+    private String guessWord;
+
+    private GuessStatus guessStatus;
+
+    private int guessTime;
+
+    private int score;
+
+    //copies the round of the given state, the state must be the one right after the guess
+    public static RoundResult of(GameState state) {
+        RoundResult result = new RoundResult();
+        result.setRound(state.getRound());
+        if (state.getActiveCardWords() != null){
+            result.setCardWords(new ArrayList<>(state.getActiveCardWords()));
+        }
+        result.setChosenWord(state.getChosenWord());
+        for (GameState.ClueState clue : state.getClues()){
+            result.getClues().add(new GameState.ClueState(clue.getClueWord(), clue.getValid(), clue.getTime(), clue.getUserId()));
+        }
+        result.setGuesserId(state.getCurrentUserId());
+        result.setGuessWord(state.getGuessWord());
+        result.setGuessStatus(state.getGuessStatus());
+        result.setGuessTime(state.getGuessTime());
+        result.setScore(state.getScore());
+        return result;
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    public void setRound(int round) {
+        this.round = round;
+    }
+
+    public List<String> getCardWords() {
+        return cardWords;
+    }
+
+    public void setCardWords(List<String> cardWords) {
+        this.cardWords = cardWords;
+    }
+
+    public String getChosenWord() {
+        return chosenWord;
+    }
+
+    public void setChosenWord(String chosenWord) {
+        this.chosenWord = chosenWord;
+    }
+
+    public List<GameState.ClueState> getClues() {
+        return clues;
+    }
+
+    public void setClues(List<GameState.ClueState> clues) {
+        this.clues = clues;
+    }
+
+    public Long getGuesserId() {
+        return guesserId;
+    }
+
+    public void setGuesserId(Long guesserId) {
+        this.guesserId = guesserId;
+    }
+
+    public String getGuessWord() {
+        return guessWord;
+    }
+
+    public void setGuessWord(String guessWord) {
+        this.guessWord = guessWord;
+    }
+
+    public GuessStatus getGuessStatus() {
+        return guessStatus;
+    }
+
+    public void setGuessStatus(GuessStatus guessStatus) {
+        this.guessStatus = guessStatus;
+    }
+
+    public int getGuessTime() {
+        return guessTime;
+    }
+
+    public void setGuessTime(int guessTime) {
+        this.guessTime = guessTime;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+}
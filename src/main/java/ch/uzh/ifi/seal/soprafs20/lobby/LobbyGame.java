@@ -0,0 +1,36 @@
+package ch.uzh.ifi.seal.soprafs20.lobby;
+
+/**
+ * LobbyGame
+ * The few values of a joinable game the lobby shows, without the user ids or anything of a turn.
+ */
+public class LobbyGame {
+
+    private final Long id;
+    private final long version;
+    private final Long currentUserId;
+    private final int userCount;
+
+    public LobbyGame(Long id, long version, Long currentUserId, long userCount) {
+        this.id = id;
+        this.version = version;
+        this.currentUserId = currentUserId;
+        this.userCount = (int) userCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Long getCurrentUserId() {
+        return currentUserId;
+    }
+
+    public int getUserCount() {
+        return userCount;
+    }
+}
@@ -2,11 +2,27 @@ package ch.uzh.ifi.seal.soprafs20.repository;
 
 import ch.uzh.ifi.seal.soprafs20.entity.game.Card;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository("cardRepository")
 public interface CardRepository extends JpaRepository<Card, Long> {
     Optional<Card> findById(Long id);
+
+    //the cards of a game are in its decks or its game box, only the active card can be in neither
+    @Modifying
+    @Query(value = "delete from card_mystery_words where card_id in (select c.id from card c " +
+            "where c.deck_id in :deckIds or c.game_box_id = :gameBoxId or c.id = :activeCardId)", nativeQuery = true)
+    int deleteWordsOfCards(@Param("deckIds") Collection<Long> deckIds, @Param("gameBoxId") Long gameBoxId,
+                           @Param("activeCardId") Long activeCardId);
+
+    @Modifying
+    @Query("delete from Card c where c.deck.id in :deckIds or c.gameBox.id = :gameBoxId or c.id = :activeCardId")
+    int deleteCards(@Param("deckIds") Collection<Long> deckIds, @Param("gameBoxId") Long gameBoxId,
+                    @Param("activeCardId") Long activeCardId);
 }
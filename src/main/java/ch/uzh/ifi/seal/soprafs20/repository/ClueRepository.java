@@ -1,12 +1,25 @@
 package ch.uzh.ifi.seal.soprafs20.repository;
 
+import ch.uzh.ifi.seal.soprafs20.constant.ClueStatus;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Clue;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository("clueRepository")
 public interface ClueRepository extends JpaRepository<Clue, Long> {
     Optional<Clue> findById(Long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Clue c set c.valid = :valid where c.game.id = :gameId and c.clueWord in :clueWords")
+    int updateValidOfClues(@Param("gameId") Long gameId, @Param("clueWords") Collection<String> clueWords, @Param("valid") ClueStatus valid);
+
+    @Modifying
+    @Query("delete from Clue c where c.game.id = :gameId")
+    int deleteByGameId(@Param("gameId") Long gameId);
 }
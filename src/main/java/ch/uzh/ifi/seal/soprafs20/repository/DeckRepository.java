@@ -2,11 +2,19 @@ package ch.uzh.ifi.seal.soprafs20.repository;
 
 import ch.uzh.ifi.seal.soprafs20.entity.game.Deck;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository("deckRepository")
 public interface DeckRepository extends JpaRepository<Deck, Long> {
     Optional<Deck> findById(Long id);
+
+    @Modifying
+    @Query("delete from Deck d where d.id in :ids")
+    int deleteDecksById(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,16 @@
+package ch.uzh.ifi.seal.soprafs20.repository;
+
+import ch.uzh.ifi.seal.soprafs20.entity.game.GameArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository("gameArchiveRepository")
+public interface GameArchiveRepository extends JpaRepository<GameArchive, Long> {
+    //the archived games a user has played, found through the index of the archived users
+    @Query("select a from GameArchive a where a.id in (select b.id from GameArchive b join b.userIds u where u = :userId) order by a.id")
+    List<GameArchive> findByUserId(@Param("userId") Long userId);
+}
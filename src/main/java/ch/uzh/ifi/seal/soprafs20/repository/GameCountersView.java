@@ -0,0 +1,27 @@
+package ch.uzh.ifi.seal.soprafs20.repository;
+
+import ch.uzh.ifi.seal.soprafs20.constant.ChosenWordStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
+
+/**
+ * GameCountersView
+ * The columns of a game that the votes on the chosen word and the checks of the clues read after they counted
+ * themselves with an update. A query that returns this projection selects only these columns and the number of users
+ * and does not load the game as entity.
+ */
+public interface GameCountersView {
+
+    long getVersion();
+
+    GamePhase getPhase();
+
+    boolean getChangeWord();
+
+    ChosenWordStatus getWordStatus();
+
+    int getChosenWordCounter();
+
+    int getManualClueCounter();
+
+    int getUserCount();
+}
@@ -0,0 +1,13 @@
+package ch.uzh.ifi.seal.soprafs20.repository;
+
+import ch.uzh.ifi.seal.soprafs20.entity.game.GameEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository("gameEventRepository")
+public interface GameEventRepository extends JpaRepository<GameEvent, Long> {
+    List<GameEvent> findByGameIdAndVersionBetweenOrderByVersionAsc(Long gameId, long fromVersion, long toVersion);
+    GameEvent findFirstByGameIdOrderByVersionDesc(Long gameId);
+}
@@ -1,12 +1,109 @@
 package ch.uzh.ifi.seal.soprafs20.repository;
 
+import ch.uzh.ifi.seal.soprafs20.constant.ChosenWordStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.lobby.LobbyGame;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+
+import java.util.List;
 import java.util.Optional;
 
 @Repository("gameRepository")
 public interface GameRepository extends JpaRepository<Game, Long> {
     Optional<Game> findById(Long id);
+
+    //the lists and the commands read the users of every game, they are loaded with the games instead of one select per game
+    @Override
+    @EntityGraph(Game.LOBBY_VIEW)
+    List<Game> findAll();
+
+    @EntityGraph(Game.LOBBY_VIEW)
+    Optional<Game> findWithUsersById(Long id);
+
+    //everything a client sees of the current turn except the clues, those are a second list and loaded on their own
+    @EntityGraph(Game.ROUND_VIEW)
+    Optional<Game> findRoundById(Long id);
+
+    @EntityGraph(Game.GUESS_VIEW)
+    Optional<Game> findWithGuessById(Long id);
+
+    //locks the row of the game until the end of the transaction, the archive and a user leaving the game wait for each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select g from Game g where g.id = :id")
+    Optional<Game> findLockedById(@Param("id") Long id);
+
+    //only reads the version, used to answer conditional requests without loading the game
+    @Query("select g.version from Game g where g.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    //only reads the counters of the vote and the clue check, used after the update that counted the vote or check
+    @Query("select g.version as version, g.phase as phase, g.changeWord as changeWord, g.wordStatus as wordStatus, " +
+            "g.chosenWordCounter as chosenWordCounter, g.manualClueCounter as manualClueCounter, size(g.seats) as userCount " +
+            "from Game g where g.id = :id")
+    Optional<GameCountersView> findCountersById(@Param("id") Long id);
+
+    //only reads the values the lobby shows, used once to fill the lobby index
+    @Query("select new ch.uzh.ifi.seal.soprafs20.lobby.LobbyGame(g.id, g.version, g.currentUserId, count(u)) " +
+            "from Game g left join g.seats u where g.status = :status group by g.id, g.version, g.currentUserId")
+    List<LobbyGame> findLobbyGames(@Param("status") GameStatus status);
+
+    //games that have no summary yet, only found after a database of an older version was opened
+    @Query("select g from Game g where g.id not in (select s.id from GameSummary s)")
+    List<Game> findGamesWithoutSummary();
+
+    //the ids of the finished games whose scores are settled, the games that can be archived, read from the status index
+    @Query("select g.id from Game g where g.status = :finished and g.settled = true order by g.id")
+    List<Long> findSettledIds(@Param("finished") GameStatus finished);
+
+    //counts one accepting vote, only during the vote and while the word can be changed and not every other user has voted yet
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Game g set g.chosenWordCounter = g.chosenWordCounter + 1, g.version = g.version + 1 " +
+            "where g.id = :id and g.phase = :phase and g.changeWord = true and g.chosenWordCounter < size(g.seats) - 1")
+    int incrementChosenWordCounter(@Param("id") Long id, @Param("phase") GamePhase phase);
+
+    //counts one rejecting vote and marks the word as rejected, with the same conditions as above
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Game g set g.chosenWordCounter = g.chosenWordCounter + 1, g.version = g.version + 1, g.wordStatus = :rejected " +
+            "where g.id = :id and g.phase = :phase and g.changeWord = true and g.chosenWordCounter < size(g.seats) - 1")
+    int incrementChosenWordCounterAndReject(@Param("id") Long id, @Param("phase") GamePhase phase, @Param("rejected") ChosenWordStatus rejected);
+
+    //counts one manual clue check, only during the check and while not every other user has checked the clues yet
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Game g set g.manualClueCounter = g.manualClueCounter + 1, g.version = g.version + 1 " +
+            "where g.id = :id and g.phase = :phase and g.manualClueCounter < size(g.seats) - 1")
+    int incrementManualClueCounter(@Param("id") Long id, @Param("phase") GamePhase phase);
+
+    //ends the vote on the chosen word with its result, only called by the last vote which holds the row already
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Game g set g.wordStatus = :wordStatus, g.phase = :phase, g.changeWord = false where g.id = :id")
+    int finishWordVote(@Param("id") Long id, @Param("wordStatus") ChosenWordStatus wordStatus, @Param("phase") GamePhase phase);
+
+    //moves the game to the next phase, only called by the last clue check which holds the row already
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Game g set g.phase = :phase where g.id = :id")
+    int updatePhase(@Param("id") Long id, @Param("phase") GamePhase phase);
+
+    //marks a finished game as settled with a new version, only the first call changes the game
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Game g set g.settled = true, g.version = g.version + 1 where g.id = :id and g.status = :finished and g.settled = false")
+    int markSettled(@Param("id") Long id, @Param("finished") GameStatus finished);
+
+    //the bulk deletes of an archived game, the users and clues go first, then the game and then the rows it refers to
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "delete from game_user_ids where game_id = :id", nativeQuery = true)
+    int deleteUsersOfGame(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from Game g where g.id = :id")
+    int deleteGameById(@Param("id") Long id);
 }
@@ -0,0 +1,10 @@
+package ch.uzh.ifi.seal.soprafs20.repository;
+
+import ch.uzh.ifi.seal.soprafs20.entity.game.GameSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository("gameSnapshotRepository")
+public interface GameSnapshotRepository extends JpaRepository<GameSnapshot, Long> {
+    GameSnapshot findFirstByGameIdAndVersionLessThanEqualOrderByVersionDesc(Long gameId, long version);
+}
@@ -0,0 +1,40 @@
+package ch.uzh.ifi.seal.soprafs20.repository;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.entity.game.GameSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository("gameSummaryRepository")
+public interface GameSummaryRepository extends JpaRepository<GameSummary, Long> {
+    //the columns of a GameSummaryView, listed because a derived query selects the whole summary for a view
+    //with a list of user ids
+    String VIEW_COLUMNS = "s.id as id, s.version as version, s.token as token, s.status as status, s.phase as phase, " +
+            "s.normalMode as normalMode, s.changeWord as changeWord, s.score as score, s.round as round, " +
+            "s.deckSize as deckSize, s.chosenWord as chosenWord, s.wordStatus as wordStatus, " +
+            "s.currentUserId as currentUserId, s.userIds as userIds";
+
+    //keyset pages, the games with an id after the last id of the previous page
+    @Query("select " + VIEW_COLUMNS + " from GameSummary s where s.id > :after order by s.id")
+    Slice<GameSummaryView> findPageAfter(@Param("after") Long after, Pageable pageable);
+
+    //ordered by status as well, so the status index returns the page in order instead of every game of the status being sorted
+    @Query("select " + VIEW_COLUMNS + " from GameSummary s where s.status = :status and s.id > :after order by s.status, s.id")
+    Slice<GameSummaryView> findPageAfterByStatus(@Param("after") Long after, @Param("status") GameStatus status,
+                                                 Pageable pageable);
+
+    //the games a user has joined, found through the membership index of the games instead of the user ids of every summary
+    @Query("select " + VIEW_COLUMNS + " from GameSummary s " +
+            "where s.id in (select g.id from Game g join g.seats u where u = :userId) order by s.id")
+    List<GameSummaryView> findByUserId(@Param("userId") Long userId);
+
+    @Query("select s.version from GameSummary s where s.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+}
@@ -0,0 +1,43 @@
+package ch.uzh.ifi.seal.soprafs20.repository;
+
+import ch.uzh.ifi.seal.soprafs20.constant.ChosenWordStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+
+import java.util.List;
+
+/**
+ * GameSummaryView
+ * The columns of a game summary that the list of games shows. A query that returns this projection selects only
+ * these columns and does not load the summaries as entities.
+ */
+public interface GameSummaryView {
+
+    Long getId();
+
+    long getVersion();
+
+    String getToken();
+
+    GameStatus getStatus();
+
+    GamePhase getPhase();
+
+    boolean getNormalMode();
+
+    boolean getChangeWord();
+
+    int getScore();
+
+    int getRound();
+
+    int getDeckSize();
+
+    String getChosenWord();
+
+    ChosenWordStatus getWordStatus();
+
+    Long getCurrentUserId();
+
+    List<Long> getUserIds();
+}
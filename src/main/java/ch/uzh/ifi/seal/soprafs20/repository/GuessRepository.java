@@ -2,6 +2,9 @@ package ch.uzh.ifi.seal.soprafs20.repository;
 
 import ch.uzh.ifi.seal.soprafs20.entity.game.Guess;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,4 +12,8 @@ import java.util.Optional;
 @Repository
 public interface GuessRepository extends JpaRepository<Guess, Long> {
     Optional<Guess> findById(Long id);
+
+    @Modifying
+    @Query("delete from Guess g where g.id = :id")
+    int deleteGuessById(@Param("id") Long id);
 }
@@ -1,17 +1,32 @@
 package ch.uzh.ifi.seal.soprafs20.repository;
 
+import ch.uzh.ifi.seal.soprafs20.constant.UserStatus;
 import ch.uzh.ifi.seal.soprafs20.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.Optional;
 
 @Repository("userRepository")
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 	User findByName(String name);
-	User findByUsername(String username);
+
+	//a user has only one natural id, the token lookup is cached as a query that every change of a user invalidates
+	@QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
 	User findByToken(String token);
 
-	User findByUsernameAndIdNot(String username, Long id);
     Optional<User> findById(Long id);
+
+    //keyset pages, the users with an id after the last id of the previous page
+    Slice<UserView> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    //ordered by status as well, so the status index returns the page in order instead of every user of the status being sorted
+    Slice<UserView> findByStatusAndIdGreaterThanOrderByStatusAscIdAsc(UserStatus status, Long id, Pageable pageable);
 }
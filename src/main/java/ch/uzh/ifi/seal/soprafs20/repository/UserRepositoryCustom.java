@@ -0,0 +1,17 @@
+package ch.uzh.ifi.seal.soprafs20.repository;
+
+import ch.uzh.ifi.seal.soprafs20.entity.User;
+
+import java.util.Map;
+
+/**
+ * Lookups of the user repository that are implemented by hand instead of being derived from the method name.
+ */
+public interface UserRepositoryCustom {
+
+    //resolves the username through the natural id cache, only a username that is not cached yet is selected
+    User findByUsername(String username);
+
+    //settles the game of the given users in one statement: every user gets its own score and the stats of the game
+    int settleScores(Map<Long, Integer> scoreByUser, Map<Long, Integer> correctGuessesByUser, Map<Long, Integer> duplicateCluesByUser);
+}
@@ -0,0 +1,62 @@
+package ch.uzh.ifi.seal.soprafs20.repository;
+
+import ch.uzh.ifi.seal.soprafs20.entity.User;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.Map;
+
+//read-only like the derived lookups of the repository, a transaction of the caller is joined
+@Transactional(readOnly = true)
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public User findByUsername(String username) {
+        if (username == null){
+            return null;
+        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).load(username);
+    }
+
+    //the values of every user are picked by its id, one query plan per number of users.
+    //flushed before and cleared after the update like the bulk updates of the repository
+    @Override
+    @Transactional
+    public int settleScores(Map<Long, Integer> scoreByUser, Map<Long, Integer> correctGuessesByUser, Map<Long, Integer> duplicateCluesByUser) {
+        if (scoreByUser.isEmpty()){
+            return 0;
+        }
+        Query query = entityManager.createQuery("update User u set u.score = u.score + " + byUser("score", scoreByUser.size()) +
+                ", u.gamesPlayed = u.gamesPlayed + 1, u.correctlyGuessed = " + byUser("correctlyGuessed", scoreByUser.size()) +
+                ", u.duplicateClues = " + byUser("duplicateClues", scoreByUser.size()) + ", u.version = u.version + 1 where u.id in :ids");
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : scoreByUser.entrySet()){
+            query.setParameter("id" + i, entry.getKey());
+            query.setParameter("score" + i, entry.getValue());
+            query.setParameter("correctlyGuessed" + i, correctGuessesByUser.getOrDefault(entry.getKey(), 0));
+            query.setParameter("duplicateClues" + i, duplicateCluesByUser.getOrDefault(entry.getKey(), 0));
+            i++;
+        }
+        query.setParameter("ids", scoreByUser.keySet());
+
+        entityManager.flush();
+        int updated = query.executeUpdate();
+        entityManager.clear();
+        return updated;
+    }
+
+    //a case expression that picks the parameter of the given name for every user id
+    private static String byUser(String name, int users) {
+        StringBuilder value = new StringBuilder("case u.id");
+        for (int i = 0; i < users; i++){
+            value.append(" when :id").append(i).append(" then :").append(name).append(i);
+        }
+        return value.append(" end").toString();
+    }
+}
@@ -0,0 +1,27 @@
+package ch.uzh.ifi.seal.soprafs20.repository;
+
+import ch.uzh.ifi.seal.soprafs20.constant.UserStatus;
+
+/**
+ * UserView
+ * The columns of a user that the list of users shows, without the password and the token. A query that returns
+ * this projection selects only these columns and does not load the users as entities.
+ */
+public interface UserView {
+
+    Long getId();
+
+    String getName();
+
+    String getUsername();
+
+    UserStatus getStatus();
+
+    int getCorrectlyGuessed();
+
+    int getDuplicateClues();
+
+    int getScore();
+
+    int getGamesPlayed();
+}
@@ -0,0 +1,64 @@
+package ch.uzh.ifi.seal.soprafs20.rest.dto;
+
+public class CacheMetricsGetDTO {
+
+    private String region;
+
+    private long hits;
+
+    private long misses;
+
+    private long puts;
+
+    private double hitRatio;
+
+    private long elementsInMemory;
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    public void setPuts(long puts) {
+        this.puts = puts;
+    }
+
+    public double getHitRatio() {
+        return hitRatio;
+    }
+
+    public void setHitRatio(double hitRatio) {
+        this.hitRatio = hitRatio;
+    }
+
+    public long getElementsInMemory() {
+        return elementsInMemory;
+    }
+
+    public void setElementsInMemory(long elementsInMemory) {
+        this.elementsInMemory = elementsInMemory;
+    }
+}
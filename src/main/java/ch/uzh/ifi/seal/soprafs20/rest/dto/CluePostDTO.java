@@ -6,6 +6,8 @@ public class CluePostDTO {
 
     private int time;
 
+    private Long userId;
+
     public String getClueWord(){
         return clueWord;
     }
@@ -21,4 +23,12 @@ public class CluePostDTO {
     public void setTime(int time){
         this.time = time;
     }
+
+    public Long getUserId(){
+        return userId;
+    }
+
+    public void setUserId(Long userId){
+        this.userId = userId;
+    }
 }
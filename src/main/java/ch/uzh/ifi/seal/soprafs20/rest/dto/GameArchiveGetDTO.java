@@ -0,0 +1,26 @@
+package ch.uzh.ifi.seal.soprafs20.rest.dto;
+
+import java.util.List;
+
+public class GameArchiveGetDTO {
+
+    private GameStateGetDTO state;
+
+    private List<RoundResultGetDTO> rounds;
+
+    public GameStateGetDTO getState() {
+        return state;
+    }
+
+    public void setState(GameStateGetDTO state) {
+        this.state = state;
+    }
+
+    public List<RoundResultGetDTO> getRounds() {
+        return rounds;
+    }
+
+    public void setRounds(List<RoundResultGetDTO> rounds) {
+        this.rounds = rounds;
+    }
+}
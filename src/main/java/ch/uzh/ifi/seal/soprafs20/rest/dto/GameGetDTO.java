@@ -1,6 +1,7 @@
 package ch.uzh.ifi.seal.soprafs20.rest.dto;
 
 import ch.uzh.ifi.seal.soprafs20.constant.ChosenWordStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
 import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
 
 import java.util.List;
@@ -9,10 +10,16 @@ public class GameGetDTO {
 
     private Long id;
 
+    private long version;
+
     private String token;
 
     private GameStatus status;
 
+    private GamePhase phase;
+
+    private GamePhase nextPhase;
+
     private boolean normalMode;
 
     private boolean changeWord;
@@ -35,6 +42,14 @@ public class GameGetDTO {
         return id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -55,6 +70,22 @@ public class GameGetDTO {
         this.status = status;
     }
 
+    public GamePhase getPhase() {
+        return phase;
+    }
+
+    public void setPhase(GamePhase phase) {
+        this.phase = phase;
+    }
+
+    public GamePhase getNextPhase() {
+        return nextPhase;
+    }
+
+    public void setNextPhase(GamePhase nextPhase) {
+        this.nextPhase = nextPhase;
+    }
+
     public boolean getNormalMode() {
         return normalMode;
     }
@@ -0,0 +1,211 @@
+package ch.uzh.ifi.seal.soprafs20.rest.dto;
+
+import ch.uzh.ifi.seal.soprafs20.constant.ChosenWordStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GuessStatus;
+
+import java.util.List;
+
+public class GameStateGetDTO {
+
+    private Long id;
+
+    private long version;
+
+    private GameStatus status;
+
+    private GamePhase phase;
+
+    private boolean normalMode;
+
+    private boolean changeWord;
+
+    private int score;
+
+    private int round;
+
+    private int deckSize;
+
+    private Long currentUserId;
+
+    private List<Long> userIds;
+
+    private List<String> activeCardWords;
+
+    private String chosenWord;
+
+    private ChosenWordStatus wordStatus;
+
+    private int chosenWordCounter;
+
+    private int manualClueCounter;
+
+    private List<ClueGetDTO> clues;
+
+    private String guessWord;
+
+    private GuessStatus guessStatus;
+
+    private int guessTime;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(GameStatus status) {
+        this.status = status;
+    }
+
+    public GamePhase getPhase() {
+        return phase;
+    }
+
+    public void setPhase(GamePhase phase) {
+        this.phase = phase;
+    }
+
+    public boolean getNormalMode() {
+        return normalMode;
+    }
+
+    public void setNormalMode(boolean normalMode) {
+        this.normalMode = normalMode;
+    }
+
+    public boolean getChangeWord() {
+        return changeWord;
+    }
+
+    public void setChangeWord(boolean changeWord) {
+        this.changeWord = changeWord;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    public void setRound(int round) {
+        this.round = round;
+    }
+
+    public int getDeckSize() {
+        return deckSize;
+    }
+
+    public void setDeckSize(int deckSize) {
+        this.deckSize = deckSize;
+    }
+
+    public Long getCurrentUserId() {
+        return currentUserId;
+    }
+
+    public void setCurrentUserId(Long currentUserId) {
+        this.currentUserId = currentUserId;
+    }
+
+    public List<Long> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(List<Long> userIds) {
+        this.userIds = userIds;
+    }
+
+    public List<String> getActiveCardWords() {
+        return activeCardWords;
+    }
+
+    public void setActiveCardWords(List<String> activeCardWords) {
+        this.activeCardWords = activeCardWords;
+    }
+
+    public String getChosenWord() {
+        return chosenWord;
+    }
+
+    public void setChosenWord(String chosenWord) {
+        this.chosenWord = chosenWord;
+    }
+
+    public ChosenWordStatus getWordStatus() {
+        return wordStatus;
+    }
+
+    public void setWordStatus(ChosenWordStatus wordStatus) {
+        this.wordStatus = wordStatus;
+    }
+
+    public int getChosenWordCounter() {
+        return chosenWordCounter;
+    }
+
+    public void setChosenWordCounter(int chosenWordCounter) {
+        this.chosenWordCounter = chosenWordCounter;
+    }
+
+    public int getManualClueCounter() {
+        return manualClueCounter;
+    }
+
+    public void setManualClueCounter(int manualClueCounter) {
+        this.manualClueCounter = manualClueCounter;
+    }
+
+    public List<ClueGetDTO> getClues() {
+        return clues;
+    }
+
+    public void setClues(List<ClueGetDTO> clues) {
+        this.clues = clues;
+    }
+
+    public String getGuessWord() {
+        return guessWord;
+    }
+
+    public void setGuessWord(String guessWord) {
+        this.guessWord = guessWord;
+    }
+
+    public GuessStatus getGuessStatus() {
+        return guessStatus;
+    }
+
+    public void setGuessStatus(GuessStatus guessStatus) {
+        this.guessStatus = guessStatus;
+    }
+
+    public int getGuessTime() {
+        return guessTime;
+    }
+
+    public void setGuessTime(int guessTime) {
+        this.guessTime = guessTime;
+    }
+}
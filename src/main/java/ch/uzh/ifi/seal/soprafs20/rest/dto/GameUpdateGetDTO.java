@@ -0,0 +1,76 @@
+package ch.uzh.ifi.seal.soprafs20.rest.dto;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GameEventType;
+
+public class GameUpdateGetDTO {
+
+    private Long gameId;
+
+    private long version;
+
+    private GameEventType type;
+
+    private GameGetDTO game;
+
+    private ChosenWordGetDTO chosenWord;
+
+    private CluesGetDTO clues;
+
+    private GuessGetDTO guess;
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public GameEventType getType() {
+        return type;
+    }
+
+    public void setType(GameEventType type) {
+        this.type = type;
+    }
+
+    public GameGetDTO getGame() {
+        return game;
+    }
+
+    public void setGame(GameGetDTO game) {
+        this.game = game;
+    }
+
+    public ChosenWordGetDTO getChosenWord() {
+        return chosenWord;
+    }
+
+    public void setChosenWord(ChosenWordGetDTO chosenWord) {
+        this.chosenWord = chosenWord;
+    }
+
+    public CluesGetDTO getClues() {
+        return clues;
+    }
+
+    public void setClues(CluesGetDTO clues) {
+        this.clues = clues;
+    }
+
+    public GuessGetDTO getGuess() {
+        return guess;
+    }
+
+    public void setGuess(GuessGetDTO guess) {
+        this.guess = guess;
+    }
+}
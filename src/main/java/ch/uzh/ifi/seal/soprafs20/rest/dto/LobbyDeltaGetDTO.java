@@ -0,0 +1,36 @@
+package ch.uzh.ifi.seal.soprafs20.rest.dto;
+
+import ch.uzh.ifi.seal.soprafs20.constant.LobbyDeltaType;
+
+public class LobbyDeltaGetDTO {
+
+    private long lobbyVersion;
+
+    private LobbyDeltaType type;
+
+    private LobbyGameGetDTO game;
+
+    public long getLobbyVersion() {
+        return lobbyVersion;
+    }
+
+    public void setLobbyVersion(long lobbyVersion) {
+        this.lobbyVersion = lobbyVersion;
+    }
+
+    public LobbyDeltaType getType() {
+        return type;
+    }
+
+    public void setType(LobbyDeltaType type) {
+        this.type = type;
+    }
+
+    public LobbyGameGetDTO getGame() {
+        return game;
+    }
+
+    public void setGame(LobbyGameGetDTO game) {
+        this.game = game;
+    }
+}
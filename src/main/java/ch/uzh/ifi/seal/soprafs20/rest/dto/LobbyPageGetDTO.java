@@ -0,0 +1,57 @@
+package ch.uzh.ifi.seal.soprafs20.rest.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LobbyPageGetDTO {
+
+    private long lobbyVersion;
+
+    private int page;
+
+    private int size;
+
+    private int totalGames;
+
+    private List<LobbyGameGetDTO> games = new ArrayList<>();
+
+    public long getLobbyVersion() {
+        return lobbyVersion;
+    }
+
+    public void setLobbyVersion(long lobbyVersion) {
+        this.lobbyVersion = lobbyVersion;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public int getTotalGames() {
+        return totalGames;
+    }
+
+    public void setTotalGames(int totalGames) {
+        this.totalGames = totalGames;
+    }
+
+    public List<LobbyGameGetDTO> getGames() {
+        return games;
+    }
+
+    public void setGames(List<LobbyGameGetDTO> games) {
+        this.games = games;
+    }
+}
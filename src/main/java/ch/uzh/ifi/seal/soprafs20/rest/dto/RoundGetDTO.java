@@ -0,0 +1,58 @@
+package ch.uzh.ifi.seal.soprafs20.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+//everything a client shows during a turn, the parts the current phase has not reached yet are left out
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RoundGetDTO {
+
+    private GameGetDTO game;
+
+    private CardGetDTO card;
+
+    private ChosenWordGetDTO chosenWord;
+
+    private CluesGetDTO clues;
+
+    private GuessGetDTO guess;
+
+    public GameGetDTO getGame() {
+        return game;
+    }
+
+    public void setGame(GameGetDTO game) {
+        this.game = game;
+    }
+
+    public CardGetDTO getCard() {
+        return card;
+    }
+
+    public void setCard(CardGetDTO card) {
+        this.card = card;
+    }
+
+    public ChosenWordGetDTO getChosenWord() {
+        return chosenWord;
+    }
+
+    public void setChosenWord(ChosenWordGetDTO chosenWord) {
+        this.chosenWord = chosenWord;
+    }
+
+    public CluesGetDTO getClues() {
+        return clues;
+    }
+
+    public void setClues(CluesGetDTO clues) {
+        this.clues = clues;
+    }
+
+    public GuessGetDTO getGuess() {
+        return guess;
+    }
+
+    public void setGuess(GuessGetDTO guess) {
+        this.guess = guess;
+    }
+}
@@ -0,0 +1,88 @@
+package ch.uzh.ifi.seal.soprafs20.rest.dto;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GuessStatus;
+
+import java.util.List;
+
+public class RoundResultGetDTO {
+
+    private int round;
+
+    private List<String> cardWords;
+
+    private String chosenWord;
+
+    private List<ClueGetDTO> clues;
+
+    private String guessWord;
+
+    private GuessStatus guessStatus;
+
+    private int guessTime;
+
+    private int score;
+
+    public int getRound() {
+        return round;
+    }
+
+    public void setRound(int round) {
+        this.round = round;
+    }
+
+    public List<String> getCardWords() {
+        return cardWords;
+    }
+
+    public void setCardWords(List<String> cardWords) {
+        this.cardWords = cardWords;
+    }
+
+    public String getChosenWord() {
+        return chosenWord;
+    }
+
+    public void setChosenWord(String chosenWord) {
+        this.chosenWord = chosenWord;
+    }
+
+    public List<ClueGetDTO> getClues() {
+        return clues;
+    }
+
+    public void setClues(List<ClueGetDTO> clues) {
+        this.clues = clues;
+    }
+
+    public String getGuessWord() {
+        return guessWord;
+    }
+
+    public void setGuessWord(String guessWord) {
+        this.guessWord = guessWord;
+    }
+
+    public GuessStatus getGuessStatus() {
+        return guessStatus;
+    }
+
+    public void setGuessStatus(GuessStatus guessStatus) {
+        this.guessStatus = guessStatus;
+    }
+
+    public int getGuessTime() {
+        return guessTime;
+    }
+
+    public void setGuessTime(int guessTime) {
+        this.guessTime = guessTime;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,94 @@
+package ch.uzh.ifi.seal.soprafs20.rest.dto;
+
+public class StreamMetricsGetDTO {
+
+    private int streams;
+
+    private int subscribers;
+
+    private int queuedUpdates;
+
+    private int maxQueueDepth;
+
+    private long sentUpdates;
+
+    private long droppedUpdates;
+
+    private long resyncs;
+
+    private long disconnects;
+
+    private String webSocketSessions;
+
+    public int getStreams() {
+        return streams;
+    }
+
+    public void setStreams(int streams) {
+        this.streams = streams;
+    }
+
+    public int getSubscribers() {
+        return subscribers;
+    }
+
+    public void setSubscribers(int subscribers) {
+        this.subscribers = subscribers;
+    }
+
+    public int getQueuedUpdates() {
+        return queuedUpdates;
+    }
+
+    public void setQueuedUpdates(int queuedUpdates) {
+        this.queuedUpdates = queuedUpdates;
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public void setMaxQueueDepth(int maxQueueDepth) {
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    public long getSentUpdates() {
+        return sentUpdates;
+    }
+
+    public void setSentUpdates(long sentUpdates) {
+        this.sentUpdates = sentUpdates;
+    }
+
+    public long getDroppedUpdates() {
+        return droppedUpdates;
+    }
+
+    public void setDroppedUpdates(long droppedUpdates) {
+        this.droppedUpdates = droppedUpdates;
+    }
+
+    public long getResyncs() {
+        return resyncs;
+    }
+
+    public void setResyncs(long resyncs) {
+        this.resyncs = resyncs;
+    }
+
+    public long getDisconnects() {
+        return disconnects;
+    }
+
+    public void setDisconnects(long disconnects) {
+        this.disconnects = disconnects;
+    }
+
+    public String getWebSocketSessions() {
+        return webSocketSessions;
+    }
+
+    public void setWebSocketSessions(String webSocketSessions) {
+        this.webSocketSessions = webSocketSessions;
+    }
+}
@@ -0,0 +1,134 @@
+package ch.uzh.ifi.seal.soprafs20.rest.filter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * IdempotencyCache
+ * Bounded in-memory cache of the responses to requests with an Idempotency-Key, with the hash of the request
+ * every key was first used for.
+ * Entries are kept in insertion order, so the oldest stored response is evicted first when the cache is full
+ * and expired entries are always at the head of the map. Pending reservations are never evicted before they expire,
+ * a retry of a running request could run it a second time, so no key is reserved while the cache is full of them.
+ */
+public class IdempotencyCache {
+
+    private final int maxEntries;
+    private final long timeToLiveMillis;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public IdempotencyCache(int maxEntries, long timeToLiveMillis) {
+        this.maxEntries = maxEntries;
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    //returns the stored entry of the key or null if there is none, a pending entry means the request is still running
+    public synchronized Entry get(String key) {
+        evictExpired();
+        return entries.get(key);
+    }
+
+    //marks the key as running for the request with the given hash
+    public synchronized Reservation reserve(String key, String requestHash) {
+        evictExpired();
+        if (entries.containsKey(key)){
+            return Reservation.TAKEN;
+        }
+        if (!makeRoom()){
+            return Reservation.FULL;
+        }
+        entries.put(key, new Entry(requestHash, 0, null, null, System.currentTimeMillis()));
+        return Reservation.RESERVED;
+    }
+
+    //the reservation is replaced, a request that outlived its reservation is only stored if there is room for it
+    public synchronized void complete(String key, String requestHash, int status, Map<String, List<String>> headers, byte[] body) {
+        if (entries.remove(key) != null || makeRoom()){
+            entries.put(key, new Entry(requestHash, status, headers, body, System.currentTimeMillis()));
+        }
+    }
+
+    //removes the reservation of a failed request, so the client can retry it
+    public synchronized void release(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    //evicts the oldest stored response if the cache is full, returns false if every entry is still pending
+    private boolean makeRoom() {
+        if (entries.size() < maxEntries){
+            return true;
+        }
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (oldest.hasNext()){
+            if (!oldest.next().isPending()){
+                oldest.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext() && now - iterator.next().getCreated() > timeToLiveMillis){
+            iterator.remove();
+        }
+    }
+
+    public enum Reservation {
+        RESERVED,
+        //there is already an entry for this key
+        TAKEN,
+        //every entry is a request that is still running
+        FULL
+    }
+
+    public static class Entry {
+
+        private final String requestHash;
+        private final int status;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+        private final long created;
+
+        Entry(String requestHash, int status, Map<String, List<String>> headers, byte[] body, long created) {
+            this.requestHash = requestHash;
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+            this.created = created;
+        }
+
+        public boolean isPending() {
+            return body == null;
+        }
+
+        //the hash of the body of the request the key was first used for
+        public String getRequestHash() {
+            return requestHash;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+    }
+}
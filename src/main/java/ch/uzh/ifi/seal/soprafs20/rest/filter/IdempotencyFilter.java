@@ -0,0 +1,201 @@
+package ch.uzh.ifi.seal.soprafs20.rest.filter;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * IdempotencyFilter
+ * Mutating requests (POST, PUT, DELETE) with an Idempotency-Key header are executed only once.
+ * The successful response is stored with its headers and returned again for every retry with the same key,
+ * without calling the controller and therefore without touching the database.
+ * The keys are scoped to the caller, by the Authorization header a client sends its token in or else by its address,
+ * so two callers that use the same key do not get each other's responses. A key that is used again for a different
+ * body is rejected with 422. While the cache is full of running requests, new keys are rejected with 503.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAY_HEADER = "Idempotent-Replay";
+    public static final int MAX_ENTRIES = 10000;
+    public static final long TIME_TO_LIVE_MILLIS = 10L * 60 * 1000;
+
+    private final IdempotencyCache idempotencyCache = new IdempotencyCache(MAX_ENTRIES, TIME_TO_LIVE_MILLIS);
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        boolean mutating = HttpMethod.POST.matches(method) || HttpMethod.PUT.matches(method) || HttpMethod.DELETE.matches(method);
+        return !mutating || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        //the same key may be used for different endpoints and by different callers
+        String key = request.getMethod() + " " + request.getRequestURI() + " " + caller(request) + " " + request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        //the body is read once for its hash and then given to the controller
+        byte[] requestBody = StreamUtils.copyToByteArray(request.getInputStream());
+        String requestHash = hash(requestBody);
+
+        IdempotencyCache.Reservation reservation = idempotencyCache.reserve(key, requestHash);
+        if (reservation == IdempotencyCache.Reservation.FULL){
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.getWriter().write("Too many requests with an Idempotency-Key are in progress!");
+            return;
+        }
+        if (reservation == IdempotencyCache.Reservation.TAKEN){
+            IdempotencyCache.Entry entry = idempotencyCache.get(key);
+            if (entry != null && !entry.getRequestHash().equals(requestHash)){
+                response.setStatus(HttpStatus.UNPROCESSABLE_ENTITY.value());
+                response.getWriter().write("This Idempotency-Key was already used for a different request!");
+                return;
+            }
+            if (entry == null || entry.isPending()){
+                response.setStatus(HttpStatus.CONFLICT.value());
+                response.getWriter().write("A request with this Idempotency-Key is still in progress!");
+                return;
+            }
+            response.setStatus(entry.getStatus());
+            for (Map.Entry<String, List<String>> header : entry.getHeaders().entrySet()){
+                for (String value : header.getValue()){
+                    response.addHeader(header.getKey(), value);
+                }
+            }
+            response.setHeader(IDEMPOTENT_REPLAY_HEADER, "true");
+            response.getOutputStream().write(entry.getBody());
+            return;
+        }
+
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(new CachedBodyRequest(request, requestBody), responseWrapper);
+            completed = true;
+        }
+        finally {
+            //only successful responses are stored, failed requests can be retried
+            if (completed && HttpStatus.valueOf(responseWrapper.getStatus()).is2xxSuccessful()){
+                idempotencyCache.complete(key, requestHash, responseWrapper.getStatus(), headersOf(responseWrapper),
+                        responseWrapper.getContentAsByteArray());
+            }
+            else {
+                idempotencyCache.release(key);
+            }
+            responseWrapper.copyBodyToResponse();
+        }
+    }
+
+    private static String caller(HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        return authorization != null ? authorization : request.getRemoteAddr();
+    }
+
+    private static String hash(byte[] body) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(body));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    //the content length is set again when the body is written, the content type is taken from the response
+    private static Map<String, List<String>> headersOf(HttpServletResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()){
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && !HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)){
+                headers.put(name, new ArrayList<>(response.getHeaders(name)));
+            }
+        }
+        if (response.getContentType() != null){
+            headers.put(HttpHeaders.CONTENT_TYPE, List.of(response.getContentType()));
+        }
+        return headers;
+    }
+
+    //a request whose body was already read, the controller reads it again from the array
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                //the whole body is in memory, so a non-blocking reader is told at once that it can read all of it
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()){
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()){
+                            readListener.onAllDataRead();
+                        }
+                    }
+                    catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            Charset charset = getCharacterEncoding() == null ? StandardCharsets.UTF_8 : Charset.forName(getCharacterEncoding());
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -1,11 +1,21 @@
 package ch.uzh.ifi.seal.soprafs20.rest.mapper;
 
 import ch.uzh.ifi.seal.soprafs20.constant.ClueStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
+import ch.uzh.ifi.seal.soprafs20.constant.GuessStatus;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Card;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Clue;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Guess;
+import ch.uzh.ifi.seal.soprafs20.entity.game.GameSummary;
 import ch.uzh.ifi.seal.soprafs20.entity.User;
+import ch.uzh.ifi.seal.soprafs20.history.ArchivedGame;
+import ch.uzh.ifi.seal.soprafs20.history.GameChangedEvent;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.history.RoundResult;
+import ch.uzh.ifi.seal.soprafs20.lobby.LobbyGame;
+import ch.uzh.ifi.seal.soprafs20.repository.GameSummaryView;
+import ch.uzh.ifi.seal.soprafs20.repository.UserView;
 import ch.uzh.ifi.seal.soprafs20.rest.dto.*;
 import org.mapstruct.*;
 import org.mapstruct.factory.Mappers;
@@ -28,6 +38,7 @@ public interface DTOMapper {
     @Mapping(source = "name", target = "name")
     @Mapping(source = "username", target = "username")
     @Mapping(source = "password", target = "password")
+    @Mapping(target = "version", ignore = true)
     User convertUserPostDTOtoEntity(UserPostDTO userPostDTO);
 
     @Mapping(source = "id", target = "id")
@@ -36,6 +47,7 @@ public interface DTOMapper {
     @Mapping(source = "password", target = "password")
     @Mapping(source = "correctlyGuessed", target = "correctlyGuessed")
     @Mapping(source = "duplicateClues", target = "duplicateClues")
+    @Mapping(target = "version", ignore = true)
     User convertUserPutDTOtoEntity(UserPutDTO userPutDTO);
 
     @Mapping(source = "id", target = "id")
@@ -48,14 +60,35 @@ public interface DTOMapper {
     @Mapping(source = "gamesPlayed", target = "gamesPlayed")
     UserGetDTO convertEntityToUserGetDTO(User user);
 
+    @Mapping(source = "id", target = "id")
+    @Mapping(source = "name", target = "name")
+    @Mapping(source = "username", target = "username")
+    @Mapping(source = "status", target = "status")
+    @Mapping(source = "correctlyGuessed", target = "correctlyGuessed")
+    @Mapping(source = "duplicateClues", target = "duplicateClues")
+    @Mapping(source = "score", target = "score")
+    @Mapping(source = "gamesPlayed", target = "gamesPlayed")
+    UserGetDTO convertUserViewToUserGetDTO(UserView userView);
+
     @Mapping(source = "currentUserId", target = "currentUserId")
+    @Mapping(target = "phase", ignore = true)
+    @Mapping(target = "settled", ignore = true)
+    @Mapping(target = "seats", ignore = true)
+    @Mapping(target = "currentSeat", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Game convertGamePostDTOtoEntity(GamePostDTO gamePostDTO);
 
     @Mapping(source = "currentUserId", target = "currentUserId")
+    @Mapping(target = "phase", ignore = true)
+    @Mapping(target = "settled", ignore = true)
+    @Mapping(target = "seats", ignore = true)
+    @Mapping(target = "currentSeat", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Game convertGamePutDTOtoEntity(GamePutDTO gamePutDTO);
 
     @Mapping(source = "clueWord", target = "clueWord")
     @Mapping(source = "time", target = "time")
+    @Mapping(source = "userId", target = "userId")
     Clue convertCluePostDTOtoEntity(CluePostDTO cluePostDTO);
 
     @Mapping(source = "guessWord", target = "guessWord")
@@ -69,8 +102,11 @@ public interface DTOMapper {
     }
 
     @Mapping(source = "id", target = "id")
+    @Mapping(source = "version", target = "version")
     @Mapping(source = "token", target = "token")
     @Mapping(source = "status", target = "status")
+    @Mapping(source = "phase", target = "phase")
+    @Mapping(target = "nextPhase", expression = "java(game.getPhase() == null ? null : game.getPhase().next())")
     @Mapping(source = "normalMode", target = "normalMode")
     @Mapping(source = "changeWord", target = "changeWord")
     @Mapping(source = "score", target = "score")
@@ -82,6 +118,40 @@ public interface DTOMapper {
     @Mapping(source = "userIds", target = "userIds")
     GameGetDTO convertEntityToGameGetDTO(Game game);
 
+    @Mapping(source = "id", target = "id")
+    @Mapping(source = "version", target = "version")
+    @Mapping(source = "token", target = "token")
+    @Mapping(source = "status", target = "status")
+    @Mapping(source = "phase", target = "phase")
+    @Mapping(target = "nextPhase", expression = "java(gameSummary.getPhase() == null ? null : gameSummary.getPhase().next())")
+    @Mapping(source = "normalMode", target = "normalMode")
+    @Mapping(source = "changeWord", target = "changeWord")
+    @Mapping(source = "score", target = "score")
+    @Mapping(source = "round", target = "round")
+    @Mapping(source = "deckSize", target = "deckSize")
+    @Mapping(source = "chosenWord", target = "chosenWord")
+    @Mapping(source = "wordStatus", target = "wordStatus")
+    @Mapping(source = "currentUserId", target = "currentUserId")
+    @Mapping(source = "userIds", target = "userIds")
+    GameGetDTO convertGameSummaryToGameGetDTO(GameSummary gameSummary);
+
+    @Mapping(source = "id", target = "id")
+    @Mapping(source = "version", target = "version")
+    @Mapping(source = "token", target = "token")
+    @Mapping(source = "status", target = "status")
+    @Mapping(source = "phase", target = "phase")
+    @Mapping(target = "nextPhase", expression = "java(gameSummaryView.getPhase() == null ? null : gameSummaryView.getPhase().next())")
+    @Mapping(source = "normalMode", target = "normalMode")
+    @Mapping(source = "changeWord", target = "changeWord")
+    @Mapping(source = "score", target = "score")
+    @Mapping(source = "round", target = "round")
+    @Mapping(source = "deckSize", target = "deckSize")
+    @Mapping(source = "chosenWord", target = "chosenWord")
+    @Mapping(source = "wordStatus", target = "wordStatus")
+    @Mapping(source = "currentUserId", target = "currentUserId")
+    @Mapping(source = "userIds", target = "userIds")
+    GameGetDTO convertGameSummaryViewToGameGetDTO(GameSummaryView gameSummaryView);
+
     @Mapping(source = "clueWord", target = "clueWord")
     @Mapping(source = "time", target = "time")
     @Mapping(source = "valid", target = "valid")
@@ -96,6 +166,79 @@ public interface DTOMapper {
     @Mapping(source = "wordStatus", target = "wordStatus")
     ChosenWordGetDTO convertEntityToChosenWordGetDTO(Game game);
 
+    @Mapping(source = "clueWord", target = "clueWord")
+    @Mapping(source = "time", target = "time")
+    @Mapping(source = "valid", target = "valid")
+    ClueGetDTO convertClueStateToClueGetDTO(GameState.ClueState clueState);
+
+    GameStateGetDTO convertGameStateToGameStateGetDTO(GameState gameState);
+
+    @Mapping(source = "gameId", target = "gameId")
+    @Mapping(source = "version", target = "version")
+    @Mapping(source = "type", target = "type")
+    @Mapping(source = "state", target = "game")
+    @Mapping(source = "state", target = "chosenWord")
+    @Mapping(source = "state", target = "clues")
+    @Mapping(source = "state", target = "guess")
+    GameUpdateGetDTO convertGameChangedEventToGameUpdateGetDTO(GameChangedEvent gameChangedEvent);
+
+    @Mapping(source = "id", target = "id")
+    @Mapping(source = "version", target = "version")
+    @Mapping(source = "token", target = "token")
+    @Mapping(source = "status", target = "status")
+    @Mapping(source = "phase", target = "phase")
+    @Mapping(target = "nextPhase", expression = "java(gameState.getPhase() == null ? null : gameState.getPhase().next())")
+    @Mapping(source = "normalMode", target = "normalMode")
+    @Mapping(source = "changeWord", target = "changeWord")
+    @Mapping(source = "score", target = "score")
+    @Mapping(source = "round", target = "round")
+    @Mapping(source = "deckSize", target = "deckSize")
+    @Mapping(source = "chosenWord", target = "chosenWord")
+    @Mapping(source = "wordStatus", target = "wordStatus")
+    @Mapping(source = "currentUserId", target = "currentUserId")
+    @Mapping(source = "userIds", target = "userIds")
+    GameGetDTO convertGameStateToGameGetDTO(GameState gameState);
+
+    @Mapping(source = "chosenWord", target = "chosenWord")
+    @Mapping(source = "wordStatus", target = "wordStatus")
+    ChosenWordGetDTO convertGameStateToChosenWordGetDTO(GameState gameState);
+
+    @Mapping(source = "guessWord", target = "guessWord")
+    @Mapping(source = "guessTime", target = "time")
+    @Mapping(source = "guessStatus", target = "guessStatus", defaultValue = "NOGUESS")
+    GuessGetDTO convertGameStateToGuessGetDTO(GameState gameState);
+
+    @Mapping(source = "id", target = "id")
+    @Mapping(source = "version", target = "version")
+    @Mapping(source = "currentUserId", target = "currentUserId")
+    @Mapping(source = "userCount", target = "userCount")
+    LobbyGameGetDTO convertLobbyGameToLobbyGameGetDTO(LobbyGame lobbyGame);
+
+    RoundResultGetDTO convertRoundResultToRoundResultGetDTO(RoundResult roundResult);
+
+    @Mapping(source = "state", target = "state")
+    @Mapping(source = "rounds", target = "rounds")
+    GameArchiveGetDTO convertArchivedGameToGameArchiveGetDTO(ArchivedGame archivedGame);
+
+    //same rules as convertEntityToCluesGetDTO
+    default CluesGetDTO convertGameStateToCluesGetDTO(GameState gameState) {
+        CluesGetDTO cluesGetDTO = new CluesGetDTO();
+        for (GameState.ClueState clue : gameState.getClues()) {
+            if (clue.getValid() == ClueStatus.VALID) {
+                cluesGetDTO.addAClue(clue.getClueWord());
+            }
+        }
+        if (!gameState.getNormalMode()){
+            cluesGetDTO.setAllAutomaticClues(4 == gameState.getClues().size());
+        }
+        else {
+            cluesGetDTO.setAllAutomaticClues(gameState.getUserIds().size() - 1 == gameState.getClues().size());
+        }
+        cluesGetDTO.setAllManualClues(gameState.getUserIds().size() - 1 == gameState.getManualClueCounter());
+
+        return cluesGetDTO;
+    }
+
     default CluesGetDTO convertEntityToCluesGetDTO(Game game) {
         CluesGetDTO cluesGetDTO = new CluesGetDTO();
         //add all valid clues to the list
@@ -110,13 +253,37 @@ public interface DTOMapper {
         }
         //game with more than 3 users
         else {
-            cluesGetDTO.setAllAutomaticClues(game.getUserIds().size() - 1 == game.getClues().size());
+            cluesGetDTO.setAllAutomaticClues(game.getUserCount() - 1 == game.getClues().size());
         }
-        cluesGetDTO.setAllManualClues(game.getUserIds().size() - 1 == game.getClueCounter());
+        cluesGetDTO.setAllManualClues(game.getUserCount() - 1 == game.getClueCounter());
 
         return cluesGetDTO;
     }
 
+    default RoundGetDTO convertEntityToRoundGetDTO(Game game) {
+        RoundGetDTO roundGetDTO = new RoundGetDTO();
+        GamePhase phase = game.getPhase();
+        roundGetDTO.setGame(convertEntityToGameGetDTO(game));
+        if (phase.reached(GamePhase.CHOOSE_WORD) && game.hasActiveCard()){
+            roundGetDTO.setCard(convertEntityToCardGetDTO(game.getActiveCard()));
+        }
+        if (phase.reached(GamePhase.VOTE_WORD)){
+            roundGetDTO.setChosenWord(convertEntityToChosenWordGetDTO(game));
+        }
+        if (phase.reached(GamePhase.GIVE_CLUES)){
+            roundGetDTO.setClues(convertEntityToCluesGetDTO(game));
+        }
+        if (phase.reached(GamePhase.GUESS)){
+            GuessGetDTO guessGetDTO = new GuessGetDTO();
+            guessGetDTO.setGuessStatus(GuessStatus.NOGUESS);
+            if (game.getGuess() != null){
+                guessGetDTO = convertEntityToGuessGetDTO(game.getGuess());
+            }
+            roundGetDTO.setGuess(guessGetDTO);
+        }
+        return roundGetDTO;
+    }
+
     default CardGetDTO convertEntityToCardGetDTO(Card card){
         CardGetDTO cardGetDTO = new CardGetDTO();
         for (String mysteryWord : card.getMysteryWords()){
@@ -0,0 +1,53 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException404;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.CacheMetricsGetDTO;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * CacheMetrics Service
+ * This class reports the hits and misses of every region of the second-level cache since the start of the server,
+ * from the statistics Hibernate collects. The statistics are only collected if the server is started with CACHE_METRICS=true.
+ */
+@Service
+public class CacheMetricsService {
+
+    private final Statistics statistics;
+
+    public CacheMetricsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public List<CacheMetricsGetDTO> getMetrics() {
+        if (!statistics.isStatisticsEnabled()){
+            throw new GetRequestException404("The cache metrics are not collected, start the server with CACHE_METRICS=true!");
+        }
+        List<CacheMetricsGetDTO> metrics = new ArrayList<>();
+        String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+        for (String regionName : regionNames){
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(regionName);
+            if (regionStatistics == null){
+                continue;
+            }
+            CacheMetricsGetDTO cacheMetricsGetDTO = new CacheMetricsGetDTO();
+            cacheMetricsGetDTO.setRegion(regionName);
+            cacheMetricsGetDTO.setHits(regionStatistics.getHitCount());
+            cacheMetricsGetDTO.setMisses(regionStatistics.getMissCount());
+            cacheMetricsGetDTO.setPuts(regionStatistics.getPutCount());
+            long lookups = regionStatistics.getHitCount() + regionStatistics.getMissCount();
+            cacheMetricsGetDTO.setHitRatio(lookups == 0 ? 0 : (double) regionStatistics.getHitCount() / lookups);
+            cacheMetricsGetDTO.setElementsInMemory(regionStatistics.getElementCountInMemory());
+            metrics.add(cacheMetricsGetDTO);
+        }
+        return metrics;
+    }
+}
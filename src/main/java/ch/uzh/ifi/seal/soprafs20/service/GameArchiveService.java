@@ -0,0 +1,220 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GameEventType;
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.entity.game.GameArchive;
+import ch.uzh.ifi.seal.soprafs20.exceptions.SopraServiceException;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException404;
+import ch.uzh.ifi.seal.soprafs20.history.ArchivedGame;
+import ch.uzh.ifi.seal.soprafs20.history.GameChangedEvent;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.history.RoundResult;
+import ch.uzh.ifi.seal.soprafs20.repository.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameArchive Service
+ * Moves finished games out of the live tables. ARCHIVE_DELAY_SECONDS after the scores of a finished game are settled,
+ * the final state of the game and the result of every round are written into one GameArchive, and the game with its
+ * clues, guess, decks, game box and cards is deleted with bulk deletes. A game whose scores are not settled stays in the
+ * live tables. The history and the summary of the game are kept, so the game can still be replayed, it is still listed
+ * and GET /games/{id} still works. Archiving runs on its own background thread.
+ */
+@Service
+@Transactional
+public class GameArchiveService {
+
+    public static final long ARCHIVE_DELAY_SECONDS = 60;
+
+    private final Logger log = LoggerFactory.getLogger(GameArchiveService.class);
+
+    private final GameArchiveRepository gameArchiveRepository;
+    private final GameRepository gameRepository;
+    private final ClueRepository clueRepository;
+    private final GuessRepository guessRepository;
+    private final CardRepository cardRepository;
+    private final DeckRepository deckRepository;
+    private final GameBoxRepository gameBoxRepository;
+    private final GameHistoryService gameHistoryService;
+    private final GameViewCache gameViewCache;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService archiveExecutor;
+
+    public GameArchiveService(@Qualifier("gameArchiveRepository") GameArchiveRepository gameArchiveRepository,
+                              @Qualifier("gameRepository") GameRepository gameRepository,
+                              @Qualifier("clueRepository") ClueRepository clueRepository,
+                              GuessRepository guessRepository,
+                              @Qualifier("cardRepository") CardRepository cardRepository,
+                              @Qualifier("deckRepository") DeckRepository deckRepository,
+                              @Qualifier("gameBoxRepository") GameBoxRepository gameBoxRepository,
+                              GameHistoryService gameHistoryService, GameViewCache gameViewCache,
+                              ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.gameArchiveRepository = gameArchiveRepository;
+        this.gameRepository = gameRepository;
+        this.clueRepository = clueRepository;
+        this.guessRepository = guessRepository;
+        this.cardRepository = cardRepository;
+        this.deckRepository = deckRepository;
+        this.gameBoxRepository = gameBoxRepository;
+        this.gameHistoryService = gameHistoryService;
+        this.gameViewCache = gameViewCache;
+        this.objectMapper = objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //the clients can still read the end of the game until it is archived
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onGameChanged(GameChangedEvent event) {
+        if (event.getType() == GameEventType.SETTLED){
+            scheduleArchive(event.getGameId(), ARCHIVE_DELAY_SECONDS);
+        }
+    }
+
+    //archives the games that were settled but not archived before the last shutdown
+    @EventListener(ApplicationReadyEvent.class)
+    public void archiveSettledGames() {
+        List<Long> gameIds = gameRepository.findSettledIds(GameStatus.FINISHED);
+        for (Long gameId : gameIds){
+            scheduleArchive(gameId, 0);
+        }
+        if (!gameIds.isEmpty()){
+            log.info("Archiving {} settled games", gameIds.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        archiveExecutor.shutdownNow();
+    }
+
+    private void scheduleArchive(Long gameId, long delaySeconds) {
+        archiveExecutor.schedule(() -> {
+            try {
+                //the views of an archived game no longer change, the summary answers the readers of the game
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> archive(gameId)))){
+                    gameViewCache.evict(gameId);
+                }
+            }
+            catch (RuntimeException e) {
+                //the game stays in the live tables and is archived again after the next start
+                log.warn("Game {} could not be archived", gameId, e);
+            }
+        }, delaySeconds, TimeUnit.SECONDS);
+    }
+
+    //writes the archive of a settled game and deletes its live rows, returns false if there is no settled game to archive.
+    //the row of the game is locked first, a user that leaves the game at the same time waits and then finds the archive
+    public boolean archive(Long gameId) {
+        Game game = gameRepository.findLockedById(gameId).orElse(null);
+        if (game == null || game.getStatus() != GameStatus.FINISHED || !game.getSettled()){
+            return false;
+        }
+        game = gameRepository.findRoundById(gameId).orElseThrow();
+
+        GameArchive archive = new GameArchive();
+        archive.setId(game.getId());
+        archive.setVersion(game.getVersion());
+        archive.setToken(game.getToken());
+        archive.setScore(game.getScore());
+        archive.setRound(game.getRound());
+        archive.setUserIds(game.getUserIds());
+        archive.setState(writeJson(GameState.of(game)));
+        archive.setRounds(writeJson(gameHistoryService.replayRounds(gameId)));
+        gameArchiveRepository.save(archive);
+
+        //the ids of the rows the game refers to, read before the game is deleted
+        Long guessId = game.getGuess() == null ? null : game.getGuess().getId();
+        Long gameBoxId = game.getGameBox() == null ? null : game.getGameBox().getId();
+        Long activeCardId = game.hasActiveCard() ? game.getActiveCard().getId() : null;
+        List<Long> deckIds = new ArrayList<>();
+        if (game.getDeck() != null){
+            deckIds.add(game.getDeck().getId());
+        }
+        if (game.getCorrectlyGuessed() != null){
+            deckIds.add(game.getCorrectlyGuessed().getId());
+        }
+        //an empty in list is not valid sql
+        if (deckIds.isEmpty()){
+            deckIds.add(-1L);
+        }
+
+        //flushes the archive and clears the persistence context, so no loaded entity is flushed after its row is deleted
+        gameRepository.deleteUsersOfGame(gameId);
+        clueRepository.deleteByGameId(gameId);
+        gameRepository.deleteGameById(gameId);
+        if (guessId != null){
+            guessRepository.deleteGuessById(guessId);
+        }
+        cardRepository.deleteWordsOfCards(deckIds, gameBoxId, activeCardId);
+        cardRepository.deleteCards(deckIds, gameBoxId, activeCardId);
+        deckRepository.deleteDecksById(deckIds);
+        if (gameBoxId != null){
+            gameBoxRepository.deleteGameBoxById(gameBoxId);
+        }
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    public ArchivedGame getArchivedGame(Long gameId) {
+        GameArchive archive = gameArchiveRepository.findById(gameId)
+                .orElseThrow(() -> new GetRequestException404("No archived game was found!"));
+        return readArchive(archive);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ArchivedGame> getArchivedGamesOfUser(Long userId) {
+        List<ArchivedGame> archivedGames = new ArrayList<>();
+        for (GameArchive archive : gameArchiveRepository.findByUserId(userId)){
+            archivedGames.add(readArchive(archive));
+        }
+        return archivedGames;
+    }
+
+    private ArchivedGame readArchive(GameArchive archive) {
+        try {
+            GameState state = objectMapper.readValue(archive.getState(), GameState.class);
+            RoundResult[] rounds = objectMapper.readValue(archive.getRounds(), RoundResult[].class);
+            return new ArchivedGame(state, Arrays.asList(rounds));
+        }
+        catch (JsonProcessingException e) {
+            throw new SopraServiceException(String.format("The archive of game %d could not be read!", archive.getId()));
+        }
+    }
+
+    private String writeJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        }
+        catch (JsonProcessingException e) {
+            throw new SopraServiceException("The game archive could not be written!");
+        }
+    }
+}
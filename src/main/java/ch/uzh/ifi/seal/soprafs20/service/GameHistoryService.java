@@ -0,0 +1,233 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GameEventType;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.entity.game.GameEvent;
+import ch.uzh.ifi.seal.soprafs20.entity.game.GameSnapshot;
+import ch.uzh.ifi.seal.soprafs20.exceptions.SopraServiceException;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException404;
+import ch.uzh.ifi.seal.soprafs20.history.GameChangedEvent;
+import ch.uzh.ifi.seal.soprafs20.history.GameResult;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.history.RoundResult;
+import ch.uzh.ifi.seal.soprafs20.repository.GameEventRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.GameSnapshotRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GameHistory Service
+ * This class appends every change of a game to the event log, takes a snapshot of the game every
+ * SNAPSHOT_INTERVAL versions and rebuilds the state of a game at any version from the snapshots and events.
+ * Every appended change is also published as GameChangedEvent, so it can be pushed to the clients.
+ * A change that an update statement wrote is applied to the cached state of the game instead of loading the game.
+ */
+@Service
+@Transactional
+public class GameHistoryService {
+
+    public static final int SNAPSHOT_INTERVAL = 20;
+
+    private final GameEventRepository gameEventRepository;
+    private final GameSnapshotRepository gameSnapshotRepository;
+    private final GameRepository gameRepository;
+    private final GameViewCache gameViewCache;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public GameHistoryService(@Qualifier("gameEventRepository") GameEventRepository gameEventRepository,
+                              @Qualifier("gameSnapshotRepository") GameSnapshotRepository gameSnapshotRepository,
+                              @Qualifier("gameRepository") GameRepository gameRepository, GameViewCache gameViewCache,
+                              ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher) {
+        this.gameEventRepository = gameEventRepository;
+        this.gameSnapshotRepository = gameSnapshotRepository;
+        this.gameRepository = gameRepository;
+        this.gameViewCache = gameViewCache;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    //increases the version of the game and appends the change as event, the game must already contain the change
+    public GameEvent record(Game game, GameEventType type, Object payload) {
+        game.nextVersion();
+        GameEvent event = save(game.getId(), game.getVersion(), game.getPhase(), type, payload);
+        publish(event, GameState.of(game));
+        return event;
+    }
+
+    //appends a change that an update statement already wrote together with its version and returns the state after the change,
+    //the game is not loaded: the change is applied to the cached state of the game and only a game that is not cached is loaded
+    public GameState append(Long gameId, long version, GamePhase phase, GameEventType type, Object payload) {
+        GameEvent event = save(gameId, version, phase, type, payload);
+        GameState state = null;
+        GameViewCache.EncodedGame cachedGame = gameViewCache.getLatest(gameId);
+        if (cachedGame != null && cachedGame.getVersion() < version){
+            //the changes committed since the cached version, the row of the game is held by the update so no other change follows
+            List<GameEvent> events = cachedGame.getVersion() == version - 1 ? List.of(event)
+                    : getEvents(gameId, cachedGame.getVersion() + 1, version);
+            if (events.size() == version - cachedGame.getVersion()){
+                //a copy, the cached state is shared with the readers
+                state = readJson(writeJson(cachedGame.getState()), GameState.class);
+                for (GameEvent missedEvent : events){
+                    apply(state, missedEvent);
+                }
+            }
+        }
+        if (state == null){
+            state = GameState.of(gameRepository.findRoundById(gameId)
+                    .orElseThrow(() -> new GetRequestException404("No game was found!")));
+        }
+        publish(event, state);
+        return state;
+    }
+
+    //every event contains the phase after the change
+    private GameEvent save(Long gameId, long version, GamePhase phase, GameEventType type, Object payload) {
+        GameEvent event = new GameEvent();
+        event.setGameId(gameId);
+        event.setVersion(version);
+        event.setType(type);
+        ObjectNode payloadWithPhase = objectMapper.valueToTree(payload);
+        payloadWithPhase.put("phase", phase.name());
+        event.setPayload(writeJson(payloadWithPhase));
+        return gameEventRepository.save(event);
+    }
+
+    private void publish(GameEvent event, GameState state) {
+        if (event.getVersion() % SNAPSHOT_INTERVAL == 0){
+            GameSnapshot snapshot = new GameSnapshot();
+            snapshot.setGameId(event.getGameId());
+            snapshot.setVersion(event.getVersion());
+            snapshot.setState(writeJson(state));
+            gameSnapshotRepository.save(snapshot);
+        }
+        //the listeners get the event once the transaction is committed
+        eventPublisher.publishEvent(new GameChangedEvent(event.getGameId(), event.getVersion(), event.getType(), state));
+    }
+
+    //returns all events of the game with a version between the two given versions (both included)
+    @Transactional(readOnly = true)
+    public List<GameEvent> getEvents(Long gameId, long fromVersion, long toVersion) {
+        return gameEventRepository.findByGameIdAndVersionBetweenOrderByVersionAsc(gameId, fromVersion, toVersion);
+    }
+
+    //rebuilds the game at the given version, or at the latest version if no version is given
+    @Transactional(readOnly = true)
+    public GameState replay(Long gameId, Long version) {
+        GameEvent latestEvent = gameEventRepository.findFirstByGameIdOrderByVersionDesc(gameId);
+        if (latestEvent == null){
+            throw new GetRequestException404("No history was found for this game!");
+        }
+        long targetVersion = latestEvent.getVersion();
+        if (version != null){
+            if (version < 1 || version > targetVersion){
+                throw new GetRequestException404(String.format("The game has no version %d!", version));
+            }
+            targetVersion = version;
+        }
+
+        GameState state = new GameState();
+        GameSnapshot snapshot = gameSnapshotRepository.findFirstByGameIdAndVersionLessThanEqualOrderByVersionDesc(gameId, targetVersion);
+        if (snapshot != null){
+            state = readJson(snapshot.getState(), GameState.class);
+        }
+
+        for (GameEvent event : getEvents(gameId, state.getVersion() + 1, targetVersion)){
+            apply(state, event);
+        }
+        return state;
+    }
+
+    //replays the whole game and returns the result of every round, taken right after the guess of the round
+    @Transactional(readOnly = true)
+    public List<RoundResult> replayRounds(Long gameId) {
+        return replayResult(gameId).getRounds();
+    }
+
+    //replays the whole game and returns the users at the time it was finished, users that leave the finished game are still
+    //part of the result. the users are null if the game was not finished
+    @Transactional(readOnly = true)
+    public GameResult replayResult(Long gameId) {
+        GameState state = new GameState();
+        List<Long> userIds = null;
+        List<RoundResult> rounds = new ArrayList<>();
+        for (GameEvent event : getEvents(gameId, 1, Long.MAX_VALUE)){
+            apply(state, event);
+            if (event.getType() == GameEventType.GUESS_MADE || event.getType() == GameEventType.GUESS_SKIPPED){
+                rounds.add(RoundResult.of(state));
+            }
+            else if (event.getType() == GameEventType.FINISHED){
+                userIds = new ArrayList<>(state.getUserIds());
+            }
+        }
+        return new GameResult(userIds, rounds);
+    }
+
+    //applies one event to the state, the payload contains the new values of all changed fields
+    private void apply(GameState state, GameEvent event) {
+        JsonNode payload = readJson(event.getPayload(), JsonNode.class);
+
+        switch (event.getType()){
+            case USER_JOINED:
+                state.getUserIds().add(payload.get("userId").asLong());
+                break;
+            case USER_LEFT:
+                state.getUserIds().remove(Long.valueOf(payload.get("userId").asLong()));
+                break;
+            case CLUE_ADDED:
+                state.getClues().add(objectMapper.convertValue(payload, GameState.ClueState.class));
+                break;
+            case CLUES_CHECKED:
+                for (JsonNode clue : payload.get("invalidClues")){
+                    state.setClueToInvalid(clue.asText());
+                }
+                break;
+            case FINISHED:
+            case TURN_RESET:
+                state.resetRound();
+                break;
+            default:
+                break;
+        }
+
+        //all other fields of the payload are new values of the state
+        try {
+            objectMapper.readerForUpdating(state).readValue(payload);
+        }
+        catch (IOException e) {
+            throw new SopraServiceException(String.format("The event %d of game %d could not be replayed!", event.getVersion(), event.getGameId()));
+        }
+        state.setVersion(event.getVersion());
+    }
+
+    private String writeJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        }
+        catch (JsonProcessingException e) {
+            throw new SopraServiceException("The game history could not be written!");
+        }
+    }
+
+    private <T> T readJson(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        }
+        catch (JsonProcessingException e) {
+            throw new SopraServiceException("The game history could not be read!");
+        }
+    }
+}
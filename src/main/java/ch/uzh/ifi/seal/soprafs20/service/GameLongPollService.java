@@ -0,0 +1,163 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.history.GameChangedEvent;
+import ch.uzh.ifi.seal.soprafs20.history.JsonPatch;
+import ch.uzh.ifi.seal.soprafs20.service.GameViewCache.EncodedGame;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * GameLongPoll Service
+ * This class parks read requests with a sinceVersion until the game moves past that version or LONG_POLL_TIMEOUT_MILLIS
+ * expired. The answers are the encoded views of the latest committed version from the GameViewCache, so a parked request
+ * neither holds a request thread nor touches the database. The waiters are woken by the commit of the change, and a game
+ * is only kept in the waiters while a request waits for it.
+ * In delta mode the answer is the JSON patch from sinceVersion if the game moved exactly one version further,
+ * otherwise the whole view is sent. The content type tells the client which one it got.
+ */
+@Service
+public class GameLongPollService {
+
+    public static final String GAME_VERSION_HEADER = "Game-Version";
+    public static final long LONG_POLL_TIMEOUT_MILLIS = 30000;
+
+    private final GameService gameService;
+    private final GameViewCache gameViewCache;
+    private final Map<Long, List<Waiter>> waiters = new ConcurrentHashMap<>();
+
+    public GameLongPollService(GameService gameService, GameViewCache gameViewCache) {
+        this.gameService = gameService;
+        this.gameViewCache = gameViewCache;
+    }
+
+    //answers right away if the game is newer than sinceVersion, otherwise with the first newer version or the current one on timeout
+    public DeferredResult<ResponseEntity<byte[]>> await(Long gameId, long sinceVersion, String view, boolean delta) {
+        DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>(LONG_POLL_TIMEOUT_MILLIS);
+
+        EncodedGame latestGame = gameViewCache.getLatest(gameId);
+        //the first request of a game after a restart is answered right away from the database, only requests
+        //that never touched the database are parked
+        Waiter waiter = new Waiter(sinceVersion, view, delta, result);
+        if (latestGame == null){
+            result.setResult(respond(gameViewCache.publish(gameService.getGameState(gameId)), waiter));
+            return result;
+        }
+        if (latestGame.getVersion() > sinceVersion){
+            result.setResult(respond(latestGame, waiter));
+            return result;
+        }
+
+        List<Waiter> gameWaiters = park(gameId, waiter, latestGame);
+        if (gameWaiters == null){
+            return result;
+        }
+        result.onTimeout(() -> {
+            synchronized (gameWaiters){
+                gameWaiters.remove(waiter);
+                removeIfEmpty(gameId, gameWaiters);
+            }
+            result.setResult(respond(latestOrElse(gameId, latestGame), waiter));
+        });
+        return result;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onGameChanged(GameChangedEvent event) {
+        List<Waiter> gameWaiters = waiters.get(event.getGameId());
+        if (gameWaiters == null){
+            return;
+        }
+        EncodedGame encodedGame = gameViewCache.publish(event.getState());
+        synchronized (gameWaiters){
+            Iterator<Waiter> iterator = gameWaiters.iterator();
+            while (iterator.hasNext()){
+                Waiter waiter = iterator.next();
+                if (encodedGame.getVersion() > waiter.sinceVersion){
+                    waiter.result.setResult(respond(encodedGame, waiter));
+                    iterator.remove();
+                }
+            }
+            removeIfEmpty(event.getGameId(), gameWaiters);
+        }
+    }
+
+    //whether requests are parked for the game
+    boolean isAwaited(Long gameId) {
+        return waiters.containsKey(gameId);
+    }
+
+    //adds the waiter to the waiters of the game, returns null if the game moved past its version and it was answered
+    private List<Waiter> park(Long gameId, Waiter waiter, EncodedGame latestGame) {
+        while (true){
+            List<Waiter> gameWaiters = waiters.computeIfAbsent(gameId, id -> new ArrayList<>());
+            synchronized (gameWaiters){
+                //an emptied list was removed meanwhile, a waiter added to it would never be woken
+                if (waiters.get(gameId) != gameWaiters){
+                    continue;
+                }
+                //the game could have changed since the cache was read
+                EncodedGame currentGame = latestOrElse(gameId, latestGame);
+                if (currentGame.getVersion() > waiter.sinceVersion){
+                    waiter.result.setResult(respond(currentGame, waiter));
+                    removeIfEmpty(gameId, gameWaiters);
+                    return null;
+                }
+                gameWaiters.add(waiter);
+                return gameWaiters;
+            }
+        }
+    }
+
+    //the lists of games nobody waits for are removed, called while holding the list
+    private void removeIfEmpty(Long gameId, List<Waiter> gameWaiters) {
+        if (gameWaiters.isEmpty()){
+            waiters.remove(gameId, gameWaiters);
+        }
+    }
+
+    //the game may have been evicted from the cache meanwhile, then the given version is the latest one this waiter knows
+    private EncodedGame latestOrElse(Long gameId, EncodedGame knownGame) {
+        EncodedGame latestGame = gameViewCache.getLatest(gameId);
+        return latestGame != null ? latestGame : knownGame;
+    }
+
+    private static ResponseEntity<byte[]> respond(EncodedGame encodedGame, Waiter waiter) {
+        byte[] patch = waiter.delta && encodedGame.getVersion() == waiter.sinceVersion + 1 ? encodedGame.getPatch(waiter.view) : null;
+        if (patch != null){
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(JsonPatch.MEDIA_TYPE))
+                    .header(GAME_VERSION_HEADER, String.valueOf(encodedGame.getVersion()))
+                    .body(patch);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(GAME_VERSION_HEADER, String.valueOf(encodedGame.getVersion()))
+                .body(encodedGame.getView(waiter.view));
+    }
+
+    //a parked request, the view it waits for and whether it accepts a patch
+    private static class Waiter {
+
+        private final long sinceVersion;
+        private final String view;
+        private final boolean delta;
+        private final DeferredResult<ResponseEntity<byte[]>> result;
+
+        private Waiter(long sinceVersion, String view, boolean delta, DeferredResult<ResponseEntity<byte[]>> result) {
+            this.sinceVersion = sinceVersion;
+            this.view = view;
+            this.delta = delta;
+            this.result = result;
+        }
+    }
+}
@@ -2,16 +2,30 @@ package ch.uzh.ifi.seal.soprafs20.service;
 
 import ch.uzh.ifi.seal.soprafs20.cluechecker.ClueChecker;
 import ch.uzh.ifi.seal.soprafs20.constant.ChosenWordStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.ClueStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GameCommand;
+import ch.uzh.ifi.seal.soprafs20.constant.GameEventType;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
 import ch.uzh.ifi.seal.soprafs20.constant.GuessStatus;
+import ch.uzh.ifi.seal.soprafs20.entity.User;
 import ch.uzh.ifi.seal.soprafs20.entity.game.*;
 import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException404;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.post.PostRequestException400;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.post.PostRequestException409;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.put.PutRequestException400;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.put.PutRequestException404;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.put.PutRequestException409;
-import ch.uzh.ifi.seal.soprafs20.repository.*;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.put.PutRequestException410;
+import ch.uzh.ifi.seal.soprafs20.history.GameResult;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.history.RoundResult;
+import ch.uzh.ifi.seal.soprafs20.repository.ClueRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.GameArchiveRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.GameCountersView;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
 import ch.uzh.ifi.seal.soprafs20.rest.dto.ChosenWordPutDTO;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -33,30 +47,72 @@ public class GameService {
     public static final int TIME_GUESS = 15;
 
     private final GameRepository gameRepository;
-    private final GuessRepository guessRepository;
     private final ClueRepository clueRepository;
+    private final GameArchiveRepository gameArchiveRepository;
+    private final GameHistoryService gameHistoryService;
+    private final UserService userService;
 
     private final Logger log = LoggerFactory.getLogger(GameService.class);
 
 
-    public GameService(@Qualifier("gameRepository") GameRepository gameRepository, GuessRepository guessRepository, @Qualifier("clueRepository") ClueRepository clueRepository) {
+    public GameService(@Qualifier("gameRepository") GameRepository gameRepository, @Qualifier("clueRepository") ClueRepository clueRepository,
+                       @Qualifier("gameArchiveRepository") GameArchiveRepository gameArchiveRepository,
+                       GameHistoryService gameHistoryService, UserService userService) {
         this.gameRepository = gameRepository;
-        this.guessRepository = guessRepository;
         this.clueRepository = clueRepository;
+        this.gameArchiveRepository = gameArchiveRepository;
+        this.gameHistoryService = gameHistoryService;
+        this.userService = userService;
     }
 
+    @Transactional(readOnly = true)
     public List<Game> getGames() {
         return this.gameRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Game getGameById(Long id){
-        Game gameById = gameRepository.findById(id).orElse(null);
+        Game gameById = gameRepository.findWithUsersById(id).orElse(null);
         if (gameById == null){
             throw new GetRequestException404("No game was found!");
         }
         return gameById;
     }
 
+    @Transactional(readOnly = true)
+    public long getGameVersion(Long id) {
+        return gameRepository.findVersionById(id).orElseThrow(() -> new GetRequestException404("No game was found!"));
+    }
+
+    //loads the game together with everything of the current turn in one read-only transaction
+    @Transactional(readOnly = true)
+    public Game getRound(Long id) {
+        Game gameById = gameRepository.findRoundById(id).orElseThrow(() -> new GetRequestException404("No game was found!"));
+        Hibernate.initialize(gameById.getClues());
+        return gameById;
+    }
+
+    //loads the game with its clues, the clues view is mapped after the transaction
+    @Transactional(readOnly = true)
+    public Game getGameWithClues(Long id) {
+        Game gameById = getGameById(id);
+        Hibernate.initialize(gameById.getClues());
+        return gameById;
+    }
+
+    //loads the active card with its words but without drawing a new one, answers 404 if no card was drawn yet
+    @Transactional(readOnly = true)
+    public Card getCurrentCard(Long id) {
+        Game gameById = gameRepository.findRoundById(id).orElseThrow(() -> new GetRequestException404("No game was found!"));
+        return gameById.getActiveCard();
+    }
+
+    //copies the current state of the game, used by clients to catch up after a reconnect
+    @Transactional(readOnly = true)
+    public GameState getGameState(Long id) {
+        return GameState.of(getGameById(id));
+    }
+
     public Game createGame(Game newGame) throws FileNotFoundException {
         Game createdGame = createGameElements(newGame);
         createdGame.setToken(UUID.randomUUID().toString());
@@ -65,11 +121,12 @@ public class GameService {
         createdGame.setScore(0);
         createdGame.setRound(1);
         createdGame.setWordStatus(ChosenWordStatus.NOCHOSENWORD);
+        createdGame.setPhase(GamePhase.LOBBY);
         createdGame.addUserId(createdGame.getCurrentUserId());
 
-        // saves the given entity but data is only persisted in the database once flush() is called
+        // saves the given entity, the data is flushed to the database once when the transaction commits
         Game savedGame = gameRepository.save(createdGame);
-        gameRepository.flush();
+        gameHistoryService.record(savedGame, GameEventType.CREATED, GameState.of(savedGame));
 
         log.debug("Created Information for Game: {}", newGame);
         return savedGame;
@@ -81,14 +138,16 @@ public class GameService {
         if (gameById.getStatus() != GameStatus.CREATED){
             throw new PutRequestException409("This game has already started or finished!");
         }
+        checkPhase(gameById, GameCommand.START);
         gameById.setStatus(GameStatus.RUNNING);
+        gameById.setPhase(GamePhase.DRAW_CARD);
 
         //check and set if it is a game with 3 players or more than 3 players
-        gameById.setNormalMode(gameById.getUserIds().size() != 3);
+        gameById.setNormalMode(gameById.getUserCount() != 3);
+        gameHistoryService.record(gameById, GameEventType.STARTED, changes("status", GameStatus.RUNNING, "normalMode", gameById.getNormalMode()));
 
-        // saves the given entity but data is only persisted in the database once flush() is called
+        // saves the given entity, the data is flushed to the database once when the transaction commits
         Game savedGame = gameRepository.save(gameById);
-        gameRepository.flush();
 
         return savedGame;
     }
@@ -100,48 +159,103 @@ public class GameService {
         if (gameById.getStatus() != GameStatus.RUNNING){
             throw new PutRequestException409("This game is currently not running!");
         }
+        checkPhase(gameById, GameCommand.FINISH);
 
         gameById.setStatus(GameStatus.FINISHED);
         Game resetGame = resetGameFields(gameById);
+        resetGame.setPhase(GamePhase.FINISHED);
+        gameHistoryService.record(resetGame, GameEventType.FINISHED, changes("status", GameStatus.FINISHED, "currentUserId", resetGame.getCurrentUserId()));
 
         Game savedGame = gameRepository.save(resetGame);
-        gameRepository.flush();
 
         return savedGame;
     }
 
+    //settles the scores of all users of a finished game in the same transaction, a game is only settled once
+    public List<User> settleGame(Long id) {
+        Game gameById = getGameById(id);
+
+        if (gameById.getStatus() != GameStatus.FINISHED){
+            throw new PutRequestException409("This game is not finished yet!");
+        }
+        if (gameRepository.markSettled(id, GameStatus.FINISHED) == 0){
+            throw new PutRequestException409("The scores of this game are already settled!");
+        }
+        //the settled game can be archived, the row is locked by the update above until the end of this transaction
+        long version = gameRepository.findVersionById(id).orElseThrow(() -> new GetRequestException404("No game was found!"));
+        gameHistoryService.append(id, version, gameById.getPhase(), GameEventType.SETTLED, changes("settled", true));
+
+        return settleScores(gameById);
+    }
+
+    //the users, their correctly guessed words and the duplicate clues they gave are replayed from the history, so users
+    //that left the finished game are settled too and no number reported by a client is counted
+    private List<User> settleScores(Game game) {
+        GameResult result = gameHistoryService.replayResult(game.getId());
+        Map<Long, Integer> correctGuessesByUser = new LinkedHashMap<>();
+        Map<Long, Integer> duplicateCluesByUser = new LinkedHashMap<>();
+        for (Long userId : result.getUserIds() == null ? game.getUserIds() : result.getUserIds()){
+            correctGuessesByUser.put(userId, 0);
+            duplicateCluesByUser.put(userId, 0);
+        }
+        for (RoundResult round : result.getRounds()){
+            if (round.getGuessStatus() == GuessStatus.CORRECT && correctGuessesByUser.containsKey(round.getGuesserId())){
+                correctGuessesByUser.merge(round.getGuesserId(), 1, Integer::sum);
+            }
+            //only the user that gave a duplicate clue pays for it
+            for (GameState.ClueState clue : round.getClues()){
+                if (clue.getValid() == ClueStatus.DUPLICATE && duplicateCluesByUser.containsKey(clue.getUserId())){
+                    duplicateCluesByUser.merge(clue.getUserId(), 1, Integer::sum);
+                }
+            }
+        }
+
+        return userService.settleScores(game.getScore(), correctGuessesByUser, duplicateCluesByUser);
+    }
+
     //add a user to an existing game
     public Game addUserToGame(Long gameId, Long userId) {
         Game gameById = getGameById(gameId);
 
-        if (gameById.getUserIds().contains(userId)){
+        if (gameById.getSeats().containsValue(userId)){
             throw new PutRequestException409("The user has already joined the game!");
         }
+        checkPhase(gameById, GameCommand.JOIN);
         gameById.addUserId(userId);
+        gameHistoryService.record(gameById, GameEventType.USER_JOINED, changes("userId", userId));
 
         Game savedGame = gameRepository.save(gameById);
-        gameRepository.flush();
 
         return savedGame;
     }
 
     //remove a user from an existing game
     public Game removeUserFromGame(Long gameId, Long userId) {
+        //the row is locked until the end of this transaction, so the game is not archived while the user leaves it
+        if (gameRepository.findLockedById(gameId).isEmpty()){
+            if (gameArchiveRepository.existsById(gameId)){
+                throw new PutRequestException410("This game is archived, it can no longer be left!");
+            }
+            throw new GetRequestException404("No game was found!");
+        }
         Game gameById = getGameById(gameId);
+        checkPhase(gameById, GameCommand.LEAVE);
         gameById.removeUserId(userId);
+        gameHistoryService.record(gameById, GameEventType.USER_LEFT, changes("userId", userId));
 
         Game savedGame = gameRepository.save(gameById);
-        gameRepository.flush();
 
         return savedGame;
     }
 
     public Game resetGameStats(Long gameId){
         Game gameById = getGameById(gameId);
+        checkPhase(gameById, GameCommand.RESET);
         Game updatedGame = resetGameFields(gameById);
+        updatedGame.setPhase(GamePhase.DRAW_CARD);
+        gameHistoryService.record(updatedGame, GameEventType.TURN_RESET, changes("currentUserId", updatedGame.getCurrentUserId()));
 
         Game savedGame = gameRepository.save(updatedGame);
-        gameRepository.flush();
 
         return savedGame;
     }
@@ -149,11 +263,14 @@ public class GameService {
     //fetch game by id from the repository and get the top card from the deck as active card
     public Card getActiveCard(Long id) {
         Game gameById = getGameById(id);
+        checkPhase(gameById, GameCommand.DRAW_CARD);
 
         gameById.setActiveCardFromDeck();
+        gameById.setPhase(GamePhase.CHOOSE_WORD);
+        gameHistoryService.record(gameById, GameEventType.CARD_DRAWN,
+                changes("activeCardWords", gameById.getActiveCard().getMysteryWords(), "deckSize", gameById.getDeckSize()));
 
         Game savedGame = gameRepository.save(gameById);
-        gameRepository.flush();
 
         return savedGame.getActiveCard();
     }
@@ -161,6 +278,7 @@ public class GameService {
     //fetch game by id from the repository and set the word of it's active card, which matches the id in cardPutDTo, to true
     public Game setChosenWord(Long id, String chosenWord) throws Exception {
         Game gameById = getGameById(id);
+        checkPhase(gameById, GameCommand.CHOOSE_WORD);
 
         if (gameById.getActiveCard()== null){
             throw new PutRequestException404("This game contains no active card!");
@@ -173,63 +291,60 @@ public class GameService {
         gameById.setChosenWord(chosenWord);
         gameById.setWordStatus(ChosenWordStatus.SELECTED);
         gameById.setChosenWordCounter(0);
+        //the other users can only vote if no word has been rejected during this turn yet
+        gameById.setPhase(gameById.getChangeWord() ? GamePhase.VOTE_WORD : GamePhase.GIVE_CLUES);
+        gameHistoryService.record(gameById, GameEventType.WORD_CHOSEN,
+                changes("chosenWord", chosenWord, "wordStatus", ChosenWordStatus.SELECTED, "chosenWordCounter", 0));
         gameById = gameRepository.save(gameById);
-        gameRepository.flush();
 
         return gameById;
     }
 
-    public Game updateChosenWord(Long id, ChosenWordPutDTO chosenWordPutDTO) {
-        Game gameById = getGameById(id);
-
-        //check if during this turn, a word has already been rejected
-        if (!gameById.getChangeWord()){
-            throw new PutRequestException409("You can only reject one word per turn!");
+    public GameState updateChosenWord(Long id, ChosenWordPutDTO chosenWordPutDTO) {
+        //count the vote with a single conditional update, so concurrent votes can't overwrite each other
+        int updatedRows;
+        if (chosenWordPutDTO.getStatus()){
+            updatedRows = gameRepository.incrementChosenWordCounter(id, GamePhase.VOTE_WORD);
         }
-        //check if the current word has been rejected by every user
-        if (gameById.getUserIds().size() - 1 == gameById.getChosenWordCounter()){
-            throw new PutRequestException409("The chosen word has already been checked by every user!");
+        else {
+            updatedRows = gameRepository.incrementChosenWordCounterAndReject(id, GamePhase.VOTE_WORD, ChosenWordStatus.REJECTED);
         }
 
-        gameById.addWordCounter();
-
-        //word is already rejected
-        if (gameById.getWordStatus() == ChosenWordStatus.REJECTED){
-            //current user is the last user to reject or accept
-            if (gameById.getUserIds().size() - 1 == gameById.getChosenWordCounter()){
-                gameById.setWordStatus(ChosenWordStatus.REJECTEDBYALL);
-                gameById.setChangeWord(false);
+        if (updatedRows == 0){
+            Game gameById = getGameById(id);
+            //check if during this turn, a word has already been rejected
+            if (!gameById.getChangeWord()){
+                throw new PutRequestException409("You can only reject one word per turn!");
             }
-            gameById = gameRepository.save(gameById);
-            gameRepository.flush();
-            return gameById;
-        }
-        //word get's rejected by current user
-        if (!chosenWordPutDTO.getStatus()){
-            //current user is the last user to reject
-            if (gameById.getUserIds().size() - 1 == gameById.getChosenWordCounter()){
-                gameById.setWordStatus(ChosenWordStatus.REJECTEDBYALL);
-                gameById.setChangeWord(false);
+            checkPhase(gameById, GameCommand.VOTE_WORD);
+            //the current word has been checked by every user
+            throw new PutRequestException409("The chosen word has already been checked by every user!");
+        }
+
+        //the row is locked by the update above until the end of this transaction, so the counters are the ones of this vote
+        GameCountersView counters = gameRepository.findCountersById(id).orElseThrow(() -> new GetRequestException404("No game was found!"));
+        ChosenWordStatus wordStatus = counters.getWordStatus();
+        GamePhase phase = counters.getPhase();
+        boolean changeWord = counters.getChangeWord();
+
+        //current user is the last user to reject or accept
+        if (counters.getUserCount() - 1 == counters.getChosenWordCounter()){
+            //a rejected word has to be replaced by another word of the active card
+            if (wordStatus == ChosenWordStatus.REJECTED){
+                wordStatus = ChosenWordStatus.REJECTEDBYALL;
+                phase = GamePhase.CHOOSE_WORD;
             }
             else {
-                gameById.setWordStatus(ChosenWordStatus.REJECTED);
+                wordStatus = ChosenWordStatus.ACCEPTED;
+                phase = GamePhase.GIVE_CLUES;
             }
-            gameById = gameRepository.save(gameById);
-            gameRepository.flush();
-            return gameById;
-        }
-        //word is accepted by all users
-        if (chosenWordPutDTO.getStatus() && gameById.getUserIds().size() - 1 == gameById.getChosenWordCounter()){
-            gameById.setWordStatus(ChosenWordStatus.ACCEPTED);
-            gameById.setChangeWord(false);
-            gameById = gameRepository.save(gameById);
-            gameRepository.flush();
-            return gameById;
-        }
-        //word is accepted but not all users have made their decision yet
-        gameById = gameRepository.save(gameById);
-        gameRepository.flush();
-        return gameById;
+            changeWord = false;
+            gameRepository.finishWordVote(id, wordStatus, phase);
+        }
+
+        //the version was already increased by the update
+        return gameHistoryService.append(id, counters.getVersion(), phase, GameEventType.WORD_VOTED, changes("wordStatus", wordStatus,
+                "changeWord", changeWord, "chosenWordCounter", counters.getChosenWordCounter()));
     }
 
     //checks a clue with the parser, sets the clue as valid or invalid and adds it to the games clue list
@@ -237,19 +352,33 @@ public class GameService {
         Game gameById = getGameById(id);
 
         //game with 3 users
-        if(!gameById.getNormalMode() && 2 * (gameById.getUserIds().size() - 1) == gameById.getClueCounter()){
+        if(!gameById.getNormalMode() && 2 * (gameById.getUserCount() - 1) == gameById.getClueCounter()){
             String message = "There are already as many clues as users! Therefore, this clue can't be added!";
             throw new PutRequestException409(message);
         }
         //game with more than 3 users
-        else if (gameById.getNormalMode() && gameById.getUserIds().size() - 1 == gameById.getClues().size()){
+        else if (gameById.getNormalMode() && gameById.getUserCount() - 1 == gameById.getClues().size()){
             String message = "There are already as many clues as users! Therefore, this clue can't be added!";
             throw new PostRequestException409(message);
         }
 
+        checkPhase(gameById, GameCommand.ADD_CLUE);
+
+        //a duplicate clue is charged to the user that gave it, the guesser gives no clues
+        Long clueUserId = clueInput.getUserId();
+        if (clueUserId == null || !gameById.getSeats().containsValue(clueUserId) || clueUserId.equals(gameById.getCurrentUserId())){
+            throw new PostRequestException400("A clue needs the id of a user of this game that is not guessing!");
+        }
+
         Clue checkedClue = ClueChecker.checkClue(clueInput, gameById);
         gameById.addClue(checkedClue);
 
+        //in a game with 3 users every user gives two clues
+        int amountOfClues = gameById.getNormalMode() ? gameById.getUserCount() - 1 : 2 * (gameById.getUserCount() - 1);
+        if (gameById.getClues().size() == amountOfClues){
+            gameById.setPhase(GamePhase.CHECK_CLUES);
+        }
+
         //user ran out off time while giving a clue
         if (checkedClue.getTime() == -1){
             gameById.addScoreToCard(0);
@@ -261,33 +390,46 @@ public class GameService {
         else {
             gameById.addScoreToCard(MIN_POINTS);
         }
+        gameHistoryService.record(gameById, GameEventType.CLUE_ADDED, changes("clueWord", checkedClue.getClueWord(),
+                "valid", checkedClue.getValid(), "time", checkedClue.getTime(), "userId", clueUserId));
 
         gameRepository.save(gameById);
-        gameRepository.flush();
         return checkedClue;
     }
 
-    public Game setCluesToInvalid(Long id, List<String> cluesToDelete){
-        Game gameById = getGameById(id);
-
-        if (gameById.getUserIds().size() - 1 == gameById.getClueCounter()){
+    public GameState setCluesToInvalid(Long id, List<String> cluesToDelete){
+        //count the check with a single conditional update, so concurrent checks can't overwrite each other
+        if (gameRepository.incrementManualClueCounter(id, GamePhase.CHECK_CLUES) == 0){
+            Game gameById = getGameById(id);
+            if (gameById.getUserCount() - 1 > gameById.getClueCounter()){
+                checkPhase(gameById, GameCommand.CHECK_CLUES);
+            }
             String message = "Everyone checked the clues already!";
             throw new PutRequestException409(message);
         }
 
-        for (String clue : cluesToDelete){
-            gameById.setClueToInvalid(clue);
+        if (!cluesToDelete.isEmpty()){
+            clueRepository.updateValidOfClues(id, cluesToDelete, ClueStatus.INVALID);
         }
 
-        gameById.addManualClueCounter();
-        gameById = gameRepository.save(gameById);
-        gameRepository.flush();
+        //the row is locked by the update above until the end of this transaction, so the counters are the ones of this check
+        GameCountersView counters = gameRepository.findCountersById(id).orElseThrow(() -> new GetRequestException404("No game was found!"));
+        GamePhase phase = counters.getPhase();
 
-        return gameById;
+        //the last check reveals the clues to the guesser
+        if (counters.getUserCount() - 1 == counters.getManualClueCounter()){
+            phase = GamePhase.GUESS;
+            gameRepository.updatePhase(id, phase);
+        }
+
+        //the version was already increased by the update
+        return gameHistoryService.append(id, counters.getVersion(), phase, GameEventType.CLUES_CHECKED,
+                changes("invalidClues", cluesToDelete, "manualClueCounter", counters.getManualClueCounter()));
     }
 
     public Game skipGuessing(Long id) {
         Game gameById = getGameById(id);
+        checkPhase(gameById, GameCommand.SKIP);
 
         //move active card to game box
         gameById.getGameBox().addCard(gameById.getActiveCard());
@@ -297,15 +439,18 @@ public class GameService {
         guess.setGuessStatus(GuessStatus.WRONG);
         gameById.setGuess(guess);
         gameById.addRound();
+        gameById.setPhase(GamePhase.TURN_END);
+        gameHistoryService.record(gameById, GameEventType.GUESS_SKIPPED, changes("guessWord", guess.getGuessWord(),
+                "guessStatus", guess.getGuessStatus(), "guessTime", 0, "round", gameById.getRound()));
 
         gameById = gameRepository.save(gameById);
-        gameRepository.flush();
 
         return gameById;
     }
 
+    @Transactional(readOnly = true)
     public Guess getGuess(Long id){
-        Game gameById = getGameById(id);
+        Game gameById = gameRepository.findWithGuessById(id).orElseThrow(() -> new GetRequestException404("No game was found!"));
         Guess guess = gameById.getGuess();
         if (guess == null){
             guess = new Guess();
@@ -318,6 +463,7 @@ public class GameService {
 
     public Guess makeGuess(Long id, Guess guessInput) {
         Game gameById = getGameById(id);
+        checkPhase(gameById, GameCommand.GUESS);
 
         if (gameById.getGuess() != null){
             throw new PostRequestException409("A guess has already been made this round!");
@@ -356,14 +502,17 @@ public class GameService {
         }
         gameById.setGuess(guessInput);
         gameById.addRound();
+        gameById.setPhase(GamePhase.TURN_END);
 
         //count all the total amount of points gained by all users
         for (Card card : gameById.getCorrectlyGuessed().getCardList()){
             gameById.addScore(card.getScore());
         }
+        gameHistoryService.record(gameById, GameEventType.GUESS_MADE, changes("guessWord", guessInput.getGuessWord(),
+                "guessStatus", guessInput.getGuessStatus(), "guessTime", guessInput.getTime(), "round", gameById.getRound(),
+                "score", gameById.getScore(), "deckSize", gameById.getDeckSize()));
 
         gameRepository.save(gameById);
-        gameRepository.flush();
 
         return guessInput;
     }
@@ -381,31 +530,36 @@ public class GameService {
         //reset clue counter
         gameInput.setManualClueCounter(0);
 
-        //delete all clues
-        clueRepository.deleteAll();
-        gameInput.setClues(new ArrayList<>());
+        //delete all clues of this game
+        gameInput.clearClues();
 
 
-        //pass the turn to the next user
-        int index = getUserIndex(gameInput);
-        gameInput.setCurrentUserId(gameInput.getUserIds().get(index));
+        //pass the turn to the user on the next seat
+        gameInput.passTurn();
 
         //reset this so users can reject a chosen word again
         gameInput.setChangeWord(true);
 
-        guessRepository.deleteAll();
+        //delete the guess of this game
         gameInput.setGuess(null);
 
         return gameInput;
     }
 
-    //returns the index for the list of userIds, so that the new currentUserId can be set correctly
-    public int getUserIndex(Game game) {
-        int currentUserIndex = game.getUserIds().indexOf(game.getCurrentUserId());
-        if (currentUserIndex + 1 == game.getUserIds().size()) {
-            return 0;
+    //checks with the transition table of the current phase if the command is allowed
+    private void checkPhase(Game game, GameCommand command) {
+        if (!game.getPhase().allows(command)){
+            throw new PutRequestException409(String.format("The command %s is not allowed in the phase %s of this game!", command, game.getPhase()));
+        }
+    }
+
+    //collects the changed fields of a game as key value pairs for the game history
+    private static Map<String, Object> changes(Object... keysAndValues) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2){
+            changes.put((String) keysAndValues[i], keysAndValues[i + 1]);
         }
-        return currentUserIndex + 1;
+        return changes;
     }
 
     private Game createGameElements(Game newGame) throws FileNotFoundException {
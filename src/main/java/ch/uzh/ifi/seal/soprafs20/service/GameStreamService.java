@@ -0,0 +1,512 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.ApiRequestException;
+import ch.uzh.ifi.seal.soprafs20.history.GameChangedEvent;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.StreamMetricsGetDTO;
+import ch.uzh.ifi.seal.soprafs20.service.GameViewCache.EncodedGame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GameStream Service
+ * This class holds the Server-Sent Event streams of the games. Every committed change of a game is sent as typed events
+ * (game, chosenword, clues, guess) to all open streams of the game, the id of the events is the version of the game.
+ * The data of the events is the JSON from the GameViewCache, it is encoded once for all subscribers.
+ * The last REPLAY_BUFFER_SIZE changes of a game are kept, so a client that reconnects with a Last-Event-ID only gets
+ * the changes it missed. Open streams are async requests and do not hold a thread.
+ * A change sends every view whose JSON changed. A stream in delta mode gets the JSON patch of a view from the previous
+ * version (events game-patch, clues-patch, ...) instead of the whole view whenever the patch is cached and the stream
+ * got the previous version. The client has every view of the previous version then, because the views it did not
+ * get with a version did not change.
+ * The commit only queues a change for every subscriber, the events are written by the SEND_THREADS sender threads.
+ * The queue of a subscriber holds at most MAX_QUEUED_UPDATES changes. When a slow subscriber overflows it, the queued
+ * changes are dropped and the subscriber gets the whole latest state instead, a subscriber that overflows MAX_OVERFLOWS
+ * times within OVERFLOW_WINDOW_MILLIS is disconnected and has to resume with its Last-Event-ID.
+ * A write to a client that does not read blocks its sender until the connector times it out. A subscriber whose write
+ * takes longer than SEND_TIMEOUT_MILLIS is disconnected and another sender thread takes over the other streams until
+ * the blocked write returns, at most SEND_THREADS senders are replaced at a time.
+ */
+@Service
+public class GameStreamService {
+
+    public static final int REPLAY_BUFFER_SIZE = 50;
+    public static final long STREAM_TIMEOUT_MILLIS = 30L * 60 * 1000;
+    public static final long HEARTBEAT_SECONDS = 15;
+    public static final long IDLE_STREAM_MILLIS = 10L * 60 * 1000;
+    public static final String PATCH_EVENT_SUFFIX = "-patch";
+    public static final int SEND_THREADS = 8;
+    public static final int MAX_QUEUED_UPDATES = 16;
+    public static final int MAX_OVERFLOWS = 3;
+    public static final long OVERFLOW_WINDOW_MILLIS = 60L * 1000;
+    public static final long SEND_TIMEOUT_MILLIS = 5000;
+
+    private final Logger log = LoggerFactory.getLogger(GameStreamService.class);
+
+    private final GameService gameService;
+    private final GameViewCache gameViewCache;
+    private final Map<Long, GameStream> streams = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeatExecutor;
+    private final ThreadPoolExecutor sendExecutor;
+    //senders that are added for writes blocked longer than SEND_TIMEOUT_MILLIS, guarded by the executor
+    private int replacedSenders;
+
+    private final AtomicLong sentUpdates = new AtomicLong();
+    private final AtomicLong droppedUpdates = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+    private final AtomicLong disconnects = new AtomicLong();
+
+    public GameStreamService(GameService gameService, GameViewCache gameViewCache) {
+        this.gameService = gameService;
+        this.gameViewCache = gameViewCache;
+        this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatExecutor.scheduleAtFixedRate(this::sendHeartbeats, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        heartbeatExecutor.scheduleAtFixedRate(this::checkSends, SEND_TIMEOUT_MILLIS / 5, SEND_TIMEOUT_MILLIS / 5, TimeUnit.MILLISECONDS);
+        AtomicInteger senderCount = new AtomicInteger();
+        this.sendExecutor = new ThreadPoolExecutor(SEND_THREADS, SEND_THREADS, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "sse-sender-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //opens a stream, it starts with the changes after lastEventId or with the whole current state
+    public SseEmitter subscribe(Long gameId, Long lastEventId, boolean delta) {
+        //an unknown game fails before a stream is registered for it. spectators of a running game get the cached views,
+        //only a game that is not cached is read from the database
+        getLatest(gameId);
+        //the subscriber is registered before its state is sent, so no change committed after the state was read is lost
+        GameStream stream = streams.computeIfAbsent(gameId, id -> new GameStream());
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        Subscriber subscriber = new Subscriber(gameId, stream, emitter, delta);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+
+        synchronized (stream){
+            List<GameUpdate> missedUpdates = lastEventId == null ? null : stream.updatesAfter(lastEventId, true);
+            //without the missed changes the subscriber starts with the whole latest state
+            if (missedUpdates == null || missedUpdates.size() > MAX_QUEUED_UPDATES){
+                subscriber.resync();
+            }
+            else {
+                missedUpdates.forEach(subscriber::offer);
+            }
+            stream.add(subscriber);
+        }
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onGameChanged(GameChangedEvent event) {
+        GameStream stream = streams.get(event.getGameId());
+        //nobody follows this game
+        if (stream == null){
+            return;
+        }
+        GameUpdate update = GameUpdate.of(gameViewCache.publish(event.getState()), true);
+        synchronized (stream){
+            stream.buffer(update);
+            for (Subscriber subscriber : stream.subscribers){
+                subscriber.offer(update);
+            }
+        }
+    }
+
+    //the cached views of the game, a game that is not cached or was evicted is read from the database
+    private EncodedGame getLatest(Long gameId) {
+        EncodedGame latestGame = gameViewCache.getLatest(gameId);
+        return latestGame != null ? latestGame : gameViewCache.publish(gameService.getGameState(gameId));
+    }
+
+    public StreamMetricsGetDTO getMetrics() {
+        StreamMetricsGetDTO metrics = new StreamMetricsGetDTO();
+        metrics.setStreams(streams.size());
+        for (GameStream stream : streams.values()){
+            for (Subscriber subscriber : stream.subscribers){
+                int queued = subscriber.queued();
+                metrics.setSubscribers(metrics.getSubscribers() + 1);
+                metrics.setQueuedUpdates(metrics.getQueuedUpdates() + queued);
+                metrics.setMaxQueueDepth(Math.max(metrics.getMaxQueueDepth(), queued));
+            }
+        }
+        metrics.setSentUpdates(sentUpdates.get());
+        metrics.setDroppedUpdates(droppedUpdates.get());
+        metrics.setResyncs(resyncs.get());
+        metrics.setDisconnects(disconnects.get());
+        return metrics;
+    }
+
+    //comments keep proxies from closing idle streams, streams of games nobody follows anymore are dropped
+    private void sendHeartbeats() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, GameStream> entry : streams.entrySet()){
+            GameStream stream = entry.getValue();
+            synchronized (stream){
+                for (Subscriber subscriber : stream.subscribers){
+                    subscriber.heartbeat();
+                }
+                if (stream.subscribers.isEmpty() && now - stream.idleSince > IDLE_STREAM_MILLIS){
+                    streams.remove(entry.getKey());
+                    log.debug("Dropped the stream of game {}", entry.getKey());
+                }
+            }
+        }
+    }
+
+    //disconnects the subscribers whose write blocks longer than SEND_TIMEOUT_MILLIS
+    private void checkSends() {
+        long now = System.currentTimeMillis();
+        for (GameStream stream : streams.values()){
+            for (Subscriber subscriber : stream.subscribers){
+                subscriber.checkSend(now);
+            }
+        }
+    }
+
+    //a sender thread is added for a blocked write, so the other streams are still written, returns false at the limit
+    private boolean replaceSender() {
+        synchronized (sendExecutor){
+            if (replacedSenders == SEND_THREADS){
+                return false;
+            }
+            replacedSenders++;
+            sendExecutor.setMaximumPoolSize(SEND_THREADS + replacedSenders);
+            sendExecutor.setCorePoolSize(SEND_THREADS + replacedSenders);
+            return true;
+        }
+    }
+
+    //the blocked write returned, the added thread ends once it is idle
+    private void releaseSender() {
+        synchronized (sendExecutor){
+            replacedSenders--;
+            sendExecutor.setCorePoolSize(SEND_THREADS + replacedSenders);
+            sendExecutor.setMaximumPoolSize(SEND_THREADS + replacedSenders);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+    }
+
+    //open streams and the last changes of one game
+    private static class GameStream {
+
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final Deque<GameUpdate> updates = new ArrayDeque<>();
+        private long idleSince = System.currentTimeMillis();
+
+        private void add(Subscriber subscriber) {
+            subscribers.add(subscriber);
+        }
+
+        private void remove(Subscriber subscriber) {
+            if (subscribers.remove(subscriber) && subscribers.isEmpty()){
+                idleSince = System.currentTimeMillis();
+            }
+        }
+
+        private void buffer(GameUpdate update) {
+            if (updates.size() == REPLAY_BUFFER_SIZE){
+                updates.removeFirst();
+            }
+            updates.addLast(update);
+        }
+
+        //returns null if the buffer has to be complete but does not reach back to the given version
+        private List<GameUpdate> updatesAfter(long version, boolean complete) {
+            if (complete && (updates.isEmpty() || updates.getFirst().version > version + 1)){
+                return null;
+            }
+            List<GameUpdate> missedUpdates = new ArrayList<>();
+            for (GameUpdate update : updates){
+                if (update.version > version){
+                    missedUpdates.add(update);
+                }
+            }
+            return missedUpdates;
+        }
+    }
+
+    //one open stream with its bounded queue, at most one sender thread writes to it at a time
+    private class Subscriber {
+
+        private final Long gameId;
+        private final GameStream stream;
+        private final SseEmitter emitter;
+        private final boolean delta;
+        private final Deque<GameUpdate> queue = new ArrayDeque<>();
+        //the whole latest state is sent before the next queued change
+        private boolean resync;
+        private boolean sending;
+        private boolean closed;
+        private boolean disconnected;
+        private int overflows;
+        private long firstOverflow;
+        //the start of the write in progress, 0 if no write is in progress
+        private long writingSince;
+        //the write blocked longer than SEND_TIMEOUT_MILLIS and its sender was replaced
+        private boolean stalled;
+        //only touched by the sender thread
+        private long sentVersion = -1;
+
+        private Subscriber(Long gameId, GameStream stream, SseEmitter emitter, boolean delta) {
+            this.gameId = gameId;
+            this.stream = stream;
+            this.emitter = emitter;
+            this.delta = delta;
+        }
+
+        private synchronized void resync() {
+            queue.clear();
+            resync = true;
+            send();
+        }
+
+        //called on the committing thread, it never waits for the client
+        private synchronized void offer(GameUpdate update) {
+            if (closed){
+                return;
+            }
+            //the latest state that will be sent already contains this change
+            if (resync){
+                droppedUpdates.incrementAndGet();
+                return;
+            }
+            if (queue.size() == MAX_QUEUED_UPDATES){
+                overflow();
+                return;
+            }
+            queue.addLast(update);
+            send();
+        }
+
+        private void overflow() {
+            long now = System.currentTimeMillis();
+            if (now - firstOverflow > OVERFLOW_WINDOW_MILLIS){
+                firstOverflow = now;
+                overflows = 0;
+            }
+            overflows++;
+            droppedUpdates.addAndGet(queue.size() + 1L);
+            queue.clear();
+            if (overflows > MAX_OVERFLOWS){
+                disconnects.incrementAndGet();
+                log.debug("Disconnected a slow stream of game {}", gameId);
+                disconnected = true;
+                close();
+                //a sender that is still writing completes the stream when its write returns
+                if (!sending){
+                    sendExecutor.execute(emitter::complete);
+                }
+                return;
+            }
+            resyncs.incrementAndGet();
+            resync = true;
+            send();
+        }
+
+        private synchronized void heartbeat() {
+            if (!closed && !sending){
+                sending = true;
+                sendExecutor.execute(() -> {
+                    startWrite();
+                    try {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                    catch (IOException | IllegalStateException e) {
+                        close();
+                    }
+                    finally {
+                        endWrite();
+                    }
+                    drain();
+                });
+            }
+        }
+
+        private synchronized void startWrite() {
+            writingSince = System.currentTimeMillis();
+        }
+
+        private void endWrite() {
+            boolean replaced;
+            synchronized (this){
+                writingSince = 0;
+                replaced = stalled;
+                stalled = false;
+            }
+            if (replaced){
+                releaseSender();
+            }
+        }
+
+        //a client that does not read is disconnected, its sender completes the stream when the write returns
+        private void checkSend(long now) {
+            synchronized (this){
+                if (closed || writingSince == 0 || now - writingSince <= SEND_TIMEOUT_MILLIS){
+                    return;
+                }
+                disconnected = true;
+                stalled = replaceSender();
+            }
+            disconnects.incrementAndGet();
+            log.debug("Disconnected a stream of game {} that does not read", gameId);
+            close();
+        }
+
+        private synchronized int queued() {
+            return queue.size() + (resync ? 1 : 0);
+        }
+
+        //the lock of the subscriber is released before the stream is locked, the commit locks them the other way round
+        private void close() {
+            synchronized (this){
+                if (closed){
+                    return;
+                }
+                closed = true;
+                queue.clear();
+            }
+            synchronized (stream){
+                stream.remove(this);
+            }
+        }
+
+        //starts a sender unless one is already writing to this stream
+        private void send() {
+            if (!sending){
+                sending = true;
+                sendExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true){
+                GameUpdate update;
+                synchronized (this){
+                    if (closed){
+                        sending = false;
+                        if (disconnected){
+                            emitter.complete();
+                        }
+                        return;
+                    }
+                    update = resync ? null : queue.pollFirst();
+                    if (!resync && update == null){
+                        sending = false;
+                        return;
+                    }
+                    resync = false;
+                }
+                if (update == null){
+                    try {
+                        update = GameUpdate.of(getLatest(gameId), false);
+                    }
+                    catch (ApiRequestException e) {
+                        //the game was archived and evicted meanwhile, the stream ends
+                        synchronized (this){
+                            disconnected = true;
+                        }
+                        close();
+                        continue;
+                    }
+                }
+                //a change that is older than the latest state that was sent
+                if (update.version <= sentVersion){
+                    continue;
+                }
+                startWrite();
+                try {
+                    //a patch only applies to the views of the previous version, which the client has if it got that version
+                    update.sendTo(emitter, delta && update.version == sentVersion + 1);
+                    sentVersion = update.version;
+                    sentUpdates.incrementAndGet();
+                }
+                catch (IOException | IllegalStateException e) {
+                    close();
+                }
+                finally {
+                    endWrite();
+                }
+            }
+        }
+    }
+
+    //the typed events of one version of a game, the data is the JSON every subscriber shares
+    private static class GameUpdate {
+
+        private static final List<String> VIEWS = List.of(GameViewCache.GAME_VIEW, GameViewCache.CHOSEN_WORD_VIEW,
+                GameViewCache.CLUES_VIEW, GameViewCache.GUESS_VIEW);
+
+        private final long version;
+        private final boolean patched;
+        private final Map<String, byte[]> events = new LinkedHashMap<>();
+        private final Map<String, byte[]> patches = new HashMap<>();
+
+        private GameUpdate(long version, boolean patched) {
+            this.version = version;
+            this.patched = patched;
+        }
+
+        //a change only sends the views whose JSON changed, without a previous version every view is sent.
+        //the game view carries the id of the version, so it is always sent. only a change is patched
+        private static GameUpdate of(EncodedGame encodedGame, boolean change) {
+            GameUpdate update = new GameUpdate(encodedGame.getVersion(), change);
+            for (String view : VIEWS){
+                if (!change || view.equals(GameViewCache.GAME_VIEW) || encodedGame.hasChanged(view)){
+                    update.add(encodedGame, view);
+                }
+            }
+            return update;
+        }
+
+        private void add(EncodedGame encodedGame, String view) {
+            events.put(view, encodedGame.getView(view));
+            if (patched && encodedGame.getPatch(view) != null){
+                patches.put(view, encodedGame.getPatch(view));
+            }
+        }
+
+        //only the last event carries the id, so a client never resumes in the middle of a version
+        private void sendTo(SseEmitter emitter, boolean delta) throws IOException {
+            Iterator<Map.Entry<String, byte[]>> iterator = events.entrySet().iterator();
+            while (iterator.hasNext()){
+                Map.Entry<String, byte[]> event = iterator.next();
+                byte[] patch = delta ? patches.get(event.getKey()) : null;
+                SseEmitter.SseEventBuilder builder = patch == null
+                        ? SseEmitter.event().name(event.getKey()).data(event.getValue(), MediaType.APPLICATION_JSON)
+                        : SseEmitter.event().name(event.getKey() + PATCH_EVENT_SUFFIX).data(patch, MediaType.APPLICATION_JSON);
+                if (!iterator.hasNext()){
+                    builder.id(String.valueOf(version));
+                }
+                emitter.send(builder);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GameEventType;
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.entity.game.GameSummary;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException404;
+import ch.uzh.ifi.seal.soprafs20.history.GameChangedEvent;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.GameSummaryRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.GameSummaryView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * GameSummary Service
+ * Keeps the read model of the games, one summary per game with the values of GET /games and GET /games/{id}.
+ * Every change of a game updates its summary before the transaction of the change commits, so a committed change
+ * is always in the summary. The summaries are read without touching the tables of the games.
+ */
+@Service
+@Transactional
+public class GameSummaryService {
+
+    private final Logger log = LoggerFactory.getLogger(GameSummaryService.class);
+
+    private final GameSummaryRepository gameSummaryRepository;
+    private final GameRepository gameRepository;
+
+    public GameSummaryService(@Qualifier("gameSummaryRepository") GameSummaryRepository gameSummaryRepository,
+                              @Qualifier("gameRepository") GameRepository gameRepository) {
+        this.gameSummaryRepository = gameSummaryRepository;
+        this.gameRepository = gameRepository;
+    }
+
+    //a change with an older version than the summary is ignored, a command can record several changes
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onGameChanged(GameChangedEvent event) {
+        GameSummary summary = null;
+        if (event.getType() != GameEventType.CREATED){
+            summary = gameSummaryRepository.findById(event.getGameId()).orElse(null);
+        }
+        if (summary == null){
+            summary = new GameSummary();
+            summary.update(event.getState());
+            gameSummaryRepository.save(summary);
+        }
+        else if (summary.getVersion() < event.getVersion()){
+            summary.update(event.getState());
+        }
+    }
+
+    //adds the summaries of games that were created before the summaries existed
+    @EventListener(ApplicationReadyEvent.class)
+    public void addMissingSummaries() {
+        List<Game> games = gameRepository.findGamesWithoutSummary();
+        for (Game game : games){
+            GameSummary summary = new GameSummary();
+            summary.update(GameState.of(game));
+            gameSummaryRepository.save(summary);
+        }
+        if (!games.isEmpty()){
+            log.info("Added the summaries of {} games", games.size());
+        }
+    }
+
+    //one page of the games with an id after the given id, only the games with the given status if there is one
+    @Transactional(readOnly = true)
+    public Slice<GameSummaryView> getSummaryPage(long after, GameStatus status, int size) {
+        PageRequest pageRequest = PageRequest.of(0, size);
+        if (status == null){
+            return gameSummaryRepository.findPageAfter(after, pageRequest);
+        }
+        return gameSummaryRepository.findPageAfterByStatus(after, status, pageRequest);
+    }
+
+    @Transactional(readOnly = true)
+    public List<GameSummaryView> getSummariesOfUser(Long userId) {
+        return gameSummaryRepository.findByUserId(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public GameSummary getSummary(Long id) {
+        return gameSummaryRepository.findById(id).orElseThrow(() -> new GetRequestException404("No game was found!"));
+    }
+
+    @Transactional(readOnly = true)
+    public long getVersion(Long id) {
+        return gameSummaryRepository.findVersionById(id).orElseThrow(() -> new GetRequestException404("No game was found!"));
+    }
+}
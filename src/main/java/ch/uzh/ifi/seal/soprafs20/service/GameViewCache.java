@@ -0,0 +1,190 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.exceptions.SopraServiceException;
+import ch.uzh.ifi.seal.soprafs20.history.GameChangedEvent;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.history.JsonPatch;
+import ch.uzh.ifi.seal.soprafs20.rest.mapper.DTOMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GameView Cache
+ * Keeps the JSON of the game views (game, chosenword, clues, guess) of the latest version of every game.
+ * The views are encoded once per version when the version is published and the same bytes are then sent
+ * to every reader, long-poll waiter and stream subscriber, so the serialization cost depends on the number
+ * of changes and not on the number of viewers.
+ * If the previous version is cached when a version is published, the JSON patches from the previous version
+ * are computed once as well, so clients that follow a game only need the small patch of every change. The views
+ * whose JSON differs from the previous version are marked as changed, so every change of a view is pushed.
+ * The state of the latest version is kept as well, the changes that are written with an update statement are applied to it.
+ */
+@Service
+public class GameViewCache {
+
+    public static final String GAME_VIEW = "game";
+    public static final String CHOSEN_WORD_VIEW = "chosenword";
+    public static final String CLUES_VIEW = "clues";
+    public static final String GUESS_VIEW = "guess";
+
+    public static final int MAX_CACHED_GAMES = 1000;
+
+    private final ObjectMapper objectMapper;
+    //in access order, the game that was not read or published for the longest time is evicted first
+    private final Map<Long, EncodedGame> latestGames = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, EncodedGame> eldest) {
+            return size() > MAX_CACHED_GAMES;
+        }
+    };
+
+    public GameViewCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onGameChanged(GameChangedEvent event) {
+        publish(event.getState());
+    }
+
+    //returns the encoded views of the state, they are encoded outside of the lock and only cached if no newer version was cached meanwhile
+    public EncodedGame publish(GameState state) {
+        EncodedGame cachedGame = getLatest(state.getId());
+        if (cachedGame != null && cachedGame.getVersion() == state.getVersion()){
+            return cachedGame;
+        }
+        //an older version that arrived late is encoded for its caller but not cached
+        if (cachedGame != null && cachedGame.getVersion() > state.getVersion()){
+            return encode(state, null);
+        }
+        EncodedGame encodedGame = encode(state, cachedGame);
+        synchronized (latestGames){
+            EncodedGame latestGame = latestGames.get(state.getId());
+            if (latestGame != null && latestGame.getVersion() >= state.getVersion()){
+                return latestGame.getVersion() == state.getVersion() ? latestGame : encodedGame;
+            }
+            latestGames.put(state.getId(), encodedGame);
+        }
+        return encodedGame;
+    }
+
+    //returns the latest published version of the game or null if it was not published since the start or was evicted
+    public EncodedGame getLatest(Long gameId) {
+        synchronized (latestGames){
+            return latestGames.get(gameId);
+        }
+    }
+
+    //removes the game, called once it is archived and its views can no longer change
+    public void evict(Long gameId) {
+        synchronized (latestGames){
+            latestGames.remove(gameId);
+        }
+    }
+
+    //returns the encoded view if the cache holds exactly this version of the game, null otherwise
+    public byte[] getView(Long gameId, long version, String view) {
+        EncodedGame latestGame = getLatest(gameId);
+        if (latestGame == null || latestGame.getVersion() != version){
+            return null;
+        }
+        return latestGame.getView(view);
+    }
+
+    //returns the patch of the view from baseVersion to the next version if the cache holds exactly that version, null otherwise
+    public byte[] getPatch(Long gameId, long baseVersion, String view) {
+        EncodedGame latestGame = getLatest(gameId);
+        if (latestGame == null || latestGame.getVersion() != baseVersion + 1){
+            return null;
+        }
+        return latestGame.getPatch(view);
+    }
+
+    //the patches are only computed if the previous game is exactly one version older
+    private EncodedGame encode(GameState state, EncodedGame previousGame) {
+        Map<String, JsonNode> trees = new LinkedHashMap<>();
+        trees.put(GAME_VIEW, objectMapper.valueToTree(DTOMapper.INSTANCE.convertGameStateToGameGetDTO(state)));
+        trees.put(CHOSEN_WORD_VIEW, objectMapper.valueToTree(DTOMapper.INSTANCE.convertGameStateToChosenWordGetDTO(state)));
+        trees.put(CLUES_VIEW, objectMapper.valueToTree(DTOMapper.INSTANCE.convertGameStateToCluesGetDTO(state)));
+        trees.put(GUESS_VIEW, objectMapper.valueToTree(DTOMapper.INSTANCE.convertGameStateToGuessGetDTO(state)));
+
+        boolean patched = previousGame != null && previousGame.getVersion() == state.getVersion() - 1;
+        Map<String, byte[]> views = new LinkedHashMap<>();
+        Map<String, byte[]> patches = new LinkedHashMap<>();
+        Set<String> changedViews = patched ? new HashSet<>() : null;
+        for (Map.Entry<String, JsonNode> tree : trees.entrySet()){
+            byte[] view = write(tree.getValue());
+            views.put(tree.getKey(), view);
+            if (patched){
+                patches.put(tree.getKey(), write(JsonPatch.diff(previousGame.trees.get(tree.getKey()), tree.getValue())));
+                if (!Arrays.equals(previousGame.views.get(tree.getKey()), view)){
+                    changedViews.add(tree.getKey());
+                }
+            }
+        }
+        return new EncodedGame(state, trees, views, patches, changedViews);
+    }
+
+    private byte[] write(Object view) {
+        try {
+            return objectMapper.writeValueAsBytes(view);
+        }
+        catch (JsonProcessingException e) {
+            throw new SopraServiceException("The game could not be encoded!");
+        }
+    }
+
+    //the encoded views of one version of a game, their patches from the previous version and the state they were encoded from,
+    //the arrays and the state are shared and must not be changed
+    public static class EncodedGame {
+
+        private final long version;
+        private final GameState state;
+        private final Map<String, JsonNode> trees;
+        private final Map<String, byte[]> views;
+        private final Map<String, byte[]> patches;
+        private final Set<String> changedViews;
+
+        private EncodedGame(GameState state, Map<String, JsonNode> trees, Map<String, byte[]> views, Map<String, byte[]> patches,
+                            Set<String> changedViews) {
+            this.version = state.getVersion();
+            this.state = state;
+            this.trees = trees;
+            this.views = views;
+            this.patches = patches;
+            this.changedViews = changedViews;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public GameState getState() {
+            return state;
+        }
+
+        public byte[] getView(String view) {
+            return views.get(view);
+        }
+
+        //null if the previous version was not cached when this version was published
+        public byte[] getPatch(String view) {
+            return patches.get(view);
+        }
+
+        //true if the view differs from the previous version, or if the previous version was not cached when this version was published
+        public boolean hasChanged(String view) {
+            return changedViews == null || changedViews.contains(view);
+        }
+    }
+}
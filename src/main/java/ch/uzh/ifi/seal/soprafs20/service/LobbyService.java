@@ -0,0 +1,143 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.LobbyDeltaType;
+import ch.uzh.ifi.seal.soprafs20.history.GameChangedEvent;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.lobby.LobbyGame;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.LobbyDeltaGetDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.LobbyPageGetDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.mapper.DTOMapper;
+import ch.uzh.ifi.seal.soprafs20.websocket.WebSocketConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Lobby Service
+ * Keeps an index of the joinable (CREATED) games ordered by id. The index is read once from the database
+ * and then kept up to date from the committed changes of the games, so a lobby page never scans the games.
+ * Every change of the index counts up the lobby version and is pushed as a delta to /topic/lobby.
+ */
+@Service
+public class LobbyService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+    //games that left the lobby are remembered for a while so a late change cannot add them again
+    static final int REMOVED_GAMES_SIZE = 1000;
+
+    private final GameRepository gameRepository;
+    private final SimpMessageSendingOperations messagingTemplate;
+
+    private final NavigableMap<Long, LobbyGame> lobbyGames = new ConcurrentSkipListMap<>();
+    private final Map<Long, Long> removedGames = new LinkedHashMap<Long, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > REMOVED_GAMES_SIZE;
+        }
+    };
+    private volatile boolean loaded;
+    private long lobbyVersion;
+
+    public LobbyService(@Qualifier("gameRepository") GameRepository gameRepository,
+                        SimpMessageSendingOperations messagingTemplate) {
+        this.gameRepository = gameRepository;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onGameChanged(GameChangedEvent event) {
+        GameState state = event.getState();
+        if (state.getStatus() == GameStatus.CREATED){
+            add(new LobbyGame(state.getId(), state.getVersion(), state.getCurrentUserId(), state.getUserIds().size()));
+        }
+        else {
+            remove(state.getId(), state.getVersion());
+        }
+    }
+
+    //returns one page of the lobby together with the lobby version the page belongs to
+    @Transactional(readOnly = true)
+    public LobbyPageGetDTO getLobbyPage(int page, int size) {
+        if (!loaded){
+            load(gameRepository.findLobbyGames(GameStatus.CREATED));
+        }
+        LobbyPageGetDTO lobbyPageGetDTO = new LobbyPageGetDTO();
+        lobbyPageGetDTO.setPage(page);
+        lobbyPageGetDTO.setSize(size);
+        synchronized (this) {
+            lobbyPageGetDTO.setLobbyVersion(lobbyVersion);
+            lobbyPageGetDTO.setTotalGames(lobbyGames.size());
+            Iterator<LobbyGame> games = lobbyGames.values().iterator();
+            for (long skipped = 0; skipped < (long) page * size && games.hasNext(); skipped++) {
+                games.next();
+            }
+            while (lobbyPageGetDTO.getGames().size() < size && games.hasNext()) {
+                lobbyPageGetDTO.getGames().add(DTOMapper.INSTANCE.convertLobbyGameToLobbyGameGetDTO(games.next()));
+            }
+        }
+        return lobbyPageGetDTO;
+    }
+
+    //merges the games read from the database, changes that were committed in the meantime win by their version
+    synchronized void load(List<LobbyGame> games) {
+        if (loaded){
+            return;
+        }
+        for (LobbyGame game : games) {
+            LobbyGame indexedGame = lobbyGames.get(game.getId());
+            Long removedVersion = removedGames.get(game.getId());
+            if ((indexedGame == null || indexedGame.getVersion() < game.getVersion())
+                    && (removedVersion == null || removedVersion < game.getVersion())){
+                lobbyGames.put(game.getId(), game);
+            }
+        }
+        lobbyVersion++;
+        loaded = true;
+    }
+
+    private synchronized void add(LobbyGame game) {
+        LobbyGame indexedGame = lobbyGames.get(game.getId());
+        Long removedVersion = removedGames.get(game.getId());
+        if ((indexedGame != null && indexedGame.getVersion() >= game.getVersion())
+                || (removedVersion != null && removedVersion >= game.getVersion())){
+            return;
+        }
+        lobbyGames.put(game.getId(), game);
+        send(indexedGame == null ? LobbyDeltaType.ADDED : LobbyDeltaType.UPDATED, game);
+    }
+
+    private synchronized void remove(Long gameId, long version) {
+        Long removedVersion = removedGames.get(gameId);
+        if (removedVersion != null && removedVersion >= version){
+            return;
+        }
+        removedGames.put(gameId, version);
+        LobbyGame indexedGame = lobbyGames.get(gameId);
+        if (indexedGame != null && indexedGame.getVersion() < version){
+            lobbyGames.remove(gameId);
+            send(LobbyDeltaType.REMOVED, indexedGame);
+        }
+    }
+
+    //called while holding the lock, so the deltas leave in the order of their lobby version
+    private void send(LobbyDeltaType type, LobbyGame game) {
+        lobbyVersion++;
+        LobbyDeltaGetDTO lobbyDeltaGetDTO = new LobbyDeltaGetDTO();
+        lobbyDeltaGetDTO.setLobbyVersion(lobbyVersion);
+        lobbyDeltaGetDTO.setType(type);
+        lobbyDeltaGetDTO.setGame(DTOMapper.INSTANCE.convertLobbyGameToLobbyGameGetDTO(game));
+        messagingTemplate.convertAndSend(WebSocketConfig.LOBBY_TOPIC, lobbyDeltaGetDTO);
+    }
+}
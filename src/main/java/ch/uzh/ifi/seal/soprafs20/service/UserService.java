@@ -6,20 +6,29 @@ import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException409;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.post.PostRequestException409;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.put.PutRequestException401;
 import ch.uzh.ifi.seal.soprafs20.repository.UserRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.UserView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * User Service
  * This class is the "worker" and responsible for all functionality related to the user
  * (e.g., it creates, modifies, deletes, finds). The result will be passed back to the caller.
+ * Every command runs in one transaction that is flushed once on commit, the read methods run in read-only
+ * transactions without flush and dirty checking.
+ * Users are read by id and by username from the second-level cache, the commands change them through the session
+ * so the cached users are updated on commit.
  */
 @Service
 @Transactional
@@ -35,10 +44,22 @@ public class UserService {
         this.userRepository = userRepository;
     }
 
+    @Transactional(readOnly = true)
     public List<User> getUsers() {
         return this.userRepository.findAll();
     }
 
+    //one page of the users with an id after the given id, only the users with the given status if there is one
+    @Transactional(readOnly = true)
+    public Slice<UserView> getUserPage(long after, UserStatus status, int size) {
+        PageRequest pageRequest = PageRequest.of(0, size);
+        if (status == null){
+            return userRepository.findByIdGreaterThanOrderByIdAsc(after, pageRequest);
+        }
+        return userRepository.findByStatusAndIdGreaterThanOrderByStatusAscIdAsc(status, after, pageRequest);
+    }
+
+    @Transactional(readOnly = true)
     public User getUserById(Long id) {
         User userById = userRepository.findById(id).orElse(null);
 
@@ -49,6 +70,13 @@ public class UserService {
         return userById;
     }
 
+    //the version of the cached user, answers conditional requests without a select
+    @Transactional(readOnly = true)
+    public long getUserVersion(Long id) {
+        return getUserById(id).getVersion();
+    }
+
+    @Transactional(readOnly = true)
     public User findByUsername(String name){
         return this.userRepository.findByUsername(name);
     }
@@ -63,12 +91,12 @@ public class UserService {
         newUser.setDuplicateClues(0);
         newUser.setScore(0);
         newUser.setGamesPlayed(0);
+        newUser.setVersion(1);
 
         checkIfUserExists(newUser);
 
-        // saves the given entity but data is only persisted in the database once flush() is called
+        // saves the given entity, the data is flushed to the database once when the transaction commits
         newUser = userRepository.save(newUser);
-        userRepository.flush();
 
         return newUser;
     }
@@ -94,16 +122,16 @@ public class UserService {
 
         userByUsername.setToken(UUID.randomUUID().toString());
         userByUsername.setStatus(UserStatus.ONLINE);
+        userByUsername.nextVersion();
         userByUsername = userRepository.save(userByUsername);
-        userRepository.flush();
         return (userByUsername);
     }
 
     public User logOut(Long id) {
         User user = getUserById(id);
         user.setStatus(UserStatus.OFFLINE);
+        user.nextVersion();
         user = userRepository.save(user);
-        userRepository.flush();
         return user;
     }
 
@@ -120,8 +148,9 @@ public class UserService {
             userById.setName(user.getName());
         }
 
+        userById.nextVersion();
+
         User updatedUser = userRepository.save(userById);
-        userRepository.flush();
 
         return updatedUser;
     }
@@ -130,8 +159,8 @@ public class UserService {
         User userById = getUserById(id);
 
         userById.setStatus(UserStatus.INGAME);
+        userById.nextVersion();
         User updatedUser = userRepository.save(userById);
-        userRepository.flush();
 
         return updatedUser;
     }
@@ -142,49 +171,23 @@ public class UserService {
         userById.setStatus(UserStatus.ONLINE);
         userById.setCorrectlyGuessed(0);
         userById.setDuplicateClues(0);
+        userById.nextVersion();
         User updatedUser = userRepository.save(userById);
-        userRepository.flush();
 
         return updatedUser;
     }
 
-
-    //update the amount of correctly guessed words or the duplicate clues
-    public User updateUserGameStats(Long id, User userInput){
-        User userById = getUserById(id);
-        int guess = userInput.getCorrectlyGuessed();
-        int clue = userInput.getDuplicateClues();
-
-        if (guess > 0){
-            userById.addCorrectlyGuessed(guess);
-        }
-        if (clue > 0){
-            userById.addDuplicateClues(clue);
+    //settles the scores of all users of a finished game: every user gets the score of the game, a bonus for the words
+    //the user guessed correctly and a penalty for the duplicate clues the user gave. The stats of the user are set to
+    //the ones of the game. All users are updated in one statement
+    public List<User> settleScores(int gameScore, Map<Long, Integer> correctGuessesByUser, Map<Long, Integer> duplicateCluesByUser) {
+        Map<Long, Integer> scoreByUser = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> entry : correctGuessesByUser.entrySet()){
+            int duplicateClues = duplicateCluesByUser.getOrDefault(entry.getKey(), 0);
+            scoreByUser.put(entry.getKey(), gameScore - duplicateClues * DUPLICATECLUE_MULTIPLIER + entry.getValue() * CORRECTGUESS_MULTIPLIER);
         }
-
-        User updatedUser = userRepository.save(userById);
-        userRepository.flush();
-
-        return updatedUser;
-    }
-
-    //update the score of the user, depending on correctly guessed words and duplicate clues
-    public User updateUserScore(Long id, User userInput){
-        User userById = getUserById(id);
-        int score = userInput.getScore();
-
-        //increase gamesPlayed by 1
-        userById.addGames();
-        //User receives penalty or bonus for correctly guessed words and duplicate clues
-        int updatedScore = score - userById.getDuplicateClues() * DUPLICATECLUE_MULTIPLIER + userById.getCorrectlyGuessed() * CORRECTGUESS_MULTIPLIER;
-        userById.addScore(updatedScore);
-        userById.setCorrectlyGuessed(0);
-        userById.setDuplicateClues(0);
-
-        User updatedUser = userRepository.save(userById);
-        userRepository.flush();
-
-        return updatedUser;
+        userRepository.settleScores(scoreByUser, correctGuessesByUser, duplicateCluesByUser);
+        return userRepository.findAllById(correctGuessesByUser.keySet());
     }
 
 
@@ -198,18 +201,10 @@ public class UserService {
      */
     private void checkIfUserExists(User userToBeCreated) {
 
-        if (userToBeCreated.getId() == null) {
-            User userByUsername = userRepository.findByUsername(userToBeCreated.getUsername());
-            if (userByUsername != null) {
-                String message = String.format("There is already a user '%s'! Please try again!", userByUsername.getUsername());
-                throw new PostRequestException409(message);
-            }
-        } else {
-            User userByUsername = userRepository.findByUsernameAndIdNot(userToBeCreated.getUsername(), userToBeCreated.getId());
-            if (userByUsername != null) {
-                String message = String.format("There is already a user '%s'! Please try again!", userByUsername.getUsername());
-                throw new PostRequestException409(message);
-            }
+        User userByUsername = userRepository.findByUsername(userToBeCreated.getUsername());
+        if (userByUsername != null && !userByUsername.getId().equals(userToBeCreated.getId())) {
+            String message = String.format("There is already a user '%s'! Please try again!", userByUsername.getUsername());
+            throw new PostRequestException409(message);
         }
     }
 
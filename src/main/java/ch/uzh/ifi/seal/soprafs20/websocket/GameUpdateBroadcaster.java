@@ -0,0 +1,32 @@
+package ch.uzh.ifi.seal.soprafs20.websocket;
+
+import ch.uzh.ifi.seal.soprafs20.history.GameChangedEvent;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.GameUpdateGetDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.mapper.DTOMapper;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * GameUpdateBroadcaster
+ * Pushes the new version of a game with its views (game, chosenword, clues, guess) on the topic of the game once
+ * a change is committed. The views are the ones REST serves for the version, so a client applies the message without
+ * reading the game again; only the card is still read over REST when a new turn starts.
+ * Changes of rolled back transactions are never sent.
+ */
+@Component
+public class GameUpdateBroadcaster {
+
+    private final SimpMessageSendingOperations messagingTemplate;
+
+    public GameUpdateBroadcaster(SimpMessageSendingOperations messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onGameChanged(GameChangedEvent event) {
+        GameUpdateGetDTO gameUpdateGetDTO = DTOMapper.INSTANCE.convertGameChangedEventToGameUpdateGetDTO(event);
+        messagingTemplate.convertAndSend(WebSocketConfig.GAME_TOPIC + event.getGameId(), gameUpdateGetDTO);
+    }
+}
@@ -0,0 +1,57 @@
+package ch.uzh.ifi.seal.soprafs20.websocket;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+/**
+ * WebSocketConfig
+ * STOMP over WebSocket on /ws. Clients subscribe to /topic/games/{id} to get the version and the views of every committed
+ * change of a game and send a SUBSCRIBE to /app/games/{id} to get the current version and views after a reconnect.
+ * The changes of the lobby are pushed to /topic/lobby, clients apply the deltas newer than the lobby version of their page.
+ * The messages of a session that cannot keep up are buffered up to SEND_BUFFER_SIZE_LIMIT bytes or SEND_TIME_LIMIT_MILLIS,
+ * then the session is closed. The client reconnects and gets the views of the current version with its SUBSCRIBE.
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    public static final String ENDPOINT = "/ws";
+    public static final String GAME_TOPIC = "/topic/games/";
+    public static final String LOBBY_TOPIC = "/topic/lobby";
+    public static final long HEARTBEAT_MILLIS = 10000;
+    public static final int SEND_BUFFER_SIZE_LIMIT = 128 * 1024;
+    public static final int SEND_TIME_LIMIT_MILLIS = 5000;
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint(ENDPOINT).setAllowedOrigins("*");
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(SEND_BUFFER_SIZE_LIMIT).setSendTimeLimit(SEND_TIME_LIMIT_MILLIS);
+    }
+
+    //a bean, so it is initialized and shut down with the context
+    @Bean
+    public ThreadPoolTaskScheduler webSocketHeartbeatScheduler() {
+        ThreadPoolTaskScheduler heartbeatScheduler = new ThreadPoolTaskScheduler();
+        heartbeatScheduler.setThreadNamePrefix("ws-heartbeat-");
+        return heartbeatScheduler;
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        //heartbeats let clients notice a dead connection and reconnect
+        registry.enableSimpleBroker("/topic")
+                .setHeartbeatValue(new long[]{HEARTBEAT_MILLIS, HEARTBEAT_MILLIS})
+                .setTaskScheduler(webSocketHeartbeatScheduler());
+        registry.setApplicationDestinationPrefixes("/app");
+    }
+}
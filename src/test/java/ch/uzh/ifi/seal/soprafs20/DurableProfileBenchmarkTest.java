@@ -0,0 +1,216 @@
+package ch.uzh.ifi.seal.soprafs20;
+
+import ch.uzh.ifi.seal.soprafs20.entity.game.Clue;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Guess;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.ChosenWordPutDTO;
+import ch.uzh.ifi.seal.soprafs20.service.GameService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the durable profile against the in-memory database: the cost of writing one round of a game and the time
+ * the server needs to come back after it was killed with STORED_GAMES games in its database.
+ * Only runs with -Dbenchmark=true, the results are printed.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DurableProfileBenchmarkTest {
+
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int ROUNDS = 200;
+    private static final int STORED_GAMES = 10_000;
+    private static final int WRITES_BEFORE_KILL = 50;
+    private static final long START_TIMEOUT_MILLIS = 180_000;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    public void roundWriteCost() throws Exception {
+        try (ConfigurableApplicationContext context = startContext("spring.datasource.url=jdbc:h2:mem:benchmark")){
+            double millisPerRound = measureRounds(context.getBean(GameService.class));
+            System.out.printf("in-memory: %.2f ms per round%n", millisPerRound);
+        }
+        try (ConfigurableApplicationContext context = startContext("spring.profiles.active=durable")){
+            long sizeBefore = databaseSize();
+            double millisPerRound = measureRounds(context.getBean(GameService.class));
+            double bytesPerRound = (double) (databaseSize() - sizeBefore) / (WARMUP_ROUNDS + ROUNDS);
+            System.out.printf("durable: %.2f ms per round, %.0f bytes per round%n", millisPerRound, bytesPerRound);
+        }
+    }
+
+    @Test
+    public void recoveryAfterKill() throws Exception {
+        long seedStart = System.nanoTime();
+        //the ids are handed out in blocks, the last seeded game is found by its own id
+        Long lastSeededId = null;
+        try (ConfigurableApplicationContext context = startContext("spring.profiles.active=durable")){
+            GameService gameService = context.getBean(GameService.class);
+            for (int i = 0; i < STORED_GAMES; i++){
+                lastSeededId = gameService.createGame(newGame(i + 1L)).getId();
+            }
+        }
+        System.out.printf("stored %d games in %d ms, database has %d bytes%n", STORED_GAMES, millisSince(seedStart), databaseSize());
+
+        int port = findFreePort();
+        Process server = startServer(port, "start");
+        long startMillis = awaitStarted(server, port);
+        List<Long> gameIds = new ArrayList<>();
+        for (int i = 0; i < WRITES_BEFORE_KILL; i++){
+            gameIds.add(postGame(port));
+        }
+        //the last write has just been answered
+        server.destroyForcibly().waitFor();
+
+        server = startServer(port, "recovery");
+        try {
+            long recoveryMillis = awaitStarted(server, port);
+            int survivedWrites = 0;
+            for (Long gameId : gameIds){
+                if (get(port, "/games/" + gameId).statusCode() == 200){
+                    survivedWrites++;
+                }
+            }
+            System.out.printf("start with %d games: %d ms, start after kill: %d ms, %d of the last %d writes survived%n",
+                    STORED_GAMES, startMillis, recoveryMillis, survivedWrites, WRITES_BEFORE_KILL);
+            assertEquals(200, get(port, "/games/" + lastSeededId).statusCode());
+            //every acknowledged write is in the file
+            assertEquals(WRITES_BEFORE_KILL, survivedWrites);
+        }
+        finally {
+            server.destroy();
+            server.waitFor();
+        }
+    }
+
+    private ConfigurableApplicationContext startContext(String property) {
+        return new SpringApplicationBuilder(Application.class)
+                .properties(property, "DATA_DIRECTORY=" + dataDirectory, "server.port=0")
+                .run();
+    }
+
+    //plays one round per game, from creating the game to the guess, and returns the average time of a round
+    private double measureRounds(GameService gameService) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++){
+            playRound(gameService);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++){
+            playRound(gameService);
+        }
+        return (System.nanoTime() - start) / 1e6 / ROUNDS;
+    }
+
+    private void playRound(GameService gameService) throws Exception {
+        Long gameId = gameService.createGame(newGame(1L)).getId();
+        gameService.addUserToGame(gameId, 2L);
+        gameService.addUserToGame(gameId, 3L);
+        gameService.startGame(gameId);
+        String chosenWord = gameService.getActiveCard(gameId).getMysteryWords().get(0);
+        gameService.setChosenWord(gameId, chosenWord);
+
+        ChosenWordPutDTO accept = new ChosenWordPutDTO();
+        accept.setStatus(true);
+        gameService.updateChosenWord(gameId, accept);
+        gameService.updateChosenWord(gameId, accept);
+
+        //these clues are rejected by the clue checker without a request to the homophone api
+        for (int i = 0; i < 4; i++){
+            Clue clue = new Clue();
+            clue.setClueWord("OVERTIMED");
+            clue.setUserId(2L + i / 2);
+            clue.setTime(5);
+            gameService.addClueToGame(gameId, clue);
+        }
+        gameService.setCluesToInvalid(gameId, List.of());
+        gameService.setCluesToInvalid(gameId, List.of());
+
+        Guess guess = new Guess();
+        guess.setGuessWord(chosenWord);
+        guess.setTime(5);
+        gameService.makeGuess(gameId, guess);
+    }
+
+    private Game newGame(Long userId) {
+        Game game = new Game();
+        game.setCurrentUserId(userId);
+        return game;
+    }
+
+    private Process startServer(int port, String name) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), Application.class.getName(),
+                "--spring.profiles.active=durable", "--DATA_DIRECTORY=" + dataDirectory, "--server.port=" + port)
+                .redirectErrorStream(true)
+                .redirectOutput(dataDirectory.resolve(name + ".log").toFile())
+                .start();
+    }
+
+    //returns the time from the start of the process until the server answers
+    private long awaitStarted(Process server, int port) throws Exception {
+        long start = System.nanoTime();
+        while (millisSince(start) < START_TIMEOUT_MILLIS){
+            assertTrue(server.isAlive(), "The server stopped while starting");
+            try {
+                if (get(port, "/").statusCode() == 200){
+                    return millisSince(start);
+                }
+            }
+            catch (ConnectException e) {
+                //not listening yet
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("The server did not start within " + START_TIMEOUT_MILLIS + " ms");
+    }
+
+    private Long postGame(int port) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/games"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"currentUserId\": 1}"))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(201, response.statusCode());
+        return objectMapper.readTree(response.body()).get("id").asLong();
+    }
+
+    private HttpResponse<String> get(int port, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private long databaseSize() throws IOException {
+        return Files.size(dataDirectory.resolve("justone.mv.db"));
+    }
+
+    private static long millisSince(long nanoTime) {
+        return (System.nanoTime() - nanoTime) / 1_000_000;
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)){
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ch.uzh.ifi.seal.soprafs20.Game;
+
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameTest {
+
+    Game testGame;
+
+    @BeforeEach
+    public void setup() {
+        testGame = new Game();
+        testGame.addUserId((long)1);
+        testGame.addUserId((long)2);
+        testGame.addUserId((long)3);
+    }
+
+    @Test
+    public void passTurn_lastSeat() {
+        testGame.setCurrentSeat(2);
+
+        testGame.passTurn();
+
+        assertEquals(0, testGame.getCurrentSeat());
+        assertEquals(1L, testGame.getCurrentUserId());
+    }
+
+    @Test
+    public void passTurn_notLastSeat() {
+        testGame.setCurrentSeat(1);
+
+        testGame.passTurn();
+
+        assertEquals(2, testGame.getCurrentSeat());
+        assertEquals(3L, testGame.getCurrentUserId());
+    }
+
+    @Test
+    public void passTurn_storedWithoutSeat_followsCurrentUser() {
+        //a game stored before the seat column existed has seat 0 whoever's turn it is
+        testGame.setCurrentUserId((long)2);
+
+        testGame.passTurn();
+
+        assertEquals(2, testGame.getCurrentSeat());
+        assertEquals(3L, testGame.getCurrentUserId());
+    }
+
+    @Test
+    public void removeUserId_otherSeatsKeepTheirNumber() {
+        testGame.setCurrentSeat(1);
+        testGame.removeUserId((long)2);
+        testGame.addUserId((long)4);
+
+        assertEquals(List.of(1L, 3L, 4L), testGame.getUserIds());
+        assertEquals(List.of(0, 2, 3), List.copyOf(testGame.getSeats().keySet()));
+        //the turn of the user that left goes to the next taken seat
+        testGame.passTurn();
+        assertEquals(3L, testGame.getCurrentUserId());
+    }
+}
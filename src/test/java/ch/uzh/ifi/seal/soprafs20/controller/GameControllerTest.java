@@ -2,10 +2,23 @@ package ch.uzh.ifi.seal.soprafs20.controller;
 
 import ch.uzh.ifi.seal.soprafs20.constant.ChosenWordStatus;
 import ch.uzh.ifi.seal.soprafs20.constant.ClueStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.entity.User;
 import ch.uzh.ifi.seal.soprafs20.entity.game.*;
 import ch.uzh.ifi.seal.soprafs20.exceptions.SopraServiceException;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException404;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.put.PutRequestException409;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.repository.GameSummaryView;
 import ch.uzh.ifi.seal.soprafs20.rest.dto.*;
+import ch.uzh.ifi.seal.soprafs20.rest.filter.IdempotencyFilter;
+import ch.uzh.ifi.seal.soprafs20.service.GameHistoryService;
+import ch.uzh.ifi.seal.soprafs20.service.GameLongPollService;
 import ch.uzh.ifi.seal.soprafs20.service.GameService;
+import ch.uzh.ifi.seal.soprafs20.service.GameStreamService;
+import ch.uzh.ifi.seal.soprafs20.service.GameSummaryService;
+import ch.uzh.ifi.seal.soprafs20.service.GameViewCache;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,9 +27,13 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
@@ -38,12 +55,31 @@ class GameControllerTest {
     @MockBean
     private GameService gameService;
 
+    @MockBean
+    private GameHistoryService gameHistoryService;
+
+    @MockBean
+    private GameStreamService gameStreamService;
+
+    @MockBean
+    private GameLongPollService gameLongPollService;
+
+    @MockBean
+    private GameViewCache gameViewCache;
+
+    @MockBean
+    private GameSummaryService gameSummaryService;
+
     private Game testGame;
 
+    private GameSummary testSummary;
+
     @BeforeEach
     public void setUp(){
         testGame = new Game();
         testGame.setId((long)1);
+        testSummary = new GameSummary();
+        testSummary.setId((long)1);
     }
 
     @Test
@@ -64,35 +100,129 @@ class GameControllerTest {
 
     @Test
     public void getAllGames_success() throws Exception {
-        Game testGame2 = new Game();
-        testGame2.setId((long)2);
-        List<Game> games = new ArrayList<>();
-        games.add(testGame);
-        games.add(testGame2);
+        GameSummary testSummary2 = new GameSummary();
+        testSummary2.setId((long)2);
+        testSummary2.getUserIds().add((long)3);
+        List<GameSummaryView> summaries = new ArrayList<>();
+        summaries.add(asView(testSummary));
+        summaries.add(asView(testSummary2));
 
-        given(gameService.getGames()).willReturn(games);
+        given(gameSummaryService.getSummaryPage(0L, null, Keysets.EXPORT_PAGE_SIZE)).willReturn(new SliceImpl<>(summaries));
 
         MockHttpServletRequestBuilder getRequest = get("/games").contentType(MediaType.APPLICATION_JSON);
 
         mockMvc.perform(getRequest).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.LINK))
+                .andExpect(MockMvcResultMatchers.jsonPath("$", hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[0].id", is(testSummary.getId().intValue())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[1].id", is(testSummary2.getId().intValue())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[1].usersIds", contains(3)));
+        Mockito.verify(gameService, Mockito.never()).getGames();
+    }
+
+    @Test
+    public void getAllGames_noPagingParameters_returnsEveryPage() throws Exception {
+        GameSummary testSummary2 = new GameSummary();
+        testSummary2.setId((long)9);
+
+        given(gameSummaryService.getSummaryPage(0L, GameStatus.CREATED, Keysets.EXPORT_PAGE_SIZE))
+                .willReturn(new SliceImpl<>(Collections.singletonList(asView(testSummary)), PageRequest.of(0, 1), true));
+        given(gameSummaryService.getSummaryPage(testSummary.getId(), GameStatus.CREATED, Keysets.EXPORT_PAGE_SIZE))
+                .willReturn(new SliceImpl<>(Collections.singletonList(asView(testSummary2))));
+
+        mockMvc.perform(get("/games?status=CREATED")).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.LINK))
                 .andExpect(MockMvcResultMatchers.jsonPath("$", hasSize(2)))
-                .andExpect(MockMvcResultMatchers.jsonPath("$.[0].id", is(testGame.getId().intValue())))
-                .andExpect(MockMvcResultMatchers.jsonPath("$.[1].id", is(testGame2.getId().intValue())));
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[1].id", is(9)));
+    }
+
+    @Test
+    public void getAllGames_morePages_linksNextPage() throws Exception {
+        testSummary.setId((long)7);
+        List<GameSummaryView> summaries = Collections.singletonList(asView(testSummary));
+
+        given(gameSummaryService.getSummaryPage(3L, GameStatus.CREATED, 1))
+                .willReturn(new SliceImpl<>(summaries, PageRequest.of(0, 1), true));
+
+        MockHttpServletRequestBuilder getRequest = get("/games?status=CREATED&after=3&size=1");
+
+        mockMvc.perform(getRequest).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.LINK,
+                        "<http://localhost/games?status=CREATED&size=1&after=7>; rel=\"next\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[0].id", is(7)));
+    }
+
+    @Test
+    public void getAllGames_invalidPage_badRequest() throws Exception {
+        mockMvc.perform(get("/games?size=101")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/games?size=0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/games?after=-1")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/games?status=UNKNOWN")).andExpect(status().isBadRequest());
+        Mockito.verifyNoInteractions(gameSummaryService);
+    }
+
+    @Test
+    public void getGamesOfUser_success() throws Exception {
+        testSummary.getUserIds().add((long)4);
+        given(gameSummaryService.getSummariesOfUser(4L)).willReturn(Collections.singletonList(asView(testSummary)));
+
+        mockMvc.perform(get("/users/4/games")).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$", hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[0].id", is(testSummary.getId().intValue())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[0].usersIds", contains(4)));
     }
 
     @Test
     public void getGameById_success() throws Exception {
-        given(gameService.getGameById(Mockito.any())).willReturn(testGame);
+        given(gameSummaryService.getSummary(Mockito.any())).willReturn(testSummary);
 
         MockHttpServletRequestBuilder getRequest = get("/games/1").contentType(MediaType.APPLICATION_JSON);
 
         mockMvc.perform(getRequest).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id", is(testSummary.getId().intValue())));
+        Mockito.verify(gameService, Mockito.never()).getGameById(Mockito.any());
+    }
+
+    @Test
+    public void getGameById_sameVersion_notModified() throws Exception {
+        given(gameSummaryService.getVersion(1L)).willReturn(5L);
+
+        MockHttpServletRequestBuilder getRequest = get("/games/1").header(HttpHeaders.IF_NONE_MATCH, "\"5\"");
+
+        mockMvc.perform(getRequest).andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"5\""))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        Mockito.verify(gameSummaryService, Mockito.never()).getSummary(Mockito.any());
+    }
+
+    @Test
+    public void getGameById_newerVersion_returnsGameWithETag() throws Exception {
+        given(gameSummaryService.getVersion(1L)).willReturn(6L);
+        given(gameSummaryService.getSummary(Mockito.any())).willReturn(testSummary);
+
+        MockHttpServletRequestBuilder getRequest = get("/games/1").header(HttpHeaders.IF_NONE_MATCH, "\"5\"");
+
+        mockMvc.perform(getRequest).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"6\""))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.id", is(testGame.getId().intValue())));
     }
 
+    @Test
+    public void getGameById_cachedVersion_sendsCachedJson() throws Exception {
+        given(gameSummaryService.getVersion(1L)).willReturn(7L);
+        given(gameViewCache.getView(1L, 7L, GameViewCache.GAME_VIEW)).willReturn("{\"id\":1,\"version\":7}".getBytes());
+
+        MockHttpServletRequestBuilder getRequest = get("/games/1");
+
+        mockMvc.perform(getRequest).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version", is(7)));
+        Mockito.verify(gameSummaryService, Mockito.never()).getSummary(Mockito.any());
+    }
+
     @Test
     public void getGameById_noGameFound() throws Exception {
-        given(gameService.getGameById(Mockito.any())).willReturn(null);
+        given(gameSummaryService.getVersion(Mockito.any())).willThrow(new GetRequestException404("No game was found!"));
 
         MockHttpServletRequestBuilder getRequest = get("/games/1").contentType(MediaType.APPLICATION_JSON);
 
@@ -146,6 +276,29 @@ class GameControllerTest {
         mockMvc.perform(putRequest).andExpect(status().isOk());
     }
 
+    @Test
+    public void settleGame_returnsSettledUsers() throws Exception {
+        User settledUser = new User();
+        settledUser.setId(2L);
+        settledUser.setScore(12);
+        settledUser.setGamesPlayed(1);
+        given(gameService.settleGame(1L)).willReturn(List.of(settledUser));
+
+        mockMvc.perform(put("/games/settle/1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$", hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id", is(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].score", is(12)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].gamesPlayed", is(1)));
+    }
+
+    @Test
+    public void settleGame_alreadySettled_conflict() throws Exception {
+        given(gameService.settleGame(1L)).willThrow(new PutRequestException409("The scores of this game are already settled!"));
+
+        mockMvc.perform(put("/games/settle/1")).andExpect(status().isConflict());
+    }
+
 
     @Test
     public void resetGameStats() throws Exception {
@@ -169,7 +322,7 @@ class GameControllerTest {
         testCard.setMysteryWords(wordList);
         testGame.setActiveCard(testCard);
 
-        given(gameService.getGameById(Mockito.any())).willReturn(testGame);
+        given(gameService.getCurrentCard(Mockito.any())).willReturn(testCard);
 
         MockHttpServletRequestBuilder getRequest = get("/cards/1").contentType(MediaType.APPLICATION_JSON);
 
@@ -197,13 +350,69 @@ class GameControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.words", hasSize(5)));
     }
 
+    @Test
+    public void getActiveCard_PUT_retryWithIdempotencyKey_drawsOnlyOneCard() throws Exception{
+        Card testCard = new Card();
+        testCard.setMysteryWords(List.of("Test1", "Test2", "Test3", "Test4", "Test5"));
+
+        given(gameService.getActiveCard(Mockito.any())).willReturn(testCard);
+
+        MockHttpServletRequestBuilder putRequest = put("/cards/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString());
+
+        mockMvc.perform(putRequest).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.words", hasSize(5)));
+        mockMvc.perform(putRequest).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(IdempotencyFilter.IDEMPOTENT_REPLAY_HEADER, "true"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.words", hasSize(5)));
+
+        Mockito.verify(gameService, Mockito.times(1)).getActiveCard(Mockito.any());
+    }
+
+    @Test
+    public void setCluesToInvalid_PUT_sameIdempotencyKeyOtherBody_unprocessable() throws Exception {
+        given(gameService.setCluesToInvalid(Mockito.any(), Mockito.any())).willReturn(GameState.of(testGame));
+        String idempotencyKey = UUID.randomUUID().toString();
+        CluePutDTO cluePutDTO = new CluePutDTO();
+        cluePutDTO.setCluesToChange(List.of("TestClue"));
+
+        mockMvc.perform(put("/clues/1").contentType(MediaType.APPLICATION_JSON).content(asJsonString(cluePutDTO))
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, idempotencyKey))
+                .andExpect(status().isOk());
+        cluePutDTO.setCluesToChange(List.of("AnotherTestClue"));
+        mockMvc.perform(put("/clues/1").contentType(MediaType.APPLICATION_JSON).content(asJsonString(cluePutDTO))
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, idempotencyKey))
+                .andExpect(status().isUnprocessableEntity());
+
+        Mockito.verify(gameService, Mockito.times(1)).setCluesToInvalid(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void setCluesToInvalid_PUT_sameIdempotencyKeyOtherCaller_executedForBoth() throws Exception {
+        given(gameService.setCluesToInvalid(Mockito.any(), Mockito.any())).willReturn(GameState.of(testGame));
+        String idempotencyKey = UUID.randomUUID().toString();
+        CluePutDTO cluePutDTO = new CluePutDTO();
+        cluePutDTO.setCluesToChange(List.of("TestClue"));
+
+        for (String token : List.of("token1", "token2")){
+            mockMvc.perform(put("/clues/1").contentType(MediaType.APPLICATION_JSON).content(asJsonString(cluePutDTO))
+                    .header(HttpHeaders.AUTHORIZATION, token)
+                    .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, idempotencyKey))
+                    .andExpect(status().isOk())
+                    .andExpect(MockMvcResultMatchers.header().doesNotExist(IdempotencyFilter.IDEMPOTENT_REPLAY_HEADER));
+        }
+
+        Mockito.verify(gameService, Mockito.times(2)).setCluesToInvalid(Mockito.any(), Mockito.any());
+    }
+
 
     @Test
     public void setChosenWord_success() throws Exception {
         CardPutDTO cardPutDTO = new CardPutDTO();
         cardPutDTO.setChosenWord("Test3");
 
-        given(gameService.updateChosenWord(Mockito.any(), Mockito.any())).willReturn(testGame);
+        given(gameService.updateChosenWord(Mockito.any(), Mockito.any())).willReturn(GameState.of(testGame));
 
         MockHttpServletRequestBuilder putRequest = put("/chosenword/1")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -233,7 +442,7 @@ class GameControllerTest {
         chosenWordPutDTO.setStatus(false);
         testGame.setWordStatus(ChosenWordStatus.REJECTED);
 
-        given(gameService.updateChosenWord(Mockito.any(), Mockito.any())).willReturn(testGame);
+        given(gameService.updateChosenWord(Mockito.any(), Mockito.any())).willReturn(GameState.of(testGame));
 
         MockHttpServletRequestBuilder putRequest = put("/chosenword/update/1")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -249,12 +458,14 @@ class GameControllerTest {
         CluePostDTO cluePostDTO = new CluePostDTO();
         cluePostDTO.setClueWord("TestClue");
         cluePostDTO.setTime(10);
+        cluePostDTO.setUserId(2L);
         Clue testClue = new Clue();
         testClue.setClueWord("TestClue");
         testClue.setValid(ClueStatus.VALID);
         testClue.setTime(10);
 
-        given(gameService.addClueToGame(Mockito.any(), Mockito.any())).willReturn(testClue);
+        //the user that gave the clue is passed on to the service
+        given(gameService.addClueToGame(Mockito.any(), Mockito.argThat(clue -> Long.valueOf(2L).equals(clue.getUserId())))).willReturn(testClue);
 
         MockHttpServletRequestBuilder postRequest = post("/clues/1")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -329,7 +540,7 @@ class GameControllerTest {
 
         testGame.setClues(clues);
 
-        given(gameService.getGameById(Mockito.any())).willReturn(testGame);
+        given(gameService.getGameWithClues(Mockito.any())).willReturn(testGame);
 
         MockHttpServletRequestBuilder getRequest = get("/clues/1")
                 .contentType(MediaType.APPLICATION_JSON);
@@ -341,6 +552,47 @@ class GameControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.allManualClues", is(false)));
     }
 
+    @Test
+    public void getRound_giveClues_leavesOutGuess() throws Exception {
+        testGame.addUserId((long)1);
+        testGame.addUserId((long)2);
+        testGame.addUserId((long)3);
+        testGame.setNormalMode(true);
+        testGame.setPhase(GamePhase.GIVE_CLUES);
+        testGame.setChosenWord("Apple");
+        testGame.setWordStatus(ChosenWordStatus.ACCEPTED);
+
+        Clue testClue = new Clue();
+        testClue.setClueWord("TestClue");
+        testClue.setValid(ClueStatus.VALID);
+        testGame.setClues(new ArrayList<>(List.of(testClue)));
+
+        given(gameService.getRound(Mockito.any())).willReturn(testGame);
+
+        MockHttpServletRequestBuilder getRequest = get("/games/1/round");
+
+        mockMvc.perform(getRequest).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.game.id", is(testGame.getId().intValue())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.game.phase", is("GIVE_CLUES")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.chosenWord.chosenWord", is("Apple")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.clues.clues", hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.card").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.guess").doesNotExist());
+        Mockito.verify(gameService, Mockito.never()).getGameById(Mockito.any());
+    }
+
+    @Test
+    public void getRound_lobby_onlyGame() throws Exception {
+        given(gameService.getRound(Mockito.any())).willReturn(testGame);
+
+        MockHttpServletRequestBuilder getRequest = get("/games/1/round");
+
+        mockMvc.perform(getRequest).andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.game.phase", is("LOBBY")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.chosenWord").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.clues").doesNotExist());
+    }
+
     @Test
     public void setCluesToInvalid_success() throws Exception {
         CluePutDTO cluePutDTO = new CluePutDTO();
@@ -362,7 +614,7 @@ class GameControllerTest {
 
         testGame.setClues(clues);
 
-        given(gameService.setCluesToInvalid(Mockito.any(), Mockito.any())).willReturn(testGame);
+        given(gameService.setCluesToInvalid(Mockito.any(), Mockito.any())).willReturn(GameState.of(testGame));
 
         MockHttpServletRequestBuilder putRequest = put("/clues/1")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -425,4 +677,8 @@ class GameControllerTest {
             throw new SopraServiceException(String.format("The request body could not be created.%s", e.toString()));
         }
     }
-}
\ No newline at end of file
+
+    private static GameSummaryView asView(GameSummary summary) {
+        return new SpelAwareProxyProjectionFactory().createProjection(GameSummaryView.class, summary);
+    }
+}
@@ -3,6 +3,7 @@ package ch.uzh.ifi.seal.soprafs20.controller;
 import ch.uzh.ifi.seal.soprafs20.constant.UserStatus;
 import ch.uzh.ifi.seal.soprafs20.entity.User;
 import ch.uzh.ifi.seal.soprafs20.exceptions.SopraServiceException;
+import ch.uzh.ifi.seal.soprafs20.repository.UserView;
 import ch.uzh.ifi.seal.soprafs20.rest.dto.UserPostDTO;
 import ch.uzh.ifi.seal.soprafs20.rest.dto.UserPutDTO;
 import ch.uzh.ifi.seal.soprafs20.service.UserService;
@@ -14,6 +15,10 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
@@ -26,6 +31,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -68,10 +74,10 @@ public class UserControllerTest {
         user.setPassword("testPassword");
         user.setStatus(UserStatus.OFFLINE);
 
-        List<User> allUsers = Collections.singletonList(user);
+        List<UserView> allUsers = Collections.singletonList(asView(user));
 
-        // this mocks the UserService -> we define above what the userService should return when getUsers() is called
-        given(userService.getUsers()).willReturn(allUsers);
+        // this mocks the UserService -> we define above what the userService should return when getUserPage() is called
+        given(userService.getUserPage(0L, null, Keysets.EXPORT_PAGE_SIZE)).willReturn(new SliceImpl<>(allUsers));
 
         // when
         MockHttpServletRequestBuilder getRequest = get("/users").contentType(MediaType.APPLICATION_JSON);
@@ -123,11 +129,11 @@ public class UserControllerTest {
         user2.setUsername("niknu");
         user2.setStatus(UserStatus.OFFLINE);
 
-        List<User> users = new ArrayList<>();
-        users.add(user);
-        users.add(user2);
+        List<UserView> users = new ArrayList<>();
+        users.add(asView(user));
+        users.add(asView(user2));
 
-        given(userService.getUsers()).willReturn(users);
+        given(userService.getUserPage(0L, null, Keysets.EXPORT_PAGE_SIZE)).willReturn(new SliceImpl<>(users));
         // when
         MockHttpServletRequestBuilder getRequest = get("/users").contentType(MediaType.APPLICATION_JSON);
         // then
@@ -135,12 +141,31 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$[0].name", is(users.get(0).getName())))
                 .andExpect(jsonPath("$[0].username", is(users.get(0).getUsername())))
                 .andExpect(jsonPath("$[0].id", is(42)))
+                .andExpect(jsonPath("$[0].password").doesNotExist())
 
                 .andExpect(jsonPath("$[1].name", is(users.get(1).getName())))
                 .andExpect(jsonPath("$[1].username", is(users.get(1).getUsername())))
                 .andExpect(jsonPath("$[1].id", is(24)));
     }
 
+    @Test
+    public void getUsers_filteredByStatus_linksNextPage() throws Exception {
+        List<UserView> users = Collections.singletonList(asView(user));
+        given(userService.getUserPage(0L, UserStatus.ONLINE, 1))
+                .willReturn(new SliceImpl<>(users, PageRequest.of(0, 1), true));
+
+        mockMvc.perform(get("/users?status=ONLINE&size=1")).andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK, "<http://localhost/users?status=ONLINE&size=1&after=1>; rel=\"next\""))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].status", is(UserStatus.ONLINE.toString())));
+    }
+
+    @Test
+    public void getUsers_tooLargePage_badRequest() throws Exception {
+        mockMvc.perform(get("/users?size=101")).andExpect(status().isBadRequest());
+        Mockito.verifyNoInteractions(userService);
+    }
+
     @Test
     public void test_getUserById() throws Exception {
         // given
@@ -159,6 +184,17 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.id", is(42)));
     }
 
+    @Test
+    public void test_getUserById_notModified() throws Exception {
+        given(userService.getUserVersion(42L)).willReturn(3L);
+        // when
+        MockHttpServletRequestBuilder getRequest = get("/users/42").header(HttpHeaders.IF_NONE_MATCH, "\"3\"");
+        // then
+        mockMvc.perform(getRequest).andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+        Mockito.verify(userService, Mockito.never()).getUserById(Mockito.any());
+    }
+
     @Test
     public void test_getUserById_invalidInput() throws Exception {
         given(userService.getUserById(null)).willReturn(null);
@@ -287,33 +323,31 @@ public class UserControllerTest {
     }
 
     @Test
-    public void updateUserGameStats_success() throws Exception {
+    public void updateUserGameStats_gone() throws Exception {
         UserPutDTO userPutDTO = new UserPutDTO();
         userPutDTO.setCorrectlyGuessed(2);
         userPutDTO.setDuplicateClues(1);
 
-        given(userService.updateUserGameStats(Mockito.any(), Mockito.any())).willReturn(user);
-
         MockHttpServletRequestBuilder putRequest = put("/users/gamestats/1")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(asJsonString(userPutDTO));
 
-        mockMvc.perform(putRequest).andExpect(status().isOk());
+        mockMvc.perform(putRequest).andExpect(status().isGone());
+        Mockito.verifyNoInteractions(userService);
     }
 
     @Test
-    public void updateUserScore_success() throws Exception {
+    public void updateUserScore_gone() throws Exception {
         UserPutDTO userPutDTO = new UserPutDTO();
         userPutDTO.setCorrectlyGuessed(2);
         userPutDTO.setDuplicateClues(1);
 
-        given(userService.updateUserScore(Mockito.any(), Mockito.any())).willReturn(user);
-
         MockHttpServletRequestBuilder putRequest = put("/users/score/1")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(asJsonString(userPutDTO));
 
-        mockMvc.perform(putRequest).andExpect(status().isOk());
+        mockMvc.perform(putRequest).andExpect(status().isGone());
+        Mockito.verifyNoInteractions(userService);
     }
 
 
@@ -331,4 +365,8 @@ public class UserControllerTest {
             throw new SopraServiceException(String.format("The request body could not be created.%s", e.toString()));
         }
     }
+
+    private static UserView asView(User user) {
+        return new SpelAwareProxyProjectionFactory().createProjection(UserView.class, user);
+    }
 }
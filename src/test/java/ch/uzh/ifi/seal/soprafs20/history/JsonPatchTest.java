@@ -0,0 +1,57 @@
+package ch.uzh.ifi.seal.soprafs20.history;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonPatchTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void diff_sameDocument_emptyPatch() throws Exception {
+        JsonNode game = json("{'version':1,'usersIds':[1,2]}");
+
+        assertEquals(0, JsonPatch.diff(game, game.deepCopy()).size());
+    }
+
+    @Test
+    public void diff_changedField_replacesOnlyThatField() throws Exception {
+        ArrayNode patch = JsonPatch.diff(json("{'version':7,'chosenWordCounter':0,'usersIds':[1,2,3]}"),
+                json("{'version':8,'chosenWordCounter':1,'usersIds':[1,2,3]}"));
+
+        assertEquals(json("[{'op':'replace','path':'/version','value':8},{'op':'replace','path':'/chosenWordCounter','value':1}]"), patch);
+    }
+
+    @Test
+    public void diff_arrayChangedAtTheEnd_patchesElements() throws Exception {
+        assertEquals(json("[{'op':'add','path':'/usersIds/-','value':3}]"),
+                JsonPatch.diff(json("{'usersIds':[1,2]}"), json("{'usersIds':[1,2,3]}")));
+        assertEquals(json("[{'op':'remove','path':'/usersIds/2'},{'op':'remove','path':'/usersIds/1'}]"),
+                JsonPatch.diff(json("{'usersIds':[1,2,3]}"), json("{'usersIds':[1]}")));
+        assertEquals(json("[{'op':'replace','path':'/usersIds','value':[1,3]}]"),
+                JsonPatch.diff(json("{'usersIds':[1,2,3]}"), json("{'usersIds':[1,3]}")));
+    }
+
+    @Test
+    public void diff_addedAndRemovedFields_escapesPaths() throws Exception {
+        ArrayNode patch = JsonPatch.diff(json("{'a/b':1,'guess':{'word':'x'}}"), json("{'c~d':null,'guess':{}}"));
+
+        assertEquals(json("[{'op':'remove','path':'/a~1b'},{'op':'add','path':'/c~0d','value':null},{'op':'remove','path':'/guess/word'}]"), patch);
+    }
+
+    @Test
+    public void diff_differentTypes_replacesDocument() throws Exception {
+        ObjectNode target = (ObjectNode) json("{'clues':[]}");
+
+        assertEquals(json("[{'op':'replace','path':'','value':{'clues':[]}}]"), JsonPatch.diff(json("[]"), target));
+    }
+
+    private JsonNode json(String json) throws Exception {
+        return objectMapper.readTree(json.replace('\'', '"'));
+    }
+}
@@ -0,0 +1,34 @@
+package ch.uzh.ifi.seal.soprafs20.rest.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyCacheTest {
+
+    private final IdempotencyCache idempotencyCache = new IdempotencyCache(2, 60_000);
+
+    @Test
+    public void reserve_fullOfPendingRequests_rejected() {
+        assertEquals(IdempotencyCache.Reservation.RESERVED, idempotencyCache.reserve("a", "hash"));
+        assertEquals(IdempotencyCache.Reservation.RESERVED, idempotencyCache.reserve("b", "hash"));
+
+        assertEquals(IdempotencyCache.Reservation.FULL, idempotencyCache.reserve("c", "hash"));
+        assertEquals(IdempotencyCache.Reservation.TAKEN, idempotencyCache.reserve("a", "hash"));
+    }
+
+    @Test
+    public void reserve_full_evictsOldestStoredResponseNotPendingRequest() {
+        idempotencyCache.reserve("a", "hash");
+        idempotencyCache.reserve("b", "hash");
+        idempotencyCache.complete("b", "hash", 200, Map.of(), new byte[0]);
+
+        assertEquals(IdempotencyCache.Reservation.RESERVED, idempotencyCache.reserve("c", "hash"));
+
+        assertNull(idempotencyCache.get("b"));
+        assertTrue(idempotencyCache.get("a").isPending());
+        assertEquals(IdempotencyCache.Reservation.TAKEN, idempotencyCache.reserve("a", "hash"));
+    }
+}
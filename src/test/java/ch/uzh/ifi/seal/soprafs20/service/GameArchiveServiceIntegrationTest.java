@@ -0,0 +1,227 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GuessStatus;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Clue;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Guess;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException404;
+import ch.uzh.ifi.seal.soprafs20.history.ArchivedGame;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.history.RoundResult;
+import ch.uzh.ifi.seal.soprafs20.repository.*;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.ChosenWordPutDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//the archive deletes whole games with bulk deletes, its own database keeps the rows of the other tests out of the counts
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:archive")
+@AutoConfigureMockMvc
+class GameArchiveServiceIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private GameSummaryRepository gameSummaryRepository;
+
+    @Autowired
+    private GameArchiveRepository gameArchiveRepository;
+
+    @Autowired
+    private ClueRepository clueRepository;
+
+    @Autowired
+    private GameEventRepository gameEventRepository;
+
+    @Autowired
+    private GameSnapshotRepository gameSnapshotRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private DeckRepository deckRepository;
+
+    @Autowired
+    private GameBoxRepository gameBoxRepository;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameArchiveService gameArchiveService;
+
+    @Autowired
+    private GameHistoryService gameHistoryService;
+
+    private Long gameId;
+
+    private String chosenWord;
+
+    private long[] rowCounts;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        gameRepository.deleteAll();
+        gameSummaryRepository.deleteAll();
+        gameArchiveRepository.deleteAll();
+        gameEventRepository.deleteAll();
+        gameSnapshotRepository.deleteAll();
+
+        rowCounts = countCardRows();
+        Game testGame = new Game();
+        testGame.setCurrentUserId(1L);
+        gameId = gameService.createGame(testGame).getId();
+        gameService.addUserToGame(gameId, 2L);
+        gameService.addUserToGame(gameId, 3L);
+        gameService.startGame(gameId);
+        chosenWord = gameService.getActiveCard(gameId).getMysteryWords().get(0);
+        gameService.setChosenWord(gameId, chosenWord);
+
+        ChosenWordPutDTO accept = new ChosenWordPutDTO();
+        accept.setStatus(true);
+        gameService.updateChosenWord(gameId, accept);
+        gameService.updateChosenWord(gameId, accept);
+
+        //these clues are rejected by the clue checker without a request to the homophone api
+        for (int i = 0; i < 4; i++){
+            Clue clue = new Clue();
+            clue.setClueWord("OVERTIMED");
+            clue.setUserId(2L + i / 2);
+            clue.setTime(5);
+            gameService.addClueToGame(gameId, clue);
+        }
+        gameService.setCluesToInvalid(gameId, List.of());
+        gameService.setCluesToInvalid(gameId, List.of());
+
+        Guess guess = new Guess();
+        guess.setGuessWord(chosenWord);
+        guess.setTime(5);
+        gameService.makeGuess(gameId, guess);
+    }
+
+    @Test
+    public void archive_settledGame_keepsRoundsAndDeletesLiveRows() {
+        gameService.finishGame(gameId);
+        gameService.settleGame(gameId);
+        long events = gameEventRepository.count();
+
+        assertTrue(gameArchiveService.archive(gameId));
+
+        ArchivedGame archivedGame = gameArchiveService.getArchivedGame(gameId);
+        assertEquals(GameStatus.FINISHED, archivedGame.getState().getStatus());
+        assertEquals(List.of(1L, 2L, 3L), archivedGame.getState().getUserIds());
+        assertEquals(1, archivedGame.getRounds().size());
+        RoundResult round = archivedGame.getRounds().get(0);
+        assertEquals(chosenWord, round.getChosenWord());
+        assertEquals(5, round.getCardWords().size());
+        assertEquals(4, round.getClues().size());
+        assertEquals(GuessStatus.CORRECT, round.getGuessStatus());
+        assertEquals(archivedGame.getState().getScore(), round.getScore());
+
+        assertFalse(gameRepository.existsById(gameId));
+        assertEquals(0, clueRepository.count());
+        assertArrayEquals(rowCounts, countCardRows());
+        //the history is append-only and kept
+        assertEquals(events, gameEventRepository.count());
+        //the summary is kept, the game is still listed as finished
+        assertEquals(GameStatus.FINISHED, gameSummaryRepository.findById(gameId).orElseThrow().getStatus());
+    }
+
+    @Test
+    public void archive_settledGame_canBeReplayed() {
+        gameService.finishGame(gameId);
+        gameService.settleGame(gameId);
+        GameState settledGame = gameService.getGameState(gameId);
+
+        assertTrue(gameArchiveService.archive(gameId));
+
+        GameState replayedGame = gameHistoryService.replay(gameId, null);
+        assertEquals(settledGame.getVersion(), replayedGame.getVersion());
+        assertEquals(GameStatus.FINISHED, replayedGame.getStatus());
+        assertEquals(settledGame.getScore(), replayedGame.getScore());
+        assertEquals(settledGame.getUserIds(), replayedGame.getUserIds());
+        List<RoundResult> rounds = gameHistoryService.replayRounds(gameId);
+        assertEquals(1, rounds.size());
+        assertEquals(chosenWord, rounds.get(0).getChosenWord());
+        assertEquals(gameArchiveService.getArchivedGame(gameId).getRounds().get(0).getScore(), rounds.get(0).getScore());
+    }
+
+    @Test
+    public void archive_unsettledGame_notArchived() {
+        gameService.finishGame(gameId);
+
+        assertFalse(gameArchiveService.archive(gameId));
+
+        assertTrue(gameRepository.existsById(gameId));
+        assertFalse(gameArchiveRepository.existsById(gameId));
+    }
+
+    @Test
+    public void leave_archivedGame_gone() throws Exception {
+        gameService.finishGame(gameId);
+        gameService.settleGame(gameId);
+        gameArchiveService.archive(gameId);
+
+        mockMvc.perform(put("/games/leave/" + gameId).contentType(MediaType.APPLICATION_JSON).content("{\"currentUserId\": 2}"))
+                .andExpect(status().isGone());
+        mockMvc.perform(put("/games/leave/" + (gameId + 1000)).contentType(MediaType.APPLICATION_JSON).content("{\"currentUserId\": 2}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void archive_runningGame_notArchived() {
+        assertFalse(gameArchiveService.archive(gameId));
+        assertFalse(gameArchiveService.archive(gameId + 1000));
+
+        assertTrue(gameRepository.existsById(gameId));
+        assertThrows(GetRequestException404.class, () -> gameArchiveService.getArchivedGame(gameId));
+    }
+
+    @Test
+    public void getArchive_readsArchivedGames() throws Exception {
+        gameService.finishGame(gameId);
+        gameService.settleGame(gameId);
+        gameArchiveService.archive(gameId);
+
+        mockMvc.perform(get("/archive/" + gameId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state.status", is("FINISHED")))
+                .andExpect(jsonPath("$.rounds", hasSize(1)))
+                .andExpect(jsonPath("$.rounds[0].chosenWord", is(chosenWord)))
+                .andExpect(jsonPath("$.rounds[0].clues", hasSize(4)));
+        mockMvc.perform(get("/users/2/archive"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].state.id", is(gameId.intValue())));
+        mockMvc.perform(get("/users/4/archive"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+        mockMvc.perform(get("/archive/" + (gameId + 1000))).andExpect(status().isNotFound());
+        mockMvc.perform(get("/games/" + gameId)).andExpect(status().isOk());
+    }
+
+    //the cards, decks and game boxes of games that are not archived
+    private long[] countCardRows() {
+        return new long[]{cardRepository.count(), deckRepository.count(), gameBoxRepository.count()};
+    }
+}
@@ -0,0 +1,165 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.entity.game.Card;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Clue;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.GameSummaryRepository;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.ChosenWordPutDTO;
+import org.hibernate.Hibernate;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the number of statements every read of a game needs, a lazy association that is read without being
+ * part of the entity graph shows up here as an additional select.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class GameFetchPlanIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private GameSummaryRepository gameSummaryRepository;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long gameId;
+
+    private List<String> words;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        gameRepository.deleteAll();
+        gameSummaryRepository.deleteAll();
+
+        Game testGame = new Game();
+        testGame.setCurrentUserId(1L);
+        gameId = gameService.createGame(testGame).getId();
+        gameService.addUserToGame(gameId, 2L);
+        gameService.addUserToGame(gameId, 3L);
+        gameService.startGame(gameId);
+        words = gameService.getActiveCard(gameId).getMysteryWords();
+        gameService.setChosenWord(gameId, words.get(0));
+
+        ChosenWordPutDTO accept = new ChosenWordPutDTO();
+        accept.setStatus(true);
+        gameService.updateChosenWord(gameId, accept);
+        gameService.updateChosenWord(gameId, accept);
+
+        Clue clue = new Clue();
+        clue.setClueWord("OVERTIMED");
+        clue.setUserId(2L);
+        gameService.addClueToGame(gameId, clue);
+    }
+
+    @Test
+    public void getGames_oneSelect() throws Exception {
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        mockMvc.perform(get("/games"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].usersIds", hasSize(3)));
+
+        //the summaries of the games, the user ids are a column of the summary
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void getGameById_oneSelect() throws Exception {
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        mockMvc.perform(get("/games/" + gameId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usersIds", hasSize(3)));
+
+        //the version, the encoded game comes from the view cache
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void getRound_threeSelects() throws Exception {
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        mockMvc.perform(get("/games/" + gameId + "/round"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.card.words", is(words)))
+                .andExpect(jsonPath("$.game.usersIds", hasSize(3)));
+
+        //the version, the game with users, guess and card words, the clues
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void getActiveCard_twoSelects() throws Exception {
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        mockMvc.perform(get("/cards/" + gameId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.words", is(words)));
+
+        //the version, the game with its card and the card words
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void getChosenWordCluesAndGuess_oneSelectEach() throws Exception {
+        for (String path : new String[]{"/chosenword/", "/clues/", "/guess/"}){
+            Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+            mockMvc.perform(get(path + gameId)).andExpect(status().isOk());
+
+            //the version, the rest comes from the view cache
+            assertEquals(1, statistics.getPrepareStatementCount(), path);
+        }
+    }
+
+    @Test
+    public void serviceReads_loadTheirEntityGraphInOneSelect() {
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+        Game gameById = gameService.getGameById(gameId);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(Hibernate.isInitialized(gameById.getSeats()));
+        assertFalse(Hibernate.isInitialized(gameById.getActiveCard()));
+
+        statistics = HibernateStatistics.cleared(entityManagerFactory);
+        gameService.getGuess(gameId);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics = HibernateStatistics.cleared(entityManagerFactory);
+        Card card = gameService.getCurrentCard(gameId);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(words, card.getMysteryWords());
+
+        //the round graph and the clues as a second select
+        statistics = HibernateStatistics.cleared(entityManagerFactory);
+        Game round = gameService.getRound(gameId);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(words, round.getActiveCard().getMysteryWords());
+        assertEquals(1, round.getClues().size());
+    }
+}
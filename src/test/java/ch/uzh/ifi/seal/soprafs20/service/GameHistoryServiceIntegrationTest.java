@@ -0,0 +1,222 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.constant.ChosenWordStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.ClueStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GameEventType;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Clue;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.entity.game.GameEvent;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException404;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.repository.GameEventRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.GameSnapshotRepository;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.ChosenWordPutDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.GameUpdateGetDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.mapper.DTOMapper;
+import ch.uzh.ifi.seal.soprafs20.websocket.WebSocketConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@WebAppConfiguration
+@SpringBootTest
+class GameHistoryServiceIntegrationTest {
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private GameEventRepository gameEventRepository;
+
+    @Autowired
+    private GameSnapshotRepository gameSnapshotRepository;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameHistoryService gameHistoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @SpyBean
+    private SimpMessagingTemplate messagingTemplate;
+
+    private Long gameId;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        gameRepository.deleteAll();
+        gameEventRepository.deleteAll();
+        gameSnapshotRepository.deleteAll();
+
+        Game testGame = new Game();
+        testGame.setCurrentUserId(1L);
+        gameId = gameService.createGame(testGame).getId();
+        Mockito.clearInvocations(messagingTemplate);
+    }
+
+    @Test
+    public void replay_noHistory_throwsException() {
+        assertThrows(GetRequestException404.class, () -> gameHistoryService.replay(gameId + 1, null));
+    }
+
+    @Test
+    @Transactional
+    public void replay_wholeRound_matchesGame() throws Exception {
+        gameService.addUserToGame(gameId, 2L);
+        gameService.addUserToGame(gameId, 3L);
+        gameService.startGame(gameId);
+        String chosenWord = gameService.getActiveCard(gameId).getMysteryWords().get(0);
+        gameService.setChosenWord(gameId, chosenWord);
+
+        ChosenWordPutDTO chosenWordPutDTO = new ChosenWordPutDTO();
+        chosenWordPutDTO.setStatus(true);
+        gameService.updateChosenWord(gameId, chosenWordPutDTO);
+        gameService.updateChosenWord(gameId, chosenWordPutDTO);
+
+        //these clues are rejected by the clue checker without a request to the homophone api
+        for (int i = 0; i < 4; i++){
+            Clue clue = new Clue();
+            clue.setClueWord("OVERTIMED");
+            clue.setUserId(2L + i / 2);
+            gameService.addClueToGame(gameId, clue);
+        }
+        gameService.setCluesToInvalid(gameId, List.of("OVERTIMED"));
+        gameService.skipGuessing(gameId);
+
+        Game game = gameService.getGameById(gameId);
+        GameState replayedState = gameHistoryService.replay(gameId, null);
+
+        assertEquals(14, replayedState.getVersion());
+        assertEquals(GamePhase.TURN_END, replayedState.getPhase());
+        assertEquals(objectMapper.writeValueAsString(GameState.of(game)), objectMapper.writeValueAsString(replayedState));
+
+        GameState stateBeforeStart = gameHistoryService.replay(gameId, 3L);
+        assertEquals(GameStatus.CREATED, stateBeforeStart.getStatus());
+        assertEquals(GamePhase.LOBBY, stateBeforeStart.getPhase());
+        assertEquals(List.of(1L, 2L, 3L), stateBeforeStart.getUserIds());
+
+        GameState stateAfterCheck = gameHistoryService.replay(gameId, 13L);
+        assertEquals(ChosenWordStatus.ACCEPTED, stateAfterCheck.getWordStatus());
+        assertEquals(GamePhase.CHECK_CLUES, stateAfterCheck.getPhase());
+        assertEquals(ClueStatus.INVALID, stateAfterCheck.getClues().get(0).getValid());
+
+        gameService.resetGameStats(gameId);
+        GameState resetState = gameHistoryService.replay(gameId, null);
+        assertEquals(0, resetState.getClues().size());
+        assertEquals(GamePhase.DRAW_CARD, resetState.getPhase());
+        assertEquals(2L, resetState.getCurrentUserId());
+        assertNull(resetState.getGuessWord());
+    }
+
+    @Test
+    public void append_longPayload_replayed() throws Exception {
+        gameService.addUserToGame(gameId, 2L);
+        gameService.addUserToGame(gameId, 3L);
+        gameService.startGame(gameId);
+        gameService.setChosenWord(gameId, gameService.getActiveCard(gameId).getMysteryWords().get(0));
+        ChosenWordPutDTO chosenWordPutDTO = new ChosenWordPutDTO();
+        chosenWordPutDTO.setStatus(true);
+        gameService.updateChosenWord(gameId, chosenWordPutDTO);
+        gameService.updateChosenWord(gameId, chosenWordPutDTO);
+        for (int i = 0; i < 4; i++){
+            Clue clue = new Clue();
+            clue.setClueWord("OVERTIMED");
+            clue.setUserId(2L + i / 2);
+            gameService.addClueToGame(gameId, clue);
+        }
+
+        //a check lists any number of clues
+        List<String> invalidClues = new ArrayList<>();
+        for (int i = 0; i < 1000; i++){
+            invalidClues.add("CHECKEDCLUE" + i);
+        }
+        GameState checkedGame = gameService.setCluesToInvalid(gameId, invalidClues);
+
+        GameEvent checkEvent = gameEventRepository.findFirstByGameIdOrderByVersionDesc(gameId);
+        assertEquals(GameEventType.CLUES_CHECKED, checkEvent.getType());
+        assertTrue(checkEvent.getPayload().length() > 10000);
+        GameState replayedState = gameHistoryService.replay(gameId, null);
+        assertEquals(objectMapper.writeValueAsString(checkedGame), objectMapper.writeValueAsString(replayedState));
+    }
+
+    @Test
+    public void replay_manyEvents_startsAtLatestSnapshot() throws Exception {
+        for (long userId = 2; userId <= 500; userId++){
+            gameService.addUserToGame(gameId, userId);
+        }
+        for (long userId = 2; userId <= 500; userId += 2){
+            gameService.removeUserFromGame(gameId, userId);
+        }
+
+        //1 created, 499 joined and 250 left
+        assertEquals(750, gameEventRepository.count());
+        assertEquals(750 / GameHistoryService.SNAPSHOT_INTERVAL, gameSnapshotRepository.count());
+
+        GameState latestState = gameHistoryService.replay(gameId, null);
+        assertEquals(750, latestState.getVersion());
+        assertEquals(250, latestState.getUserIds().size());
+
+        GameState oldState = gameHistoryService.replay(gameId, 250L);
+        assertEquals(250, oldState.getUserIds().size());
+        assertEquals(250L, oldState.getUserIds().get(249));
+    }
+
+    @Test
+    public void committedChange_isPushedToGameTopic() throws Exception {
+        gameService.addUserToGame(gameId, 2L);
+
+        ArgumentCaptor<GameUpdateGetDTO> update = ArgumentCaptor.forClass(GameUpdateGetDTO.class);
+        Mockito.verify(messagingTemplate).convertAndSend(Mockito.eq(WebSocketConfig.GAME_TOPIC + gameId), update.capture());
+        assertEquals(gameId, update.getValue().getGameId());
+        assertEquals(2, update.getValue().getVersion());
+        assertEquals(GameEventType.USER_JOINED, update.getValue().getType());
+        //the pushed views are the ones REST serves for the version
+        GameState state = gameService.getGameState(gameId);
+        assertEquals(List.of(1L, 2L), update.getValue().getGame().getUserIds());
+        assertEquals(objectMapper.writeValueAsString(DTOMapper.INSTANCE.convertGameStateToGameGetDTO(state)),
+                objectMapper.writeValueAsString(update.getValue().getGame()));
+        assertEquals(objectMapper.writeValueAsString(DTOMapper.INSTANCE.convertGameStateToChosenWordGetDTO(state)),
+                objectMapper.writeValueAsString(update.getValue().getChosenWord()));
+        assertEquals(objectMapper.writeValueAsString(DTOMapper.INSTANCE.convertGameStateToCluesGetDTO(state)),
+                objectMapper.writeValueAsString(update.getValue().getClues()));
+        assertEquals(objectMapper.writeValueAsString(DTOMapper.INSTANCE.convertGameStateToGuessGetDTO(state)),
+                objectMapper.writeValueAsString(update.getValue().getGuess()));
+    }
+
+    @Test
+    public void rolledBackChange_isNotPushed() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(status -> {
+            gameService.addUserToGame(gameId, 2L);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        Mockito.verify(messagingTemplate, Mockito.never()).convertAndSend(Mockito.anyString(), Mockito.any(Object.class));
+        assertEquals(List.of(1L), gameService.getGameState(gameId).getUserIds());
+    }
+}
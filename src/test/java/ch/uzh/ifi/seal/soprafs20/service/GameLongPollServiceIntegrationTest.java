@@ -0,0 +1,121 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.history.JsonPatch;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class GameLongPollServiceIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameLongPollService gameLongPollService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long gameId;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        gameRepository.deleteAll();
+
+        Game testGame = new Game();
+        testGame.setCurrentUserId(1L);
+        gameId = gameService.createGame(testGame).getId();
+    }
+
+    @Test
+    public void await_newerVersion_answersRightAway() throws Exception {
+        MvcResult result = poll("/games/" + gameId, 0);
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(GameLongPollService.GAME_VERSION_HEADER, "1"))
+                .andExpect(jsonPath("$.version", is(1)));
+    }
+
+    @Test
+    public void await_currentVersion_parkedUntilCommit() throws Exception {
+        gameService.addUserToGame(gameId, 2L);
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        MvcResult gameResult = poll("/games/" + gameId, 2);
+        MvcResult guessResult = poll("/guess/" + gameId, 2);
+
+        //parked requests are answered from memory
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertThrows(IllegalStateException.class, () -> gameResult.getAsyncResult(100));
+        assertTrue(gameLongPollService.isAwaited(gameId));
+
+        gameService.addUserToGame(gameId, 3L);
+        //the game is dropped from the waiters once every parked request is answered
+        assertFalse(gameLongPollService.isAwaited(gameId));
+
+        mockMvc.perform(asyncDispatch(gameResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(GameLongPollService.GAME_VERSION_HEADER, "3"))
+                .andExpect(jsonPath("$.usersIds", contains(1, 2, 3)));
+        mockMvc.perform(asyncDispatch(guessResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.guessStatus", is("NOGUESS")));
+    }
+
+    @Test
+    public void await_delta_patchFromSinceVersionOrWholeView() throws Exception {
+        gameService.addUserToGame(gameId, 2L);
+        MvcResult patchResult = poll("/games/" + gameId, 2, true);
+        MvcResult wholeResult = poll("/games/" + gameId, 0, true);
+
+        gameService.addUserToGame(gameId, 3L);
+
+        mockMvc.perform(asyncDispatch(patchResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(JsonPatch.MEDIA_TYPE))
+                .andExpect(header().string(GameLongPollService.GAME_VERSION_HEADER, "3"))
+                .andExpect(jsonPath("$[?(@.path == '/version')].value", contains(3)))
+                .andExpect(jsonPath("$[?(@.path == '/usersIds/-')].value", contains(3)));
+        //the client missed a version, so the patch would not fit
+        mockMvc.perform(asyncDispatch(wholeResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.usersIds", contains(1, 2)));
+    }
+
+    private MvcResult poll(String path, long sinceVersion) throws Exception {
+        return poll(path, sinceVersion, false);
+    }
+
+    private MvcResult poll(String path, long sinceVersion, boolean delta) throws Exception {
+        return mockMvc.perform(get(path).param("sinceVersion", String.valueOf(sinceVersion)).param("delta", String.valueOf(delta)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+}
@@ -2,30 +2,47 @@ package ch.uzh.ifi.seal.soprafs20.service;
 
 import ch.uzh.ifi.seal.soprafs20.constant.ChosenWordStatus;
 import ch.uzh.ifi.seal.soprafs20.constant.ClueStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
 import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Card;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Clue;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Guess;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.post.PostRequestException400;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.post.PostRequestException409;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.put.PutRequestException409;
+import ch.uzh.ifi.seal.soprafs20.constant.GuessStatus;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.repository.ClueRepository;
 import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.GuessRepository;
 import ch.uzh.ifi.seal.soprafs20.rest.dto.ChosenWordPutDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.RoundGetDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.mapper.DTOMapper;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManagerFactory;
 import javax.transaction.Transactional;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @WebAppConfiguration
-@SpringBootTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 class GameServiceIntegrationTest {
 
     Game testGame;
@@ -36,9 +53,21 @@ class GameServiceIntegrationTest {
     @Autowired
     private GameRepository gameRepository;
 
+    @Autowired
+    private ClueRepository clueRepository;
+
+    @Autowired
+    private GuessRepository guessRepository;
+
     @Autowired
     private GameService gameService;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
 
     @BeforeEach
     public void setup() throws FileNotFoundException {
@@ -120,6 +149,25 @@ class GameServiceIntegrationTest {
         assertEquals(userId2, updatedGame.getUserIds().get(0));
     }
 
+    @Test
+    public void removeUserFromGame_onlyDeletesTheSeatOfTheUser() {
+        for (long userId = 2; userId <= 6; userId++){
+            gameService.addUserToGame(gameId, userId);
+        }
+
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+        gameService.removeUserFromGame(gameId, 1L);
+        long firstSeatStatements = statistics.getPrepareStatementCount();
+        statistics = HibernateStatistics.cleared(entityManagerFactory);
+        gameService.removeUserFromGame(gameId, 6L);
+
+        //the seats after the first one are not moved
+        assertEquals(firstSeatStatements, statistics.getPrepareStatementCount());
+        Game gameById = gameService.getGameById(gameId);
+        assertEquals(List.of(1, 2, 3, 4), List.copyOf(gameById.getSeats().keySet()));
+        assertEquals(List.of(2L, 3L, 4L, 5L), gameById.getUserIds());
+    }
+
 
 
     @Test
@@ -132,6 +180,7 @@ class GameServiceIntegrationTest {
     @Test
     @Transactional
     public void setChosenWord() throws Exception {
+        gameService.startGame(gameId);
         String chosenWord = getFirstWordOnActiveCard();
         Game updatedGame = gameService.setChosenWord(gameId, chosenWord);
 
@@ -147,14 +196,36 @@ class GameServiceIntegrationTest {
         String clue = "TestClue";
 
         newClue.setClueWord(clue);
+        newClue.setUserId(2L);
+        gameService.startGame(gameId);
         String chosenWord = getFirstWordOnActiveCard();
         gameService.setChosenWord(gameId, chosenWord);
+        acceptChosenWord();
         Clue testClue = gameService.addClueToGame(gameId, newClue);
 
         assertEquals(clue, testClue.getClueWord());
         assertEquals(ClueStatus.VALID, testClue.getValid());
     }
 
+    @Test
+    @Transactional
+    public void addClueToGame_withoutUserOrFromGuesser_throwsException() throws Exception {
+        testGame.addUserId((long)2);
+        gameService.startGame(gameId);
+        gameService.setChosenWord(gameId, getFirstWordOnActiveCard());
+        acceptChosenWord();
+
+        Clue clue = new Clue();
+        clue.setClueWord("TestClue");
+        assertThrows(PostRequestException400.class, () -> gameService.addClueToGame(gameId, clue));
+        //the current user guesses the word
+        clue.setUserId(1L);
+        assertThrows(PostRequestException400.class, () -> gameService.addClueToGame(gameId, clue));
+        clue.setUserId(4L);
+        assertThrows(PostRequestException400.class, () -> gameService.addClueToGame(gameId, clue));
+        assertTrue(gameService.getGameWithClues(gameId).getClues().isEmpty());
+    }
+
     @Test
     @Transactional
     public void addClueToGame_amountOfUsersIsEqualToClues() throws Exception {
@@ -163,9 +234,12 @@ class GameServiceIntegrationTest {
         Clue newClue = new Clue();
         String clue = "TestClue";
         newClue.setClueWord(clue);
+        newClue.setUserId(2L);
 
+        gameService.startGame(gameId);
         String chosenWord = getFirstWordOnActiveCard();
         gameService.setChosenWord(gameId, chosenWord);
+        acceptChosenWord();
         gameService.addClueToGame(gameId, newClue);
 
         String exceptionMessage = "There are already as many clues as users! Therefore, this clue can't be added!";
@@ -181,9 +255,10 @@ class GameServiceIntegrationTest {
         ChosenWordPutDTO chosenWordPutDTO = new ChosenWordPutDTO();
         chosenWordPutDTO.setStatus(false);
 
+        gameService.startGame(gameId);
         String chosenWord = getFirstWordOnActiveCard();
         gameService.setChosenWord(gameId, chosenWord);
-        Game updatedGame = gameService.updateChosenWord(gameId, chosenWordPutDTO);
+        GameState updatedGame = gameService.updateChosenWord(gameId, chosenWordPutDTO);
 
         assertEquals(ChosenWordStatus.REJECTEDBYALL, updatedGame.getWordStatus());
     }
@@ -196,9 +271,10 @@ class GameServiceIntegrationTest {
         ChosenWordPutDTO chosenWordPutDTO = new ChosenWordPutDTO();
         chosenWordPutDTO.setStatus(true);
 
+        gameService.startGame(gameId);
         String chosenWord = getFirstWordOnActiveCard();
         gameService.setChosenWord(gameId, chosenWord);
-        Game updatedGame = gameService.updateChosenWord(gameId, chosenWordPutDTO);
+        GameState updatedGame = gameService.updateChosenWord(gameId, chosenWordPutDTO);
 
         assertEquals(ChosenWordStatus.ACCEPTED, updatedGame.getWordStatus());
     }
@@ -215,9 +291,10 @@ class GameServiceIntegrationTest {
         Long userId3 = (long)3;
         gameService.addUserToGame(gameId, userId3);
 
+        gameService.startGame(gameId);
         String chosenWord = getFirstWordOnActiveCard();
         gameService.setChosenWord(gameId, chosenWord);
-        Game updatedGame = gameService.updateChosenWord(gameId, chosenWordPutDTO);
+        GameState updatedGame = gameService.updateChosenWord(gameId, chosenWordPutDTO);
 
         assertEquals(ChosenWordStatus.SELECTED, updatedGame.getWordStatus());
     }
@@ -228,24 +305,32 @@ class GameServiceIntegrationTest {
         Long userId2 = 2L;
         gameService.addUserToGame(gameId, userId2);
 
+        gameService.startGame(gameId);
         String chosenWord = getFirstWordOnActiveCard();
         gameService.setChosenWord(gameId, chosenWord);
+        acceptChosenWord();
 
         Clue clue = new Clue();
         clue.setClueWord("TestClue");
+        clue.setUserId(userId2);
         gameService.addClueToGame(gameId, clue);
 
         List<String> invalidClues = new ArrayList<>();
         invalidClues.add("TestClue");
 
-        Game game = gameService.setCluesToInvalid(gameId, invalidClues);
+        GameState game = gameService.setCluesToInvalid(gameId, invalidClues);
 
         assertEquals(ClueStatus.INVALID, game.getClues().get(0).getValid());
     }
 
     @Test
     public void skipGuessing_ActiveCardGoesToGameBox() throws Exception {
+        gameService.addUserToGame(gameId, (long)2);
+        gameService.startGame(gameId);
         Card activeCard = gameService.getActiveCard(gameId);
+        gameService.setChosenWord(gameId, new TransactionTemplate(transactionManager)
+                .execute(status -> gameService.getGameById(gameId).getActiveCard().getMysteryWords().get(0)));
+        acceptChosenWord();
         Game updatedGame = gameService.skipGuessing(gameId);
 
         assertEquals(activeCard.getId(), updatedGame.getGameBox().getCards().get(0).getId());
@@ -260,18 +345,22 @@ class GameServiceIntegrationTest {
         gameService.addUserToGame(gameId, userId3);
 
         gameService.startGame(gameId);
-        gameService.getActiveCard(gameId);
 
-        ChosenWordPutDTO chosenWordPutDTO = new ChosenWordPutDTO();
-        chosenWordPutDTO.setStatus(true);
         String chosenWord = getFirstWordOnActiveCard();
         gameService.setChosenWord(gameId, chosenWord);
-        gameService.updateChosenWord(gameId, chosenWordPutDTO);
-
-        Clue clue = new Clue();
-        clue.setClueWord("123");
-        clue.setTime(5);
-        gameService.addClueToGame(gameId, clue);
+        acceptChosenWord();
+        acceptChosenWord();
+
+        //in a game with 3 users both other users give two clues
+        for (int i = 0; i < 4; i++){
+            Clue clue = new Clue();
+            clue.setClueWord("OVERTIMED");
+            clue.setUserId(2L + i / 2);
+            clue.setTime(5);
+            gameService.addClueToGame(gameId, clue);
+        }
+        gameService.setCluesToInvalid(gameId, new ArrayList<>());
+        gameService.setCluesToInvalid(gameId, new ArrayList<>());
 
         Guess guess = new Guess();
         guess.setGuessWord(chosenWord);
@@ -292,11 +381,196 @@ class GameServiceIntegrationTest {
     @Test
     @Transactional
     public void resetGameStats_success() throws Exception{
+        gameService.startGame(gameId);
         Game updatedGame = gameService.resetGameStats(gameId);
 
         assertEquals(ChosenWordStatus.NOCHOSENWORD, updatedGame.getWordStatus());
     }
 
+    @Test
+    public void updateChosenWord_concurrentVotes_noLostUpdates() throws Exception {
+        int amountOfUsers = 20;
+        for (long userId = 2; userId <= amountOfUsers; userId++){
+            gameService.addUserToGame(gameId, userId);
+        }
+        gameService.startGame(gameId);
+        String chosenWord = new TransactionTemplate(transactionManager)
+                .execute(status -> gameService.getActiveCard(gameId).getMysteryWords().get(0));
+        gameService.setChosenWord(gameId, chosenWord);
+
+        //every user except the current user votes at the same time, one of them rejects the word
+        List<Callable<GameState>> votes = new ArrayList<>();
+        for (int i = 1; i < amountOfUsers; i++){
+            ChosenWordPutDTO chosenWordPutDTO = new ChosenWordPutDTO();
+            chosenWordPutDTO.setStatus(i != 7);
+            votes.add(() -> gameService.updateChosenWord(gameId, chosenWordPutDTO));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (Future<GameState> vote : executor.invokeAll(votes)){
+            vote.get();
+        }
+        executor.shutdown();
+
+        Game votedGame = gameService.getGameById(gameId);
+        assertEquals(amountOfUsers - 1, votedGame.getChosenWordCounter());
+        assertEquals(ChosenWordStatus.REJECTEDBYALL, votedGame.getWordStatus());
+        assertFalse(votedGame.getChangeWord());
+
+        ChosenWordPutDTO lateVote = new ChosenWordPutDTO();
+        assertThrows(PutRequestException409.class, () -> gameService.updateChosenWord(gameId, lateVote));
+    }
+
+    @Test
+    public void updateChosenWord_cachedGame_gameNotLoaded() throws Exception {
+        gameService.addUserToGame(gameId, 2L);
+        gameService.addUserToGame(gameId, 3L);
+        gameService.startGame(gameId);
+        List<String> words = gameService.getActiveCard(gameId).getMysteryWords();
+        gameService.setChosenWord(gameId, words.get(0));
+        ChosenWordPutDTO accept = new ChosenWordPutDTO();
+        accept.setStatus(true);
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        gameService.updateChosenWord(gameId, accept);
+        GameState votedGame = gameService.updateChosenWord(gameId, accept);
+
+        //the votes are counted with updates and the pushed state is the cached one with the votes applied
+        assertEquals(0, statistics.getEntityStatistics(Game.class.getName()).getLoadCount());
+        Game game = gameService.getGameById(gameId);
+        assertEquals(game.getVersion(), votedGame.getVersion());
+        assertEquals(2, votedGame.getChosenWordCounter());
+        assertEquals(ChosenWordStatus.ACCEPTED, votedGame.getWordStatus());
+        assertEquals(GamePhase.GIVE_CLUES, votedGame.getPhase());
+        assertEquals(game.getWordStatus(), votedGame.getWordStatus());
+        assertEquals(game.getPhase(), votedGame.getPhase());
+        assertFalse(game.getChangeWord());
+        assertEquals(words, votedGame.getActiveCardWords());
+    }
+
+    @Test
+    public void getGames_statementCount() {
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        gameService.getGames();
+
+        //select games together with their user ids, the other associations are lazy
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityUpdateCount());
+    }
+
+    @Test
+    public void addUserToGame_statementCount() {
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        gameService.addUserToGame(gameId, (long)2);
+
+        //select game with its user ids (1), insert event (1), select clues for the pushed state (1),
+        //select and update the summary (2), update game and append the user id (2), everything flushed once on commit
+        assertStatementCount(7, 1, statistics);
+    }
+
+    @Test
+    public void startGame_statementCount() {
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        gameService.startGame(gameId);
+
+        //select game with its user ids (1), insert event (1), select clues for the pushed state (1),
+        //select and update the summary (2), update game (1)
+        assertStatementCount(6, 1, statistics);
+    }
+
+    @Test
+    public void createGame_statementCount() throws FileNotFoundException {
+        Game newGame = new Game();
+        newGame.setCurrentUserId((long)7);
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        gameService.createGame(newGame);
+
+        //one batch each for the game, the game box, the decks, the cards, the cards put in the deck,
+        //the user ids, the event and the summary (8), the 65 words of the cards in two batches (2)
+        assertStatementCount(10, 5, statistics);
+        assertEquals(19, statistics.getEntityInsertCount());
+    }
+
+    @Test
+    public void resetGameStats_onlyDeletesCluesAndGuessOfThisGame() throws Exception {
+        Long resetGameId = createGameWithClueAndGuess("ResetClue");
+        for (int i = 0; i < 5; i++){
+            createGameWithClueAndGuess("OtherClue" + i);
+        }
+
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        gameService.resetGameStats(resetGameId);
+
+        //only the clue and the guess of the reset game are deleted, independent of the amount of other games
+        assertEquals(2, statistics.getEntityDeleteCount());
+        assertEquals(5, clueRepository.count());
+        assertEquals(5, guessRepository.count());
+    }
+
+    private Long createGameWithClueAndGuess(String clueWord) throws FileNotFoundException {
+        Game game = new Game();
+        game.setCurrentUserId((long)1);
+        game = gameService.createGame(game);
+
+        Clue clue = new Clue();
+        clue.setClueWord(clueWord);
+        clue.setValid(ClueStatus.VALID);
+        clue.setTime(5);
+        game.addClue(clue);
+
+        Guess guess = new Guess();
+        guess.setGuessWord("TestGuess");
+        guess.setGuessStatus(GuessStatus.WRONG);
+        game.setGuess(guess);
+        game.setStatus(GameStatus.RUNNING);
+        game.setPhase(GamePhase.TURN_END);
+
+        return gameRepository.saveAndFlush(game).getId();
+    }
+
+    @Test
+    public void getRound_mappedOutsideTransaction_noFurtherStatements() throws Exception {
+        gameService.addUserToGame(gameId, 2L);
+        gameService.addUserToGame(gameId, 3L);
+        gameService.startGame(gameId);
+        gameService.setChosenWord(gameId, getFirstWordOnActiveCard());
+        acceptChosenWord();
+        acceptChosenWord();
+        Clue clue = new Clue();
+        clue.setClueWord("OVERTIMED");
+        clue.setUserId(2L);
+        gameService.addClueToGame(gameId, clue);
+
+        Game round = gameService.getRound(gameId);
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+        RoundGetDTO roundGetDTO = DTOMapper.INSTANCE.convertEntityToRoundGetDTO(round);
+
+        //everything of the turn was loaded in the transaction of getRound
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(GamePhase.GIVE_CLUES, roundGetDTO.getGame().getPhase());
+        assertEquals(5, roundGetDTO.getCard().getWords().size());
+        assertEquals(ChosenWordStatus.ACCEPTED, roundGetDTO.getChosenWord().getWordStatus());
+        assertNotNull(roundGetDTO.getClues());
+        assertNull(roundGetDTO.getGuess());
+    }
+
+    //the ids are handed out in blocks, a statement may fetch the next block of every sequence it takes ids from
+    private void assertStatementCount(long statements, int sequences, Statistics statistics) {
+        long count = statistics.getPrepareStatementCount();
+        assertTrue(count >= statements && count <= statements + sequences,
+                String.format("expected %d statements and up to %d sequence fetches but was %d", statements, sequences, count));
+    }
+
+    private void acceptChosenWord() {
+        ChosenWordPutDTO chosenWordPutDTO = new ChosenWordPutDTO();
+        chosenWordPutDTO.setStatus(true);
+        gameService.updateChosenWord(gameId, chosenWordPutDTO);
+    }
+
     private String getFirstWordOnActiveCard() throws Exception {
         Card activeCard = gameService.getActiveCard(gameId);
         return activeCard.getMysteryWords().get(0);
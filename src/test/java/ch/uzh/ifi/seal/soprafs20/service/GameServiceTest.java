@@ -1,6 +1,8 @@
 package ch.uzh.ifi.seal.soprafs20.service;
 
 import ch.uzh.ifi.seal.soprafs20.constant.ClueStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.GameCommand;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
 import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
 import ch.uzh.ifi.seal.soprafs20.constant.GuessStatus;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Card;
@@ -8,6 +10,7 @@ import ch.uzh.ifi.seal.soprafs20.entity.game.Clue;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
 import ch.uzh.ifi.seal.soprafs20.entity.game.Guess;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.put.PutRequestException409;
+import ch.uzh.ifi.seal.soprafs20.repository.ClueRepository;
 import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
 import ch.uzh.ifi.seal.soprafs20.rest.dto.ChosenWordPutDTO;
 import ch.uzh.ifi.seal.soprafs20.rest.dto.CluePutDTO;
@@ -29,6 +32,12 @@ class GameServiceTest {
     @Mock
     private GameRepository gameRepository;
 
+    @Mock
+    private ClueRepository clueRepository;
+
+    @Mock
+    private GameHistoryService gameHistoryService;
+
     @InjectMocks
     private GameService gameService;
 
@@ -59,39 +68,11 @@ class GameServiceTest {
         }
     }
 
-    @Test
-    public void getUserIndex_LastElement(){
-        Long userId1 = (long)1;
-        Long userId2 = (long)2;
-        Long userId3 = (long)3;
-
-        testGame.addUserId(userId1);
-        testGame.addUserId(userId2);
-        testGame.addUserId(userId3);
-        testGame.setCurrentUserId(userId3);
-
-        assertEquals(0, gameService.getUserIndex(testGame));
-    }
-
-    @Test
-    public void getUserIndex_NotLastElement(){
-        Long userId1 = (long)1;
-        Long userId2 = (long)2;
-        Long userId3 = (long)3;
-
-        testGame.addUserId(userId1);
-        testGame.addUserId(userId2);
-        testGame.addUserId(userId3);
-        testGame.setCurrentUserId(userId2);
-
-        assertEquals(2, gameService.getUserIndex(testGame));
-    }
-
     @Test
     public void startGame_gameAlreadyStarted() throws Exception {
         testGame.setStatus(GameStatus.FINISHED);
 
-        Mockito.when(gameRepository.findById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
+        Mockito.when(gameRepository.findWithUsersById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
 
         String exceptionMessage = "This game has already started or finished!";
         PutRequestException409 exception = assertThrows(PutRequestException409.class, () -> gameService.startGame(gameId), exceptionMessage);
@@ -103,7 +84,7 @@ class GameServiceTest {
     public void finishGame_gameNotRunning() throws Exception {
         testGame.setStatus(GameStatus.CREATED);
 
-        Mockito.when(gameRepository.findById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
+        Mockito.when(gameRepository.findWithUsersById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
 
         String exceptionMessage = "This game is currently not running!";
         PutRequestException409 exception = assertThrows(PutRequestException409.class, () -> gameService.finishGame(gameId), exceptionMessage);
@@ -116,7 +97,7 @@ class GameServiceTest {
         ChosenWordPutDTO chosenWordPutDTO = new ChosenWordPutDTO();
         testGame.setChangeWord(false);
 
-        Mockito.when(gameRepository.findById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
+        Mockito.when(gameRepository.findWithUsersById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
 
         String exceptionMessage = "You can only reject one word per turn!";
         PutRequestException409 exception = assertThrows(PutRequestException409.class, () -> gameService.updateChosenWord(gameId, chosenWordPutDTO), exceptionMessage);
@@ -126,7 +107,7 @@ class GameServiceTest {
 
     @Test
     public void getGuess_noGuessInGame(){
-        Mockito.when(gameRepository.findById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
+        Mockito.when(gameRepository.findWithGuessById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
 
         Guess testGuess = gameService.getGuess(gameId);
 
@@ -145,7 +126,7 @@ class GameServiceTest {
         testGuess.setGuessStatus(GuessStatus.CORRECT);
         testGame.setGuess(testGuess);
 
-        Mockito.when(gameRepository.findById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
+        Mockito.when(gameRepository.findWithGuessById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
 
         testGuess = gameService.getGuess(gameId);
 
@@ -160,11 +141,46 @@ class GameServiceTest {
         Long userId1 = 1L;
         testGame.addUserId(userId1);
         List<String> clues = new ArrayList<>();
-        Mockito.when(gameRepository.findById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
+        Mockito.when(gameRepository.findWithUsersById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
 
         String exceptionMessage = "Everyone checked the clues already!";
         PutRequestException409 exception = assertThrows(PutRequestException409.class, () -> gameService.setCluesToInvalid(gameId, clues), exceptionMessage);
 
         assertEquals(exceptionMessage, exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void addUserToGame_gameAlreadyRunning() {
+        testGame.setStatus(GameStatus.RUNNING);
+        testGame.setPhase(GamePhase.GIVE_CLUES);
+
+        Mockito.when(gameRepository.findWithUsersById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
+
+        gameService.addUserToGame(gameId, 2L);
+
+        assertTrue(testGame.getUserIds().contains(2L));
+    }
+
+    @Test
+    public void addUserToGame_gameFinished() {
+        testGame.setStatus(GameStatus.FINISHED);
+        testGame.setPhase(GamePhase.FINISHED);
+
+        Mockito.when(gameRepository.findWithUsersById(Mockito.any())).thenReturn(java.util.Optional.ofNullable(testGame));
+
+        String exceptionMessage = "The command JOIN is not allowed in the phase FINISHED of this game!";
+        PutRequestException409 exception = assertThrows(PutRequestException409.class, () -> gameService.addUserToGame(gameId, 2L), exceptionMessage);
+
+        assertEquals(exceptionMessage, exception.getMessage());
+    }
+
+    @Test
+    public void gamePhase_nextPhaseAndAllowedCommands() {
+        assertEquals(GamePhase.CHOOSE_WORD, GamePhase.DRAW_CARD.next());
+        assertEquals(GamePhase.DRAW_CARD, GamePhase.TURN_END.next());
+        assertTrue(GamePhase.GUESS.allows(GameCommand.SKIP));
+        assertFalse(GamePhase.VOTE_WORD.allows(GameCommand.ADD_CLUE));
+        assertTrue(GamePhase.GIVE_CLUES.allows(GameCommand.JOIN));
+        assertFalse(GamePhase.FINISHED.allows(GameCommand.RESET));
+    }
+}
@@ -0,0 +1,186 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.entity.User;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Clue;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Guess;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.put.PutRequestException409;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.UserRepository;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.ChosenWordPutDTO;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//the settled games are created next to the users, its own database keeps them out of the contexts of the other tests
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:settle", "spring.jpa.properties.hibernate.generate_statistics=true"})
+class GameSettlementIntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameArchiveService gameArchiveService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private List<Long> userIds;
+
+    @BeforeEach
+    public void setup() {
+        gameRepository.deleteAll();
+        userRepository.deleteAll();
+
+        //correctly guessed and duplicate clues of every user
+        int[][] stats = {{2, 0}, {0, 1}, {1, 3}};
+        userIds = new ArrayList<>();
+        for (int i = 0; i < stats.length; i++){
+            User user = new User();
+            user.setName("player" + i);
+            user.setUsername("player" + i);
+            user.setPassword("testpwd");
+            user = userService.createUser(user);
+            user.setCorrectlyGuessed(stats[i][0]);
+            user.setDuplicateClues(stats[i][1]);
+            userIds.add(userRepository.saveAndFlush(user).getId());
+        }
+    }
+
+    @Test
+    public void settleGame_updatesEveryUserOnce() throws Exception {
+        Long gameId = playRoundAndFinish();
+        //a user that leaves the finished game is still settled
+        gameService.removeUserFromGame(gameId, userIds.get(2));
+        int gameScore = gameRepository.findById(gameId).orElseThrow().getScore();
+        long version = userRepository.findById(userIds.get(0)).orElseThrow().getVersion();
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        List<User> settledUsers = gameService.settleGame(gameId);
+
+        //the game, the game is marked as settled with a new version, the version, the settled event, the history,
+        //one update of all users, the users, the summary is read and updated. the next block of event ids may be read as well
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements == 9 || statements == 10, "statements: " + statements);
+        assertEquals(3, settledUsers.size());
+        //the first user guessed the word of the round and the third user gave the duplicate clue,
+        //the words and duplicate clues the users reported before are replaced by the ones of the game
+        int[] expectedScores = {gameScore + 1, gameScore, gameScore - 1};
+        int[] expectedCorrectlyGuessed = {1, 0, 0};
+        int[] expectedDuplicateClues = {0, 0, 1};
+        for (int i = 0; i < userIds.size(); i++){
+            User user = userRepository.findById(userIds.get(i)).orElseThrow();
+            assertEquals(expectedScores[i], user.getScore());
+            assertEquals(1, user.getGamesPlayed());
+            assertEquals(expectedCorrectlyGuessed[i], user.getCorrectlyGuessed());
+            assertEquals(expectedDuplicateClues[i], user.getDuplicateClues());
+            assertEquals(version + 1, user.getVersion());
+        }
+
+        assertThrows(PutRequestException409.class, () -> gameService.settleGame(gameId));
+        assertEquals(expectedScores[0], userRepository.findById(userIds.get(0)).orElseThrow().getScore());
+    }
+
+    @Test
+    public void settleGame_runningGame_throwsException() throws Exception {
+        Long gameId = createGame();
+        gameService.startGame(gameId);
+
+        assertThrows(PutRequestException409.class, () -> gameService.settleGame(gameId));
+        assertEquals(0, userRepository.findById(userIds.get(0)).orElseThrow().getGamesPlayed());
+    }
+
+    @Test
+    public void archive_unsettledGame_notArchivedAndNotSettled() throws Exception {
+        Long gameId = playRoundAndFinish();
+
+        assertFalse(gameArchiveService.archive(gameId));
+
+        assertTrue(gameRepository.existsById(gameId));
+        for (Long userId : userIds){
+            assertEquals(0, userRepository.findById(userId).orElseThrow().getGamesPlayed());
+        }
+    }
+
+    @Test
+    public void archive_settledGame_notSettledAgain() throws Exception {
+        Long gameId = playRoundAndFinish();
+        int gameScore = gameRepository.findById(gameId).orElseThrow().getScore();
+        gameService.settleGame(gameId);
+
+        assertTrue(gameArchiveService.archive(gameId));
+
+        int[] expectedScores = {gameScore + 1, gameScore, gameScore - 1};
+        for (int i = 0; i < userIds.size(); i++){
+            User user = userRepository.findById(userIds.get(i)).orElseThrow();
+            assertEquals(1, user.getGamesPlayed());
+            assertEquals(expectedScores[i], user.getScore());
+        }
+    }
+
+    private Long createGame() throws Exception {
+        Game game = new Game();
+        game.setCurrentUserId(userIds.get(0));
+        Long gameId = gameService.createGame(game).getId();
+        for (Long userId : userIds.subList(1, userIds.size())){
+            gameService.addUserToGame(gameId, userId);
+        }
+        return gameId;
+    }
+
+    //plays one round in which the third user gives a duplicate clue and the first user guesses the word, then finishes the game
+    private Long playRoundAndFinish() throws Exception {
+        Long gameId = createGame();
+        gameService.startGame(gameId);
+        //a word with a whitespace is an invalid clue and can't be a duplicate
+        String chosenWord = gameService.getActiveCard(gameId).getMysteryWords().stream()
+                .filter(word -> !word.contains(" ")).findFirst().orElseThrow();
+        gameService.setChosenWord(gameId, chosenWord);
+
+        ChosenWordPutDTO accept = new ChosenWordPutDTO();
+        accept.setStatus(true);
+        gameService.updateChosenWord(gameId, accept);
+        gameService.updateChosenWord(gameId, accept);
+
+        //these clues are checked by the clue checker without a request to the homophone api,
+        //the chosen word is invalid and the same word a second time is a duplicate
+        addClue(gameId, userIds.get(1), "OVERTIMED");
+        addClue(gameId, userIds.get(1), chosenWord);
+        addClue(gameId, userIds.get(2), chosenWord);
+        addClue(gameId, userIds.get(2), "OVERTIMED");
+        gameService.setCluesToInvalid(gameId, List.of());
+        gameService.setCluesToInvalid(gameId, List.of());
+
+        Guess guess = new Guess();
+        guess.setGuessWord(chosenWord);
+        guess.setTime(5);
+        gameService.makeGuess(gameId, guess);
+        gameService.finishGame(gameId);
+        return gameId;
+    }
+
+    private void addClue(Long gameId, Long userId, String clueWord) throws Exception {
+        Clue clue = new Clue();
+        clue.setClueWord(clueWord);
+        clue.setTime(5);
+        clue.setUserId(userId);
+        gameService.addClueToGame(gameId, clue);
+    }
+}
@@ -0,0 +1,247 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.exceptions.api.get.GetRequestException404;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.StreamMetricsGetDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class GameStreamServiceIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameStreamService gameStreamService;
+
+    private Long gameId;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        gameRepository.deleteAll();
+
+        Game testGame = new Game();
+        testGame.setCurrentUserId(1L);
+        gameId = gameService.createGame(testGame).getId();
+    }
+
+    @Test
+    public void subscribe_sendsCurrentStateAndCommittedChanges() throws Exception {
+        MvcResult result = openStream(null);
+
+        String initialEvents = awaitEvents(result, 0, "id:1\n\n");
+        assertTrue(initialEvents.contains("event:game"));
+        assertTrue(initialEvents.contains("event:guess"));
+        assertTrue(initialEvents.endsWith("id:1\n\n"));
+
+        gameService.addUserToGame(gameId, 2L);
+
+        String changeEvents = awaitEvents(result, initialEvents.length(), "id:2\n\n");
+        assertTrue(changeEvents.startsWith("event:game\n"));
+        assertTrue(changeEvents.contains("\"usersIds\":[1,2]"));
+        //the flags of the clues depend on the number of users, the guess does not change
+        assertTrue(changeEvents.contains("event:clues\n"));
+        assertFalse(changeEvents.contains("event:guess"));
+        assertTrue(changeEvents.endsWith("id:2\n\n"));
+    }
+
+    @Test
+    public void subscribe_unknownGame_noStreamKept() {
+        int streams = gameStreamService.getMetrics().getStreams();
+
+        assertThrows(GetRequestException404.class, () -> gameStreamService.subscribe(gameId + 1000, null, false));
+
+        assertEquals(streams, gameStreamService.getMetrics().getStreams());
+    }
+
+    @Test
+    public void subscribe_lastEventId_onlySendsMissedChanges() throws Exception {
+        openStream(null);
+        gameService.addUserToGame(gameId, 2L);
+        gameService.addUserToGame(gameId, 3L);
+        gameService.addUserToGame(gameId, 4L);
+
+        String resumedEvents = awaitEvents(openStream(2L), 0, "id:4\n\n");
+
+        assertFalse(resumedEvents.contains("id:2\n"));
+        assertTrue(resumedEvents.contains("id:3\n"));
+        assertTrue(resumedEvents.endsWith("id:4\n\n"));
+        assertFalse(resumedEvents.contains("event:guess"));
+    }
+
+    @Test
+    public void subscribe_lastEventIdNotBuffered_sendsCurrentState() throws Exception {
+        gameService.addUserToGame(gameId, 2L);
+
+        //nobody followed the game, so there is no buffer to resume from
+        String events = awaitEvents(openStream(1L), 0, "id:2\n\n");
+
+        assertTrue(events.contains("event:guess"));
+        assertTrue(events.endsWith("id:2\n\n"));
+    }
+
+    @Test
+    public void subscribe_delta_sendsWholeStateThenPatches() throws Exception {
+        MvcResult result = openStream(null, true);
+
+        String initialEvents = awaitEvents(result, 0, "id:1\n\n");
+        assertTrue(initialEvents.startsWith("event:game\n"));
+        assertFalse(initialEvents.contains("-patch"));
+
+        gameService.addUserToGame(gameId, 2L);
+
+        String changeEvents = awaitEvents(result, initialEvents.length(), "id:2\n\n");
+        assertTrue(changeEvents.startsWith("event:game-patch\n"));
+        assertTrue(changeEvents.contains("{\"op\":\"add\",\"path\":\"/usersIds/-\",\"value\":2}"));
+        assertTrue(changeEvents.endsWith("id:2\n\n"));
+    }
+
+    @Test
+    public void subscribe_deltaWithLastEventId_sendsWholeViewsBeforePatches() throws Exception {
+        openStream(null);
+        gameService.addUserToGame(gameId, 2L);
+        gameService.addUserToGame(gameId, 3L);
+
+        //the resumed stream did not get version 2 from this server, the first change is sent whole
+        MvcResult result = openStream(2L, true);
+        String resumedEvents = awaitEvents(result, 0, "id:3\n\n");
+        assertTrue(resumedEvents.startsWith("event:game\n"));
+        assertFalse(resumedEvents.contains("-patch"));
+
+        gameService.addUserToGame(gameId, 4L);
+
+        String changeEvents = awaitEvents(result, resumedEvents.length(), "id:4\n\n");
+        assertTrue(changeEvents.startsWith("event:game-patch\n"));
+    }
+
+    @Test
+    public void slowSubscriber_queueBoundedAndCoalescedToLatestState() throws Exception {
+        StreamMetricsGetDTO before = gameStreamService.getMetrics();
+        SseEmitter emitter = gameStreamService.subscribe(gameId, null, false);
+
+        //the sender has to wait for the lock of the emitter, like a write to a client that does not read
+        synchronized (emitter){
+            for (long userId = 2; userId <= 2 + 2 * GameStreamService.MAX_QUEUED_UPDATES; userId++){
+                gameService.addUserToGame(gameId, userId);
+            }
+            StreamMetricsGetDTO blocked = gameStreamService.getMetrics();
+
+            assertTrue(blocked.getMaxQueueDepth() <= GameStreamService.MAX_QUEUED_UPDATES);
+            assertEquals(before.getResyncs() + 1, blocked.getResyncs());
+            assertTrue(blocked.getDroppedUpdates() - before.getDroppedUpdates() > GameStreamService.MAX_QUEUED_UPDATES);
+        }
+
+        StreamMetricsGetDTO drained = awaitMetrics(metrics -> metrics.getQueuedUpdates() == 0);
+        //the blocked change, maybe one more and the latest state instead of every change
+        assertTrue(drained.getSentUpdates() - before.getSentUpdates() <= 3);
+        assertEquals(before.getDisconnects(), drained.getDisconnects());
+        emitter.complete();
+    }
+
+    @Test
+    public void stalledSubscribers_disconnectedAndOtherStreamsStillSent() throws Throwable {
+        StreamMetricsGetDTO before = gameStreamService.getMetrics();
+        List<SseEmitter> stalledEmitters = new ArrayList<>();
+        for (int i = 0; i < GameStreamService.SEND_THREADS; i++){
+            stalledEmitters.add(gameStreamService.subscribe(gameId, null, false));
+        }
+        MvcResult result = openStream(null);
+        String initialEvents = awaitEvents(result, 0, "id:1\n\n");
+        assertTrue(initialEvents.endsWith("id:1\n\n"));
+
+        //the stalled clients never read, every sender of the pool blocks on one of them
+        whileBlocked(stalledEmitters, 0, () -> {
+            gameService.addUserToGame(gameId, 2L);
+
+            String changeEvents = awaitEvents(result, initialEvents.length(), "id:2\n\n", 3 * GameStreamService.SEND_TIMEOUT_MILLIS);
+            assertTrue(changeEvents.endsWith("id:2\n\n"));
+            StreamMetricsGetDTO stalled = awaitMetrics(metrics -> metrics.getSubscribers() == before.getSubscribers() + 1);
+            assertEquals(before.getSubscribers() + 1, stalled.getSubscribers());
+            assertEquals(before.getDisconnects() + GameStreamService.SEND_THREADS, stalled.getDisconnects());
+        });
+    }
+
+    @Test
+    public void getStreamMetrics_reportsQueues() throws Exception {
+        mockMvc.perform(get("/streams/metrics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.maxQueueDepth").isNumber())
+                .andExpect(jsonPath("$.droppedUpdates").isNumber())
+                .andExpect(jsonPath("$.webSocketSessions").isString());
+    }
+
+    //holds the lock of every emitter while the action runs, like writes to clients that do not read
+    private void whileBlocked(List<SseEmitter> emitters, int index, Executable action) throws Throwable {
+        if (index == emitters.size()){
+            action.execute();
+            return;
+        }
+        synchronized (emitters.get(index)){
+            whileBlocked(emitters, index + 1, action);
+        }
+    }
+
+    private String awaitEvents(MvcResult result, int offset, String suffix) throws Exception {
+        return awaitEvents(result, offset, suffix, 5000);
+    }
+
+    //the events are written by the sender threads, so the test waits until the expected event arrived
+    private String awaitEvents(MvcResult result, int offset, String suffix, long timeoutMillis) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        String events = result.getResponse().getContentAsString().substring(offset);
+        while (!events.endsWith(suffix) && System.currentTimeMillis() < deadline){
+            Thread.sleep(10);
+            events = result.getResponse().getContentAsString().substring(offset);
+        }
+        return events;
+    }
+
+    private StreamMetricsGetDTO awaitMetrics(Predicate<StreamMetricsGetDTO> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        StreamMetricsGetDTO metrics = gameStreamService.getMetrics();
+        while (!condition.test(metrics) && System.currentTimeMillis() < deadline){
+            Thread.sleep(10);
+            metrics = gameStreamService.getMetrics();
+        }
+        return metrics;
+    }
+
+    private MvcResult openStream(Long lastEventId) throws Exception {
+        return openStream(lastEventId, false);
+    }
+
+    private MvcResult openStream(Long lastEventId, boolean delta) throws Exception {
+        var getRequest = get("/games/" + gameId + "/events").param("delta", String.valueOf(delta)).accept(MediaType.TEXT_EVENT_STREAM);
+        if (lastEventId != null){
+            getRequest.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(getRequest).andExpect(request().asyncStarted()).andReturn();
+    }
+}
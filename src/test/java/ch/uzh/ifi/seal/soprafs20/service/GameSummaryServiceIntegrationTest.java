@@ -0,0 +1,241 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GameEventType;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.entity.game.GameSummary;
+import ch.uzh.ifi.seal.soprafs20.history.GameChangedEvent;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.GameSummaryRepository;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.GameGetDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.mapper.DTOMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class GameSummaryServiceIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private GameSummaryRepository gameSummaryRepository;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameSummaryService gameSummaryService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long gameId;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        gameRepository.deleteAll();
+        gameSummaryRepository.deleteAll();
+
+        Game testGame = new Game();
+        testGame.setCurrentUserId(1L);
+        gameId = gameService.createGame(testGame).getId();
+    }
+
+    @Test
+    public void commands_updateSummary() throws Exception {
+        assertSummaryMatchesGame();
+
+        gameService.addUserToGame(gameId, 2L);
+        gameService.addUserToGame(gameId, 3L);
+        assertSummaryMatchesGame();
+
+        gameService.startGame(gameId);
+        gameService.getActiveCard(gameId);
+        String word = gameService.getCurrentCard(gameId).getMysteryWords().get(0);
+        gameService.setChosenWord(gameId, word);
+        GameSummary summary = assertSummaryMatchesGame();
+
+        assertEquals(GameStatus.RUNNING, summary.getStatus());
+        assertEquals(GamePhase.VOTE_WORD, summary.getPhase());
+        assertEquals(word, summary.getChosenWord());
+        assertEquals(List.of(1L, 2L, 3L), summary.getUserIds());
+    }
+
+    @Test
+    public void getGames_readsOnlySummaries() throws Exception {
+        gameService.addUserToGame(gameId, 2L);
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        mockMvc.perform(get("/games"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(gameId.intValue())))
+                .andExpect(jsonPath("$[0].nextPhase", is(GamePhase.LOBBY.next().name())))
+                .andExpect(jsonPath("$[0].usersIds", contains(1, 2)));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityStatistics(Game.class.getName()).getLoadCount());
+    }
+
+    @Test
+    public void getGames_keysetPagesAndStatusFilter() throws Exception {
+        Long[] gameIds = {gameId, createGame(), createGame()};
+        gameService.addUserToGame(gameIds[2], 2L);
+        gameService.addUserToGame(gameIds[2], 3L);
+        gameService.startGame(gameIds[2]);
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        String next = "http://localhost/games?size=2&after=" + gameIds[1];
+        mockMvc.perform(get("/games?size=2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK, "<" + next + ">; rel=\"next\""))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].id", is(gameIds[1].intValue())));
+        mockMvc.perform(get(next))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LINK))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].usersIds", contains(1, 2, 3)));
+        mockMvc.perform(get("/games?status=RUNNING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(gameIds[2].intValue())));
+
+        //one select of the summary columns per page
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void getGamesOfUser_onlyJoinedGames() throws Exception {
+        Long otherGameId = createGame();
+        Long joinedGameId = createGame();
+        gameService.addUserToGame(joinedGameId, 2L);
+        gameService.addUserToGame(otherGameId, 3L);
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        mockMvc.perform(get("/users/2/games"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(joinedGameId.intValue())))
+                .andExpect(jsonPath("$[0].usersIds", contains(1, 2)));
+        mockMvc.perform(get("/users/1/games"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)));
+
+        //one select of the summaries per request, the games are only joined through their membership index
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void exportGames_oneLinePerGame() throws Exception {
+        Long secondGameId = createGame();
+
+        MvcResult result = mockMvc.perform(get("/games/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals(2, lines.length);
+        assertEquals(gameId.longValue(), objectMapper.readTree(lines[0]).get("id").asLong());
+        assertEquals(secondGameId.longValue(), objectMapper.readTree(lines[1]).get("id").asLong());
+    }
+
+    @Test
+    public void getGameById_notCached_readsOnlySummary() throws Exception {
+        //a summary without a cached view, like after a restart
+        GameSummary summary = gameSummaryRepository.findById(gameId).orElseThrow();
+        summary.setVersion(100);
+        gameSummaryRepository.save(summary);
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        mockMvc.perform(get("/games/" + gameId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version", is(100)))
+                .andExpect(jsonPath("$.usersIds", contains(1)));
+
+        //the version and the summary
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityStatistics(Game.class.getName()).getLoadCount());
+    }
+
+    @Test
+    public void getGameById_unknownGame_notFound() throws Exception {
+        mockMvc.perform(get("/games/" + (gameId + 1000))).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void onGameChanged_olderVersion_ignored() {
+        gameService.addUserToGame(gameId, 2L);
+        GameState olderState = new GameState();
+        olderState.setId(gameId);
+        olderState.setVersion(1);
+        olderState.setStatus(GameStatus.FINISHED);
+
+        gameSummaryService.onGameChanged(new GameChangedEvent(gameId, 1, GameEventType.FINISHED, olderState));
+
+        GameSummary summary = gameSummaryService.getSummary(gameId);
+        assertEquals(2, summary.getVersion());
+        assertEquals(GameStatus.CREATED, summary.getStatus());
+    }
+
+    @Test
+    public void addMissingSummaries_addsSummaryOfGame() throws Exception {
+        gameService.addUserToGame(gameId, 2L);
+        gameSummaryRepository.deleteAll();
+
+        gameSummaryService.addMissingSummaries();
+
+        assertSummaryMatchesGame();
+    }
+
+    //the summary must give the same JSON as the game it summarizes
+    private GameSummary assertSummaryMatchesGame() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        GameSummary summary = gameSummaryService.getSummary(gameId);
+        GameGetDTO fromGame = DTOMapper.INSTANCE.convertGameStateToGameGetDTO(gameService.getGameState(gameId));
+        GameGetDTO fromSummary = DTOMapper.INSTANCE.convertGameSummaryToGameGetDTO(summary);
+        assertEquals(objectMapper.writeValueAsString(fromGame), objectMapper.writeValueAsString(fromSummary));
+        return summary;
+    }
+
+    private Long createGame() throws Exception {
+        Game game = new Game();
+        game.setCurrentUserId(1L);
+        return gameService.createGame(game).getId();
+    }
+}
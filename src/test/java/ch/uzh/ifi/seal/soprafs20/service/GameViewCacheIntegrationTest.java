@@ -0,0 +1,210 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.entity.game.Clue;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.history.GameState;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.ChosenWordPutDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.mapper.DTOMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@WebAppConfiguration
+@SpringBootTest
+class GameViewCacheIntegrationTest {
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameViewCache gameViewCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long gameId;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        gameRepository.deleteAll();
+
+        Game testGame = new Game();
+        testGame.setCurrentUserId(1L);
+        gameId = gameService.createGame(testGame).getId();
+    }
+
+    @Test
+    public void committedChange_cachedViewsMatchEntityViews() throws Exception {
+        gameService.addUserToGame(gameId, 2L);
+
+        assertNull(gameViewCache.getView(gameId, 1, GameViewCache.GAME_VIEW));
+        assertEquals(json(gameId, GameViewCache.GAME_VIEW), new String(gameViewCache.getView(gameId, 2, GameViewCache.GAME_VIEW)));
+        assertEquals(json(gameId, GameViewCache.CLUES_VIEW), new String(gameViewCache.getView(gameId, 2, GameViewCache.CLUES_VIEW)));
+        assertEquals(json(gameId, GameViewCache.GUESS_VIEW), new String(gameViewCache.getView(gameId, 2, GameViewCache.GUESS_VIEW)));
+    }
+
+    @Test
+    public void publish_sameVersion_encodedOnce() {
+        GameState state = gameService.getGameState(gameId);
+
+        GameViewCache.EncodedGame encodedGame = gameViewCache.publish(state);
+
+        assertSame(encodedGame, gameViewCache.publish(gameService.getGameState(gameId)));
+        assertSame(encodedGame, gameViewCache.getLatest(gameId));
+    }
+
+    @Test
+    public void wholeRound_patchesRebuildViewsWithFewerBytes() throws Exception {
+        Map<String, JsonNode> clientViews = new HashMap<>();
+        for (String view : List.of(GameViewCache.GAME_VIEW, GameViewCache.CHOSEN_WORD_VIEW, GameViewCache.CLUES_VIEW, GameViewCache.GUESS_VIEW)){
+            clientViews.put(view, objectMapper.readTree(gameViewCache.getView(gameId, 1, view)));
+        }
+        long[] bytes = new long[2];
+        Runnable followGame = () -> follow(clientViews, bytes);
+
+        gameService.addUserToGame(gameId, 2L);
+        followGame.run();
+        gameService.addUserToGame(gameId, 3L);
+        followGame.run();
+        gameService.startGame(gameId);
+        followGame.run();
+        gameService.getActiveCard(gameId);
+        followGame.run();
+        gameService.setChosenWord(gameId, gameService.getRound(gameId).getActiveCard().getMysteryWords().get(0));
+        followGame.run();
+        ChosenWordPutDTO chosenWordPutDTO = new ChosenWordPutDTO();
+        chosenWordPutDTO.setStatus(true);
+        for (int i = 0; i < 2; i++){
+            gameService.updateChosenWord(gameId, chosenWordPutDTO);
+            followGame.run();
+        }
+        //these clues are rejected by the clue checker without a request to the homophone api
+        for (int i = 0; i < 4; i++){
+            Clue clue = new Clue();
+            clue.setClueWord("OVERTIMED");
+            clue.setUserId(2L + i / 2);
+            gameService.addClueToGame(gameId, clue);
+            followGame.run();
+        }
+        gameService.skipGuessing(gameId);
+        followGame.run();
+
+        //the patches of a whole round are less than half of the views they replace
+        assertTrue(bytes[1] * 2 < bytes[0], bytes[1] + " patch bytes for " + bytes[0] + " view bytes");
+    }
+
+    @Test
+    public void publish_versionGap_noPatch() {
+        gameService.addUserToGame(gameId, 2L);
+        GameState state = gameService.getGameState(gameId);
+        state.setVersion(state.getVersion() + 2);
+
+        GameViewCache.EncodedGame encodedGame = gameViewCache.publish(state);
+
+        assertNull(encodedGame.getPatch(GameViewCache.GAME_VIEW));
+        assertNull(gameViewCache.getPatch(gameId, state.getVersion() - 1, GameViewCache.GAME_VIEW));
+    }
+
+    @Test
+    public void publish_moreThanMaxGames_evictsLeastRecentlyUsedGame() {
+        GameState state = gameService.getGameState(gameId);
+        gameViewCache.publish(state);
+        long otherGameId = gameId + 1_000_000;
+
+        for (int i = 0; i < GameViewCache.MAX_CACHED_GAMES; i++){
+            state.setId(otherGameId + i);
+            gameViewCache.publish(state);
+            //the clients of the game keep reading it
+            assertNotNull(gameViewCache.getLatest(gameId));
+        }
+
+        assertNull(gameViewCache.getLatest(otherGameId));
+        assertNotNull(gameViewCache.getLatest(otherGameId + GameViewCache.MAX_CACHED_GAMES - 1));
+
+        gameViewCache.evict(gameId);
+        assertNull(gameViewCache.getLatest(gameId));
+    }
+
+    //applies the patches of the latest version to the views of the client and checks them against the whole views
+    private void follow(Map<String, JsonNode> clientViews, long[] bytes) {
+        try {
+            GameViewCache.EncodedGame latestGame = gameViewCache.getLatest(gameId);
+            for (Map.Entry<String, JsonNode> clientView : clientViews.entrySet()){
+                byte[] view = latestGame.getView(clientView.getKey());
+                byte[] patch = gameViewCache.getPatch(gameId, latestGame.getVersion() - 1, clientView.getKey());
+                JsonNode patchedView = apply(clientView.getValue(), (ArrayNode) objectMapper.readTree(patch));
+                assertEquals(objectMapper.readTree(view), patchedView);
+                clientView.setValue(patchedView);
+                bytes[0] += view.length;
+                bytes[1] += patch.length;
+            }
+        }
+        catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //supports the operations and paths JsonPatch.diff creates
+    private static JsonNode apply(JsonNode document, ArrayNode patch) {
+        JsonNode patched = document.deepCopy();
+        for (JsonNode operation : patch){
+            String path = operation.get("path").asText();
+            if (path.isEmpty()){
+                patched = operation.get("value");
+                continue;
+            }
+            int last = path.lastIndexOf('/');
+            JsonNode parent = patched.at(path.substring(0, last));
+            String token = path.substring(last + 1).replace("~1", "/").replace("~0", "~");
+            String op = operation.get("op").asText();
+            if (parent.isArray()){
+                ArrayNode array = (ArrayNode) parent;
+                if ("remove".equals(op)){
+                    array.remove(Integer.parseInt(token));
+                }
+                else if ("-".equals(token)){
+                    array.add(operation.get("value"));
+                }
+                else {
+                    array.set(Integer.parseInt(token), operation.get("value"));
+                }
+            }
+            else if ("remove".equals(op)){
+                ((ObjectNode) parent).remove(token);
+            }
+            else {
+                ((ObjectNode) parent).set(token, operation.get("value"));
+            }
+        }
+        return patched;
+    }
+
+    //the same view mapped from the entity like the controller does on a cache miss
+    private String json(Long id, String view) throws Exception {
+        Game game = gameService.getRound(id);
+        switch (view){
+            case GameViewCache.GAME_VIEW:
+                return objectMapper.writeValueAsString(DTOMapper.INSTANCE.convertEntityToGameGetDTO(game));
+            case GameViewCache.CLUES_VIEW:
+                return objectMapper.writeValueAsString(DTOMapper.INSTANCE.convertEntityToCluesGetDTO(game));
+            default:
+                return objectMapper.writeValueAsString(DTOMapper.INSTANCE.convertEntityToGuessGetDTO(gameService.getGuess(id)));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+
+//the statistics the integration tests count the statements with, the test context has to enable hibernate.generate_statistics
+final class HibernateStatistics {
+
+    private HibernateStatistics() {
+    }
+
+    //clears the statistics, so only the statements after this call are counted
+    static Statistics cleared(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
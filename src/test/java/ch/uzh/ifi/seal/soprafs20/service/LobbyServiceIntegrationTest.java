@@ -0,0 +1,156 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GameStatus;
+import ch.uzh.ifi.seal.soprafs20.constant.LobbyDeltaType;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.lobby.LobbyGame;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.LobbyDeltaGetDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.LobbyGameGetDTO;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.LobbyPageGetDTO;
+import ch.uzh.ifi.seal.soprafs20.websocket.WebSocketConfig;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class LobbyServiceIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private LobbyService lobbyService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @SpyBean
+    private SimpMessagingTemplate messagingTemplate;
+
+    private Long gameId;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        gameRepository.deleteAll();
+
+        Game testGame = new Game();
+        testGame.setCurrentUserId(1L);
+        gameId = gameService.createGame(testGame).getId();
+        Mockito.clearInvocations(messagingTemplate);
+    }
+
+    @Test
+    public void findLobbyGames_onlyCreatedGames() throws Exception {
+        gameService.addUserToGame(gameId, 2L);
+        Game runningGame = new Game();
+        runningGame.setCurrentUserId(3L);
+        Long runningGameId = gameService.createGame(runningGame).getId();
+        gameService.addUserToGame(runningGameId, 4L);
+        gameService.addUserToGame(runningGameId, 5L);
+        gameService.startGame(runningGameId);
+
+        List<LobbyGame> lobbyGames = gameRepository.findLobbyGames(GameStatus.CREATED);
+
+        assertEquals(1, lobbyGames.size());
+        assertEquals(gameId, lobbyGames.get(0).getId());
+        assertEquals(2, lobbyGames.get(0).getVersion());
+        assertEquals(1L, lobbyGames.get(0).getCurrentUserId());
+        assertEquals(2, lobbyGames.get(0).getUserCount());
+    }
+
+    @Test
+    public void committedChanges_pushedAsDeltas() {
+        gameService.addUserToGame(gameId, 2L);
+        gameService.addUserToGame(gameId, 3L);
+        gameService.removeUserFromGame(gameId, 3L);
+        gameService.addUserToGame(gameId, 3L);
+        gameService.startGame(gameId);
+
+        List<LobbyDeltaGetDTO> deltas = sentDeltas(5);
+        assertEquals(LobbyDeltaType.UPDATED, deltas.get(0).getType());
+        assertEquals(2, deltas.get(0).getGame().getUserCount());
+        assertEquals(2, deltas.get(2).getGame().getUserCount());
+        assertEquals(LobbyDeltaType.REMOVED, deltas.get(4).getType());
+        assertEquals(gameId, deltas.get(4).getGame().getId());
+        for (int i = 1; i < deltas.size(); i++) {
+            assertEquals(deltas.get(i - 1).getLobbyVersion() + 1, deltas.get(i).getLobbyVersion());
+        }
+    }
+
+    @Test
+    public void getLobbyPage_servedFromIndexWithoutStatements() throws Exception {
+        Game newGame = new Game();
+        newGame.setCurrentUserId(2L);
+        Long newGameId = gameService.createGame(newGame).getId();
+        //reads the database once if the index was not filled before
+        lobbyService.getLobbyPage(0, LobbyService.MAX_PAGE_SIZE);
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        LobbyPageGetDTO lobbyPage = lobbyService.getLobbyPage(0, LobbyService.MAX_PAGE_SIZE);
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(lobbyPage.getGames().stream().map(LobbyGameGetDTO::getId).anyMatch(gameId::equals));
+        assertTrue(lobbyPage.getGames().stream().map(LobbyGameGetDTO::getId).anyMatch(newGameId::equals));
+
+        gameService.addUserToGame(newGameId, 3L);
+        gameService.addUserToGame(newGameId, 4L);
+        gameService.startGame(newGameId);
+        LobbyPageGetDTO changedLobbyPage = lobbyService.getLobbyPage(0, LobbyService.MAX_PAGE_SIZE);
+
+        assertEquals(lobbyPage.getLobbyVersion() + 3, changedLobbyPage.getLobbyVersion());
+        assertEquals(lobbyPage.getTotalGames() - 1, changedLobbyPage.getTotalGames());
+        assertTrue(changedLobbyPage.getGames().stream().map(LobbyGameGetDTO::getId).noneMatch(newGameId::equals));
+    }
+
+    @Test
+    public void getLobby_pagesOrderedById() throws Exception {
+        Game newGame = new Game();
+        newGame.setCurrentUserId(2L);
+        gameService.createGame(newGame);
+        LobbyPageGetDTO lobbyPage = lobbyService.getLobbyPage(0, LobbyService.MAX_PAGE_SIZE);
+        int lastPage = lobbyPage.getTotalGames() - 1;
+
+        mockMvc.perform(get("/lobby").param("page", String.valueOf(lastPage)).param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.page").value(lastPage))
+                .andExpect(jsonPath("$.games.length()").value(1))
+                .andExpect(jsonPath("$.games[0].id").value(newGame.getId()))
+                .andExpect(jsonPath("$.games[0].userCount").value(1));
+        mockMvc.perform(get("/lobby").param("page", String.valueOf(lastPage + 1)).param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.games.length()").value(0));
+        mockMvc.perform(get("/lobby").param("size", String.valueOf(LobbyService.MAX_PAGE_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<LobbyDeltaGetDTO> sentDeltas(int count) {
+        ArgumentCaptor<LobbyDeltaGetDTO> deltas = ArgumentCaptor.forClass(LobbyDeltaGetDTO.class);
+        Mockito.verify(messagingTemplate, Mockito.times(count)).convertAndSend(eq(WebSocketConfig.LOBBY_TOPIC), deltas.capture());
+        return deltas.getAllValues();
+    }
+}
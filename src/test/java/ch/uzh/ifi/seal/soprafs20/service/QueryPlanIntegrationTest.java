@@ -0,0 +1,52 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Pins the index every lookup by token, username, status and membership is answered from, a lookup that loses its
+ * index reads every row and gets slower with every user and every game.
+ */
+@SpringBootTest
+class QueryPlanIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void userLookups_useUniqueIndexes() {
+        assertThat(explain("select id from user where token = 'token'"), containsString("UK_"));
+        assertThat(explain("select id from user where username = 'username'"), containsString("UK_"));
+    }
+
+    @Test
+    public void statusPages_readInIndexOrder() {
+        String usersPlan = explain("select id from user where status = 1 and id > 5 order by status, id limit 20");
+        assertThat(usersPlan, containsString("USER_STATUS_INDEX"));
+        assertThat(usersPlan, containsString("index sorted"));
+
+        String gamesPlan = explain("select id from game_summary where status = 0 and id > 5 order by status, id limit 20");
+        assertThat(gamesPlan, containsString("GAME_SUMMARY_STATUS_INDEX"));
+        assertThat(gamesPlan, containsString("index sorted"));
+
+        assertThat(explain("select id from game where status = 0"), containsString("GAME_STATUS_INDEX"));
+    }
+
+    @Test
+    public void gamesOfUser_useMembershipIndex() {
+        String plan = explain("select s.id from game_summary s where s.id in " +
+                "(select g.id from game g inner join game_user_ids u on g.id = u.game_id where u.user_ids = 5) order by s.id");
+        assertThat(plan, containsString("GAME_USER_IDS_USER_INDEX: USER_IDS = 5"));
+        assertThat(plan, not(containsString("tableScan")));
+    }
+
+    private String explain(String query) {
+        return String.join("\n", jdbcTemplate.queryForList("explain " + query, String.class));
+    }
+}
@@ -4,14 +4,20 @@ import ch.uzh.ifi.seal.soprafs20.constant.UserStatus;
 import ch.uzh.ifi.seal.soprafs20.entity.User;
 import ch.uzh.ifi.seal.soprafs20.exceptions.api.post.PostRequestException409;
 import ch.uzh.ifi.seal.soprafs20.repository.UserRepository;
+import ch.uzh.ifi.seal.soprafs20.repository.UserView;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.CacheMetricsGetDTO;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.web.WebAppConfiguration;
 
+import javax.persistence.EntityManagerFactory;
 import javax.transaction.Transactional;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,7 +27,7 @@ import static org.junit.jupiter.api.Assertions.*;
  * @see UserService
  */
 @WebAppConfiguration
-@SpringBootTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 public class UserServiceIntegrationTest {
 
     User testUser;
@@ -33,6 +39,12 @@ public class UserServiceIntegrationTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private CacheMetricsService cacheMetricsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @BeforeEach
     public void setup() {
         testUser = new User();
@@ -112,70 +124,181 @@ public class UserServiceIntegrationTest {
 
     @Test
     @Transactional
-    void updateUserGameStats() {
+    void logIn() {
         userService.createUser(testUser);
 
         assertNotNull(testUser.getId());
-        Long userId = testUser.getId();
 
-        User userInput = new User();
-        userInput.setId(userId);
-        userInput.setDuplicateClues(1);
-        userInput.setCorrectlyGuessed(4);
+        userService.logIn(testUser);
 
-        userService.updateUserGameStats(userId, userInput);
-        assertEquals(testUser.getDuplicateClues(), userInput.getDuplicateClues());
-        assertEquals(testUser.getCorrectlyGuessed(), userInput.getCorrectlyGuessed());
+        assertNotNull(testUser.getToken());
+        assertEquals(UserStatus.ONLINE, testUser.getStatus());
+        assertEquals(2, userService.getUserVersion(testUser.getId()));
     }
 
     @Test
     @Transactional
-    void updateUserScore() {
+    void logOut() {
         userService.createUser(testUser);
 
         assertNotNull(testUser.getId());
-        Long userId = testUser.getId();
 
-        User userInput = new User();
-        userInput.setId(userId);
-        userInput.setDuplicateClues(1);
-        userInput.setCorrectlyGuessed(4);
+        userService.logIn(testUser);
+        assertNotNull(testUser.getToken());
+        assertEquals(UserStatus.ONLINE, testUser.getStatus());
+
+        userService.logOut(testUser.getId());
+        assertEquals(UserStatus.OFFLINE, testUser.getStatus());
+    }
 
-        userService.updateUserGameStats(userId, userInput);
+    @Test
+    public void createUser_statementCount() {
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
 
-        userInput.setScore(6);
+        userService.createUser(testUser);
 
-        userService.updateUserScore(userId, userInput);
-        assertEquals(9, testUser.getScore());
-        assertEquals(0, testUser.getDuplicateClues());
-        assertEquals(0, testUser.getCorrectlyGuessed());
+        //check username, fetch id from the sequence and insert user
+        assertEquals(3, statistics.getPrepareStatementCount());
     }
 
     @Test
-    @Transactional
-    void logIn() {
+    public void logIn_statementCount() {
         userService.createUser(testUser);
+        User userToLogIn = new User();
+        userToLogIn.setUsername("testuser");
+        userToLogIn.setPassword("testpwd");
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
 
-        assertNotNull(testUser.getId());
+        userService.logIn(userToLogIn);
 
-        userService.logIn(testUser);
+        //the user is found in the second-level cache by username, one update on commit
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
 
-        assertNotNull(testUser.getToken());
-        assertEquals(UserStatus.ONLINE, testUser.getStatus());
+    @Test
+    public void getUsers_statementCount() {
+        userService.createUser(testUser);
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        userService.getUsers();
+        userService.getUserById(testUser.getId());
+
+        //select the users, the user by id comes from the second-level cache
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityUpdateCount());
     }
 
     @Test
-    @Transactional
-    void logOut() {
+    public void getUserPage_keysetPagesAndStatusFilter() {
+        User[] users = new User[3];
+        for (int i = 0; i < users.length; i++){
+            users[i] = new User();
+            users[i].setName("pageuser" + i);
+            users[i].setUsername("pageuser" + i);
+            users[i].setPassword("testpwd");
+            userService.createUser(users[i]);
+        }
+        User userToLogIn = new User();
+        userToLogIn.setUsername("pageuser2");
+        userToLogIn.setPassword("testpwd");
+        userService.logIn(userToLogIn);
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+
+        Slice<UserView> firstPage = userService.getUserPage(0, null, 2);
+        assertEquals(2, firstPage.getNumberOfElements());
+        assertTrue(firstPage.hasNext());
+        assertEquals(users[0].getId(), firstPage.getContent().get(0).getId());
+
+        Slice<UserView> lastPage = userService.getUserPage(firstPage.getContent().get(1).getId(), null, 2);
+        assertEquals(1, lastPage.getNumberOfElements());
+        assertFalse(lastPage.hasNext());
+        assertEquals("pageuser2", lastPage.getContent().get(0).getUsername());
+
+        Slice<UserView> onlineUsers = userService.getUserPage(0, UserStatus.ONLINE, 2);
+        assertEquals(1, onlineUsers.getNumberOfElements());
+        assertEquals(users[2].getId(), onlineUsers.getContent().get(0).getId());
+
+        //one select of the columns per page, no user is loaded as an entity
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void commands_updateCachedUser() {
         userService.createUser(testUser);
+        Long userId = testUser.getId();
+        User userToLogIn = new User();
+        userToLogIn.setUsername("testuser");
+        userToLogIn.setPassword("testpwd");
 
-        assertNotNull(testUser.getId());
+        userService.logIn(userToLogIn);
+        assertCachedUser(userId, UserStatus.ONLINE, 2);
 
-        userService.logIn(testUser);
-        assertNotNull(testUser.getToken());
-        assertEquals(UserStatus.ONLINE, testUser.getStatus());
+        userService.joinGame(userId);
+        assertCachedUser(userId, UserStatus.INGAME, 3);
 
-        userService.logOut(testUser.getId());
-        assertEquals(UserStatus.OFFLINE, testUser.getStatus());
+        //the bulk update of the settled scores evicts the cached users, the next read caches the user again
+        userService.settleScores(3, Map.of(userId, 2), Map.of(userId, 1));
+        userService.getUserById(userId);
+        User settledUser = assertCachedUser(userId, UserStatus.INGAME, 4);
+        assertEquals(2, settledUser.getCorrectlyGuessed());
+        assertEquals(1, settledUser.getDuplicateClues());
+        assertEquals(3 + 2 * UserService.CORRECTGUESS_MULTIPLIER - UserService.DUPLICATECLUE_MULTIPLIER, settledUser.getScore());
+
+        userService.leaveGame(userId);
+        assertCachedUser(userId, UserStatus.ONLINE, 5);
+
+        userService.logOut(userId);
+        assertCachedUser(userId, UserStatus.OFFLINE, 6);
+    }
+
+    @Test
+    public void updateUser_newUsernameResolved_oldUsernameFree() {
+        userService.createUser(testUser);
+        Long userId = testUser.getId();
+        assertEquals(userId, userService.findByUsername("testuser").getId());
+
+        User update = new User();
+        update.setUsername("renamed");
+        userService.updateUser(userId, update);
+
+        assertNull(userService.findByUsername("testuser"));
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+        assertEquals(userId, userService.findByUsername("renamed").getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals("renamed", assertCachedUser(userId, UserStatus.OFFLINE, 2).getUsername());
+
+        //the old username can be taken by a new user
+        User newUser = new User();
+        newUser.setName("newName");
+        newUser.setUsername("testuser");
+        newUser.setPassword("newpwd");
+        assertNotEquals(userId, userService.createUser(newUser).getId());
+    }
+
+    @Test
+    public void getUserById_cacheHits_reportedInMetrics() {
+        userService.createUser(testUser);
+        HibernateStatistics.cleared(entityManagerFactory);
+
+        for (int i = 0; i < 10; i++){
+            userService.getUserById(testUser.getId());
+        }
+
+        CacheMetricsGetDTO userMetrics = cacheMetricsService.getMetrics().stream()
+                .filter(metrics -> User.CACHE_REGION.equals(metrics.getRegion())).findFirst().orElseThrow();
+        assertEquals(10, userMetrics.getHits());
+        assertEquals(0, userMetrics.getMisses());
+        assertEquals(1.0, userMetrics.getHitRatio());
+    }
+
+    //reads the user in a new transaction, it must have the state of the last command without a select
+    private User assertCachedUser(Long userId, UserStatus status, long version) {
+        Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+        User cachedUser = userService.getUserById(userId);
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(status, cachedUser.getStatus());
+        assertEquals(version, userService.getUserVersion(userId));
+        return cachedUser;
     }
 }
@@ -0,0 +1,155 @@
+package ch.uzh.ifi.seal.soprafs20.service;
+
+import ch.uzh.ifi.seal.soprafs20.constant.GameEventType;
+import ch.uzh.ifi.seal.soprafs20.constant.GamePhase;
+import ch.uzh.ifi.seal.soprafs20.entity.game.Game;
+import ch.uzh.ifi.seal.soprafs20.repository.GameRepository;
+import ch.uzh.ifi.seal.soprafs20.rest.dto.ChosenWordPutDTO;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the votes on the chosen word counted with one update statement against the read-modify-write path the votes
+ * used before: load the game, increase the counter and let the change be flushed. Every user of a game with USERS users
+ * votes at the same time from THREADS threads, the lost updates are the votes the counter is missing afterwards.
+ * Only runs with -Dbenchmark=true, the results are printed.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:votes", "spring.jpa.properties.hibernate.generate_statistics=true"})
+class VoteCountingBenchmarkTest {
+
+    private static final int USERS = 200;
+    private static final int THREADS = 16;
+    private static final int GAMES = 5;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private GameHistoryService gameHistoryService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void atomicUpdate_againstReadModifyWrite() throws Exception {
+        //the first game of every path warms up the path and is not measured
+        Result readModifyWrite = measure(this::readModifyWriteVote);
+        Result atomicUpdate = measure(gameId -> {
+            ChosenWordPutDTO accept = new ChosenWordPutDTO();
+            accept.setStatus(true);
+            gameService.updateChosenWord(gameId, accept);
+        });
+
+        print("read-modify-write", readModifyWrite);
+        print("atomic update", atomicUpdate);
+        assertEquals(0, atomicUpdate.lostVotes);
+    }
+
+    //the vote as it was counted before the update statements, the counter and the version come from the loaded game
+    private void readModifyWriteVote(Long gameId) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Game game = gameService.getGameById(gameId);
+            game.setChosenWordCounter(game.getChosenWordCounter() + 1);
+            gameHistoryService.record(game, GameEventType.WORD_VOTED, Map.of("chosenWordCounter", game.getChosenWordCounter()));
+        });
+    }
+
+    private void print(String path, Result result) {
+        System.out.printf("%s: %.0f votes/s, %d of %d votes lost (%d failed), %d games loaded%n",
+                path, result.votesPerSecond, result.lostVotes, result.votes, result.failedVotes, result.loadedGames);
+    }
+
+    private Result measure(Vote vote) throws Exception {
+        Result result = new Result();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int i = 0; i <= GAMES; i++){
+                Long gameId = createVotingGame();
+                List<Callable<Boolean>> votes = new ArrayList<>();
+                for (int user = 1; user < USERS; user++){
+                    votes.add(() -> {
+                        vote.cast(gameId);
+                        return true;
+                    });
+                }
+                Statistics statistics = HibernateStatistics.cleared(entityManagerFactory);
+                long start = System.nanoTime();
+                int failedVotes = 0;
+                for (Future<Boolean> future : executor.invokeAll(votes)){
+                    try {
+                        future.get();
+                    }
+                    catch (Exception e) {
+                        //a vote that collides with another one on the version of its event is lost as well
+                        failedVotes++;
+                    }
+                }
+                long nanos = System.nanoTime() - start;
+                if (i == 0){
+                    continue;
+                }
+                int countedVotes = gameRepository.findCountersById(gameId).orElseThrow().getChosenWordCounter();
+                result.votes += votes.size();
+                result.lostVotes += votes.size() - countedVotes;
+                result.failedVotes += failedVotes;
+                result.nanos += nanos;
+                result.loadedGames += statistics.getEntityStatistics(Game.class.getName()).getLoadCount();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+        result.votesPerSecond = result.votes / (result.nanos / 1e9);
+        return result;
+    }
+
+    //a game with USERS users in the vote on the chosen word
+    private Long createVotingGame() throws Exception {
+        Game game = new Game();
+        game.setCurrentUserId(1L);
+        Long gameId = gameService.createGame(game).getId();
+        for (long userId = 2; userId <= USERS; userId++){
+            gameService.addUserToGame(gameId, userId);
+        }
+        gameService.startGame(gameId);
+        gameService.setChosenWord(gameId, gameService.getActiveCard(gameId).getMysteryWords().get(0));
+        assertEquals(GamePhase.VOTE_WORD, gameRepository.findCountersById(gameId).orElseThrow().getPhase());
+        return gameId;
+    }
+
+    private interface Vote {
+        void cast(Long gameId) throws Exception;
+    }
+
+    private static class Result {
+        private int votes;
+        private int lostVotes;
+        private int failedVotes;
+        private long nanos;
+        private long loadedGames;
+        private double votesPerSecond;
+    }
+}